@@ -0,0 +1,58 @@
+package com.example.benchmarks;
+
+import com.example.blockchain.ledger.BlockSigner;
+import com.example.blockchain.ledger.CanonicalJson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Ed25519 signing and verification of a block hash, in the PyNaCl signed-message
+ * form chain_handler stores.
+ */
+@State(Scope.Thread)
+public class BlockSignerBenchmark {
+
+    private BlockSigner signer;
+    private Path keyFile;
+    private String hash;
+    private String signature;
+    private String verifyKey;
+
+    @Setup
+    public void setUp() throws IOException {
+        byte[] seed = new byte[32];
+        new Random(114).nextBytes(seed);
+        keyFile = Files.createTempFile("benchmark-signing-key", ".bin");
+        Files.write(keyFile, seed);
+        signer = new BlockSigner();
+        Fixtures.inject(signer, "signingKeyFile", keyFile.toString());
+        signer.init();
+
+        hash = CanonicalJson.hash(Fixtures.gps(114));
+        signature = signer.sign(hash);
+        verifyKey = signer.getVerifyKey();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(keyFile);
+    }
+
+    @Benchmark
+    public String sign() {
+        return signer.sign(hash);
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return BlockSigner.verify(hash, signature, verifyKey);
+    }
+}
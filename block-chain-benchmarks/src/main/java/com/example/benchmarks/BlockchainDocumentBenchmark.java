@@ -0,0 +1,93 @@
+package com.example.benchmarks;
+
+import com.example.blockchain.codec.BlockCodec;
+import com.example.blockchain.ledger.CanonicalJson;
+import com.example.blockchain.model.BlockchainDocument;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A page of blocks as the services move them: Jackson JSON, as returned by
+ * /documents, against the binary block stream.
+ */
+@State(Scope.Thread)
+public class BlockchainDocumentBenchmark {
+
+    @Param({"1", "100"})
+    private int blocks;
+
+    private List<BlockchainDocument> page;
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private byte[] json;
+    private byte[] binary;
+
+    @Setup
+    public void setUp() throws IOException {
+        HexFormat hex = HexFormat.of();
+        Random random = new Random(114);
+        byte[] bytes = new byte[64];
+        random.nextBytes(bytes);
+        String verifyKey = hex.formatHex(bytes, 0, 32);
+        page = new ArrayList<>(blocks);
+        String prevHash = "0".repeat(64);
+        for (int i = 1; i <= blocks; i++) {
+            Map<String, Object> data = Fixtures.gps(100 + i % 20);
+            String hash = CanonicalJson.hash(data);
+            random.nextBytes(bytes);
+            String signature = hex.formatHex(bytes) + hex.formatHex(hash.getBytes(StandardCharsets.US_ASCII));
+            page.add(new BlockchainDocument(hex.formatHex(bytes, 0, 12), data, hash, signature, verifyKey, prevHash,
+                    (Double) data.get("timestamp"), i));
+            prevHash = hash;
+        }
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        writer = objectMapper.writerFor(new TypeReference<List<BlockchainDocument>>() {});
+        reader = objectMapper.readerFor(new TypeReference<List<BlockchainDocument>>() {});
+        json = writer.writeValueAsBytes(page);
+        binary = encode();
+    }
+
+    @Benchmark
+    public byte[] jacksonSerialize() throws IOException {
+        return writer.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public List<BlockchainDocument> jacksonDeserialize() throws IOException {
+        return reader.readValue(json);
+    }
+
+    @Benchmark
+    public byte[] codecEncode() throws IOException {
+        return encode();
+    }
+
+    @Benchmark
+    public List<BlockchainDocument> codecDecode() throws IOException {
+        return BlockCodec.decode(new ByteArrayInputStream(binary));
+    }
+
+    private byte[] encode() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(binary == null ? 4096 : binary.length);
+        BlockCodec.encode(page, out);
+        return out.toByteArray();
+    }
+}
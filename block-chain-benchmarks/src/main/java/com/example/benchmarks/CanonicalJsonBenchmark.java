@@ -0,0 +1,48 @@
+package com.example.benchmarks;
+
+import com.example.blockchain.ledger.CanonicalJson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+
+/**
+ * Canonical hashing (json.dumps(sort_keys=True) then SHA-256) of chain payloads:
+ * streamed into the digest, as the ledger does, versus serializing to a String first.
+ */
+@State(Scope.Thread)
+public class CanonicalJsonBenchmark {
+
+    @Param({"gps", "telemetry"})
+    private String shape;
+
+    private Map<String, Object> payload;
+    private MessageDigest sha256;
+
+    @Setup
+    public void setUp() throws NoSuchAlgorithmException {
+        payload = Fixtures.payload(shape, 114);
+        sha256 = MessageDigest.getInstance("SHA-256");
+    }
+
+    @Benchmark
+    public byte[] streamingDigest() {
+        return CanonicalJson.digest(payload);
+    }
+
+    @Benchmark
+    public String hashHex() {
+        return CanonicalJson.hash(payload);
+    }
+
+    @Benchmark
+    public byte[] serializeThenDigest() {
+        return sha256.digest(CanonicalJson.serialize(payload).getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.benchmarks;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Payloads shaped like the chain's real traffic, and wiring for the
+ * Spring components the benchmarks use outside a container.
+ */
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    /**
+     * A payload as chain_handler's insert_data.py stores it, including the
+     * "timestamp" field add_data puts in before hashing.
+     */
+    static Map<String, Object> gps(int truck) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("latitude", 29.7041 + truck * 1e-4);
+        payload.put("longitude", 78.1025 - truck * 1e-4);
+        payload.put("timestamp", "2025-03-09T14:00:00");
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("dataType", "gps");
+        data.put("identifier", "truck_" + truck);
+        data.put("payload", payload);
+        data.put("timestamp", 1741528800.123456 + truck);
+        return data;
+    }
+
+    /**
+     * A heavier telemetry payload: GPS fix plus eight tyre readings.
+     */
+    static Map<String, Object> telemetry(int truck) {
+        Map<String, Object> gps = new LinkedHashMap<>();
+        gps.put("lat", 28.613912);
+        gps.put("lon", 77.209021);
+        gps.put("speed", 54.3);
+        gps.put("heading", 271.0);
+        List<Object> readings = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Map<String, Object> reading = new LinkedHashMap<>();
+            reading.put("sensor", "tyre_" + i);
+            reading.put("pressure", 31.5 + i * 0.25);
+            reading.put("ok", true);
+            readings.add(reading);
+        }
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("identifier", "truck_" + truck);
+        data.put("dataType", "telemetry");
+        data.put("gps", gps);
+        data.put("fuel", 63.25);
+        data.put("odometer", 184233);
+        data.put("readings", readings);
+        data.put("timestamp", 1718001234.5678);
+        return data;
+    }
+
+    static Map<String, Object> payload(String shape, int truck) {
+        return "telemetry".equals(shape) ? telemetry(truck) : gps(truck);
+    }
+
+    /**
+     * Set a field Spring would inject with @Value.
+     */
+    static void inject(Object target, String field, Object value) {
+        try {
+            Field declared = target.getClass().getDeclaredField(field);
+            declared.setAccessible(true);
+            declared.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot set " + field + " on " + target.getClass().getSimpleName(), e);
+        }
+    }
+}
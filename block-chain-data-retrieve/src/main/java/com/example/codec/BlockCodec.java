@@ -0,0 +1,383 @@
+package com.example.codec;
+
+import com.example.model.BlockchainDocument;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of a list of blocks for service-to-service transfer,
+ * served as {@value #MEDIA_TYPE}. Hex fields travel as raw bytes, the verify key
+ * and map keys are sent once and then referenced by index, a prev_hash equal to
+ * the previous block's hash is a single byte, a PyNaCl-style signature over the
+ * block's own hash is cut down to its 64 signature bytes, and the data is a
+ * tagged binary tree instead of JSON.
+ * <pre>
+ * "BLK1", varint count, then per block:
+ *   varint sequence, double timestamp
+ *   id, hash, prev_hash, signature, verify_key   each a tagged string (below)
+ *   data                                         a tagged value (below)
+ * strings: 0 null, 1 lowercase hex as raw bytes, 2 UTF-8,
+ *          3 signature whose message is the block hash (64 raw bytes), 4 verify key reference,
+ *          5 the previous block's hash
+ * values:  0 null, 1 false, 2 true, 3 zigzag varint, 4 double, 5 UTF-8 string,
+ *          6 list, 7 map, 8 decimal string
+ * map keys: varint (index &lt;&lt; 1 | 1) for a key seen before, else (length &lt;&lt; 1) and UTF-8
+ * </pre>
+ * Decoding yields the same field values as the JSON form, so hashes can be
+ * recomputed from the data as usual. The format is the one the block-chain
+ * service serves from /blockchain/blocks.
+ */
+public final class BlockCodec {
+
+    public static final String MEDIA_TYPE = "application/x-block-stream";
+
+    private static final byte[] MAGIC = {'B', 'L', 'K', '1'};
+    private static final int SIGNATURE_SIZE = 64;
+
+    private static final int STR_NULL = 0;
+    private static final int STR_HEX = 1;
+    private static final int STR_TEXT = 2;
+    private static final int STR_SIGNED_HASH = 3;
+    private static final int STR_KEY_REF = 4;
+    private static final int STR_PREVIOUS_HASH = 5;
+
+    private static final int VAL_NULL = 0;
+    private static final int VAL_FALSE = 1;
+    private static final int VAL_TRUE = 2;
+    private static final int VAL_INTEGER = 3;
+    private static final int VAL_DOUBLE = 4;
+    private static final int VAL_STRING = 5;
+    private static final int VAL_LIST = 6;
+    private static final int VAL_MAP = 7;
+    private static final int VAL_DECIMAL = 8;
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    private BlockCodec() {
+    }
+
+    public static void encode(List<BlockchainDocument> blocks, OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(stream);
+        Map<String, Integer> verifyKeys = new HashMap<>();
+        Map<String, Integer> mapKeys = new HashMap<>();
+        String previousHash = null;
+        out.write(MAGIC);
+        writeVarint(out, blocks.size());
+        for (BlockchainDocument block : blocks) {
+            writeVarint(out, block.getSequence());
+            out.writeDouble(block.getTimestamp());
+            writeString(out, block.getId());
+            writeString(out, block.getHash());
+            if (previousHash != null && previousHash.equals(block.getPrevHash())) {
+                out.writeByte(STR_PREVIOUS_HASH);
+            } else {
+                writeString(out, block.getPrevHash());
+            }
+            writeSignature(out, block.getSignature(), block.getHash());
+            writeVerifyKey(out, block.getVerifyKey(), verifyKeys);
+            writeValue(out, block.getData(), mapKeys);
+            previousHash = block.getHash();
+        }
+        out.flush();
+    }
+
+    public static List<BlockchainDocument> decode(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a block stream");
+        }
+        int count = readVarint(in);
+        List<BlockchainDocument> blocks = new ArrayList<>(Math.min(count, 1024));
+        List<String> verifyKeys = new ArrayList<>();
+        List<String> mapKeys = new ArrayList<>();
+        String previousHash = null;
+        for (int i = 0; i < count; i++) {
+            BlockchainDocument block = new BlockchainDocument();
+            block.setSequence(readVarint(in));
+            block.setTimestamp(in.readDouble());
+            block.setId(readString(in, in.readUnsignedByte()));
+            block.setHash(readString(in, in.readUnsignedByte()));
+            int tag = in.readUnsignedByte();
+            if (tag == STR_PREVIOUS_HASH) {
+                if (previousHash == null) {
+                    throw new IOException("First block refers to a previous hash");
+                }
+                block.setPrevHash(previousHash);
+            } else {
+                block.setPrevHash(readString(in, tag));
+            }
+            tag = in.readUnsignedByte();
+            if (tag == STR_SIGNED_HASH) {
+                if (block.getHash() == null) {
+                    throw new IOException("Signature refers to a missing hash");
+                }
+                byte[] signature = new byte[SIGNATURE_SIZE];
+                in.readFully(signature);
+                block.setSignature(HEX.formatHex(signature) + HEX.formatHex(block.getHash().getBytes(StandardCharsets.US_ASCII)));
+            } else {
+                block.setSignature(readString(in, tag));
+            }
+            tag = in.readUnsignedByte();
+            if (tag == STR_KEY_REF) {
+                int index = readVarint(in);
+                if (index >= verifyKeys.size()) {
+                    throw new IOException("Unknown verify key reference " + index);
+                }
+                block.setVerifyKey(verifyKeys.get(index));
+            } else {
+                block.setVerifyKey(readString(in, tag));
+                if (block.getVerifyKey() != null) {
+                    verifyKeys.add(block.getVerifyKey());
+                }
+            }
+            block.setData(readValue(in, mapKeys));
+            blocks.add(block);
+            previousHash = block.getHash();
+        }
+        return blocks;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeByte(STR_NULL);
+        } else if (isLowerHex(value)) {
+            out.writeByte(STR_HEX);
+            writeBytes(out, HEX.parseHex(value));
+        } else {
+            out.writeByte(STR_TEXT);
+            writeBytes(out, value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * chain_handler signs the ASCII hex hash and stores the signature followed by
+     * that message, so the second half can be rebuilt from the hash.
+     */
+    private static void writeSignature(DataOutputStream out, String signature, String hash) throws IOException {
+        if (signature != null && hash != null && isLowerHex(signature)
+                && signature.length() == 2 * SIGNATURE_SIZE + 2 * hash.length()
+                && signature.regionMatches(2 * SIGNATURE_SIZE, HEX.formatHex(hash.getBytes(StandardCharsets.US_ASCII)), 0,
+                2 * hash.length())) {
+            out.writeByte(STR_SIGNED_HASH);
+            out.write(HEX.parseHex(signature, 0, 2 * SIGNATURE_SIZE));
+            return;
+        }
+        writeString(out, signature);
+    }
+
+    private static void writeVerifyKey(DataOutputStream out, String verifyKey, Map<String, Integer> verifyKeys)
+            throws IOException {
+        Integer index = verifyKey == null ? null : verifyKeys.get(verifyKey);
+        if (index != null) {
+            out.writeByte(STR_KEY_REF);
+            writeVarint(out, index);
+            return;
+        }
+        if (verifyKey != null) {
+            verifyKeys.put(verifyKey, verifyKeys.size());
+        }
+        writeString(out, verifyKey);
+    }
+
+    private static String readString(DataInputStream in, int tag) throws IOException {
+        switch (tag) {
+            case STR_NULL:
+                return null;
+            case STR_HEX:
+                return HEX.formatHex(readBytes(in));
+            case STR_TEXT:
+                return new String(readBytes(in), StandardCharsets.UTF_8);
+            default:
+                throw new IOException("Unexpected string tag " + tag);
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, Object value, Map<String, Integer> mapKeys)
+            throws IOException {
+        if (value == null) {
+            out.writeByte(VAL_NULL);
+        } else if (value instanceof Boolean) {
+            out.writeByte((Boolean) value ? VAL_TRUE : VAL_FALSE);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            out.writeByte(VAL_INTEGER);
+            long number = ((Number) value).longValue();
+            writeVarLong(out, (number << 1) ^ (number >> 63));
+        } else if (value instanceof Double || value instanceof Float) {
+            out.writeByte(VAL_DOUBLE);
+            out.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof BigInteger || value instanceof BigDecimal) {
+            out.writeByte(VAL_DECIMAL);
+            writeBytes(out, value.toString().getBytes(StandardCharsets.US_ASCII));
+        } else if (value instanceof CharSequence) {
+            out.writeByte(VAL_STRING);
+            writeBytes(out, value.toString().getBytes(StandardCharsets.UTF_8));
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            out.writeByte(VAL_MAP);
+            writeVarint(out, map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeMapKey(out, String.valueOf(entry.getKey()), mapKeys);
+                writeValue(out, entry.getValue(), mapKeys);
+            }
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            out.writeByte(VAL_LIST);
+            writeVarint(out, list.size());
+            for (Object item : list) {
+                writeValue(out, item, mapKeys);
+            }
+        } else {
+            throw new IllegalArgumentException("Cannot encode " + value.getClass().getName() + " in a block stream");
+        }
+    }
+
+    private static Object readValue(DataInputStream in, List<String> mapKeys) throws IOException {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+            case VAL_NULL:
+                return null;
+            case VAL_FALSE:
+                return Boolean.FALSE;
+            case VAL_TRUE:
+                return Boolean.TRUE;
+            case VAL_INTEGER:
+                long zigzag = readVarLong(in);
+                long number = (zigzag >>> 1) ^ -(zigzag & 1);
+                if (number == (int) number) {
+                    return (int) number;
+                }
+                return number;
+            case VAL_DOUBLE:
+                return in.readDouble();
+            case VAL_STRING:
+                return new String(readBytes(in), StandardCharsets.UTF_8);
+            case VAL_LIST:
+                int length = readVarint(in);
+                List<Object> list = new ArrayList<>(Math.min(length, 1024));
+                for (int i = 0; i < length; i++) {
+                    list.add(readValue(in, mapKeys));
+                }
+                return list;
+            case VAL_MAP:
+                int size = readVarint(in);
+                Map<String, Object> map = new LinkedHashMap<>();
+                for (int i = 0; i < size; i++) {
+                    String key = readMapKey(in, mapKeys);
+                    map.put(key, readValue(in, mapKeys));
+                }
+                return map;
+            case VAL_DECIMAL:
+                String decimal = new String(readBytes(in), StandardCharsets.US_ASCII);
+                return decimal.contains(".") || decimal.contains("E") ? new BigDecimal(decimal) : new BigInteger(decimal);
+            default:
+                throw new IOException("Unknown value tag " + tag);
+        }
+    }
+
+    private static void writeMapKey(DataOutputStream out, String key, Map<String, Integer> mapKeys) throws IOException {
+        Integer index = mapKeys.get(key);
+        if (index != null) {
+            writeVarLong(out, ((long) index << 1) | 1);
+            return;
+        }
+        mapKeys.put(key, mapKeys.size());
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, (long) bytes.length << 1);
+        out.write(bytes);
+    }
+
+    private static String readMapKey(DataInputStream in, List<String> mapKeys) throws IOException {
+        long header = readVarLong(in);
+        if ((header & 1) != 0) {
+            long index = header >>> 1;
+            if (index >= mapKeys.size()) {
+                throw new IOException("Unknown map key reference " + index);
+            }
+            return mapKeys.get((int) index);
+        }
+        if (header >>> 1 > Integer.MAX_VALUE) {
+            throw new IOException("Length out of range: " + (header >>> 1));
+        }
+        byte[] bytes = new byte[(int) (header >>> 1)];
+        in.readFully(bytes);
+        String key = new String(bytes, StandardCharsets.UTF_8);
+        mapKeys.add(key);
+        return key;
+    }
+
+    private static boolean isLowerHex(String value) {
+        if (value.isEmpty() || value.length() % 2 != 0) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        writeVarint(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readVarint(in)];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static void writeVarint(DataOutputStream out, int value) throws IOException {
+        writeVarLong(out, value & 0xFFFFFFFFL);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static int readVarint(DataInputStream in) throws IOException {
+        long value = readVarLong(in);
+        if (value > Integer.MAX_VALUE) {
+            throw new IOException("Length out of range: " + value);
+        }
+        return (int) value;
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
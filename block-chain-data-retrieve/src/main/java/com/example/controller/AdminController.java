@@ -0,0 +1,45 @@
+package com.example.controller;
+
+import com.example.service.DocumentIndexService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Operational endpoints. Not routed by the gateway; reach the service directly.
+ */
+@RestController
+@RequestMapping("/admin")
+public class AdminController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdminController.class);
+    private final DocumentIndexService indexService;
+
+    public AdminController(DocumentIndexService indexService) {
+        this.indexService = indexService;
+    }
+
+    /**
+     * Index usage on the documents collection ($indexStats) and any required index
+     * that is missing, to confirm lookups hit an index.
+     * Example: GET /admin/indexes
+     */
+    @GetMapping("/indexes")
+    public ResponseEntity<?> getIndexStats() {
+        try {
+            return ResponseEntity.ok(indexService.indexStats());
+        } catch (Exception e) {
+            logger.error("Error reading index stats: {}", e.getMessage(), e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("status", "error");
+            response.put("message", "Error reading index stats: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+}
@@ -1,31 +1,154 @@
 package com.example.controller;
 
+import com.example.dto.DocumentPage;
 import com.example.model.BlockchainDocument;
 import com.example.service.DocumentService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/documents")
 public class DocumentController {
 
     private static final Logger logger = LoggerFactory.getLogger(DocumentController.class);
+    // Sequence to pass as after= for the next page; absent on the last page
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final DocumentService documentService;
 
+    // Requests without limit= predate paging and still get every document, up to this many
+    @Value("${documents.page.unpaged-max-size:10000}")
+    private int unpagedMaxSize;
+
+    @Value("${documents.page.max-size:1000}")
+    private int maxPageSize;
+
     public DocumentController(DocumentService documentService) {
         this.documentService = documentService;
     }
 
+    /**
+     * All documents, one page at a time in sequence order. JSON by default;
+     * internal callers can ask for the compact binary form with
+     * Accept: application/x-block-stream (also on the type and identifier lookups).
+     * <p>
+     * The body stays a plain list so both forms work; when more documents follow,
+     * the X-Next-Cursor header holds the after= value for the next page and a
+     * Link header the full URL. Without limit= the whole chain comes back as it
+     * did before paging, up to documents.page.unpaged-max-size documents.
+     * Example: GET /documents?limit=500&after=1500
+     */
     @GetMapping
-    public List<BlockchainDocument> getAllDocuments() {
-        return documentService.fetchAllDocuments();
+    public ResponseEntity<?> getAllDocuments(@RequestParam(required = false) Integer after,
+                                             @RequestParam(required = false) Integer limit) {
+        int pageSize;
+        try {
+            pageSize = pageSize(limit);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("status", "error");
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+        return page(documentService.fetchAllDocuments(after, pageSize), pageSize);
+    }
+
+    /**
+     * Stream the chain in sequence order as NDJSON without loading it into memory.
+     * Example: GET /documents/export?fromSequence=1001&gzip=true
+     */
+    @GetMapping("/export")
+    public ResponseEntity<?> exportDocuments(@RequestParam(defaultValue = "1") int fromSequence,
+                                             @RequestParam(defaultValue = "false") boolean gzip) {
+        logger.info("Received request to export documents from sequence {} (gzip={})", fromSequence, gzip);
+        try {
+            documentService.requireValidChain();
+        } catch (RuntimeException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("status", "error");
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, 64 * 1024);
+                documentService.exportDocuments(fromSequence, compressed);
+                compressed.finish();
+            } else {
+                documentService.exportDocuments(fromSequence, out);
+            }
+        };
+        String fileName = "chain-from-" + fromSequence + (gzip ? ".ndjson.gz" : ".ndjson");
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"");
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    /**
+     * Stream documents in sequence order as NDJSON (Accept: application/x-ndjson)
+     * or server-sent events (Accept: text/event-stream). Documents come from the
+     * reactive Mongo driver as the client reads them, so a slow client holds
+     * neither a request thread nor more than a cursor batch.
+     * Example: GET /documents/stream/type/fuel?after=1500
+     */
+    @GetMapping(value = "/stream",
+            produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<BlockchainDocument> streamAllDocuments(@RequestParam(required = false) Integer after) {
+        logger.info("Received request to stream documents after sequence {}", after);
+        requireValidChain();
+        return documentService.streamAllDocuments(after);
+    }
+
+    @GetMapping(value = "/stream/type/{dataType}",
+            produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<BlockchainDocument> streamDocumentsByDataType(@PathVariable String dataType,
+                                                              @RequestParam(required = false) Integer after) {
+        logger.info("Received request to stream documents with dataType: {}", dataType);
+        requireValidChain();
+        return documentService.streamDocumentsByDataType(dataType, after);
+    }
+
+    @GetMapping(value = "/stream/identifier/{identifier}",
+            produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<BlockchainDocument> streamDocumentsByIdentifier(@PathVariable String identifier,
+                                                                @RequestParam(required = false) Integer after) {
+        logger.info("Received request to stream documents with identifier: {}", identifier);
+        requireValidChain();
+        return documentService.streamDocumentsByIdentifier(identifier, after);
+    }
+
+    /**
+     * Stream requests that do not name a streaming type, wildcards included;
+     * without this they would fall through to the lookup by ID.
+     */
+    @GetMapping({"/stream", "/stream/type/{dataType}", "/stream/identifier/{identifier}"})
+    public ResponseEntity<Map<String, Object>> streamNotAcceptable() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "error");
+        response.put("message", "Streams are served as " + MediaType.APPLICATION_NDJSON_VALUE + " or "
+                + MediaType.TEXT_EVENT_STREAM_VALUE + "; use the paged lookups for JSON");
+        return ResponseEntity.status(HttpStatus.NOT_ACCEPTABLE).body(response);
     }
 
     @GetMapping("/{id}")
@@ -34,19 +157,22 @@ public class DocumentController {
     }
     
     @GetMapping("/type/{dataType}")
-    public ResponseEntity<?> getDocumentsByDataType(@PathVariable String dataType) {
+    public ResponseEntity<?> getDocumentsByDataType(@PathVariable String dataType,
+                                                    @RequestParam(required = false) Integer after,
+                                                    @RequestParam(required = false) Integer limit) {
         logger.info("Received request for documents with dataType: {}", dataType);
         try {
-            List<BlockchainDocument> documents = documentService.fetchDocumentsByDataType(dataType);
+            int pageSize = pageSize(limit);
+            DocumentPage page = documentService.fetchDocumentsByDataType(dataType, after, pageSize);
             
-            if (documents.isEmpty()) {
+            if (page.getDocuments().isEmpty() && after == null) {
                 Map<String, Object> response = new HashMap<>();
                 response.put("status", "not_found");
                 response.put("message", "No documents found with dataType: " + dataType);
                 return ResponseEntity.ok(response);
             }
             
-            return ResponseEntity.ok(documents);
+            return page(page, pageSize);
         } catch (RuntimeException e) {
             Map<String, Object> response = new HashMap<>();
             response.put("status", "error");
@@ -65,19 +191,22 @@ public class DocumentController {
      * Example: GET /documents/identifier/chain_start
      */
     @GetMapping("/identifier/{identifier}")
-    public ResponseEntity<?> getDocumentsByIdentifier(@PathVariable String identifier) {
+    public ResponseEntity<?> getDocumentsByIdentifier(@PathVariable String identifier,
+                                                      @RequestParam(required = false) Integer after,
+                                                      @RequestParam(required = false) Integer limit) {
         logger.info("Received request for documents with identifier: {}", identifier);
         try {
-            List<BlockchainDocument> documents = documentService.fetchDocumentsByIdentifier(identifier);
+            int pageSize = pageSize(limit);
+            DocumentPage page = documentService.fetchDocumentsByIdentifier(identifier, after, pageSize);
             
-            if (documents.isEmpty()) {
+            if (page.getDocuments().isEmpty() && after == null) {
                 Map<String, Object> response = new HashMap<>();
                 response.put("status", "not_found");
                 response.put("message", "No documents found with identifier: " + identifier);
                 return ResponseEntity.ok(response);
             }
             
-            return ResponseEntity.ok(documents);
+            return page(page, pageSize);
         } catch (RuntimeException e) {
             Map<String, Object> response = new HashMap<>();
             response.put("status", "error");
@@ -90,4 +219,44 @@ public class DocumentController {
             return ResponseEntity.internalServerError().body(response);
         }
     }
+
+    /**
+     * The integrity check runs before a stream is returned: once streaming starts
+     * the 200 status is already sent, so a failure could no longer be reported.
+     */
+    private void requireValidChain() {
+        try {
+            documentService.requireValidChain();
+        } catch (RuntimeException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The requested page size, or documents.page.unpaged-max-size when none is
+     * given so existing callers keep getting everything. Sizes above
+     * documents.page.max-size are refused, which bounds what one paged request loads.
+     */
+    private int pageSize(Integer limit) {
+        if (limit == null) {
+            return unpagedMaxSize;
+        }
+        if (limit < 1 || limit > maxPageSize) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxPageSize);
+        }
+        return limit;
+    }
+
+    private static ResponseEntity<List<BlockchainDocument>> page(DocumentPage page, int pageSize) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("after", page.getNextCursor())
+                    .replaceQueryParam("limit", pageSize)
+                    .toUriString();
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(page.getNextCursor()))
+                    .header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return response.body(page.getDocuments());
+    }
 }
@@ -0,0 +1,36 @@
+package com.example.dto;
+
+import com.example.model.BlockchainDocument;
+
+import java.util.List;
+
+/**
+ * One page of a document lookup, in sequence order.
+ * nextCursor is the sequence to pass as after= for the next page, or null on the last page.
+ */
+public class DocumentPage {
+
+    private final List<BlockchainDocument> documents;
+    private final Integer nextCursor;
+
+    public DocumentPage(List<BlockchainDocument> documents, Integer nextCursor) {
+        this.documents = documents;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<BlockchainDocument> getDocuments() {
+        return documents;
+    }
+
+    public Integer getNextCursor() {
+        return nextCursor;
+    }
+
+    @Override
+    public String toString() {
+        return "DocumentPage{" +
+                "documents=" + documents.size() +
+                ", nextCursor=" + nextCursor +
+                '}';
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+/**
+ * The verdict of the last chain verification, versioned by the tip (sequence
+ * and hash) it was made against. Reads at the same tip are answered from the
+ * verdict; only a moved tip makes the next read wait for a new verification,
+ * which concurrent reads share. Failed verifications are never kept.
+ * <p>
+ * Tampering that leaves the tip alone would go unnoticed under a pure tip
+ * key, so a verdict older than recheck-interval-ms is re-verified in the
+ * background while reads keep being served from it.
+ */
+@Component
+public class ChainVerificationState {
+    private static final Logger logger = LoggerFactory.getLogger(ChainVerificationState.class);
+
+    private final AtomicReference<Verification> current = new AtomicReference<>();
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService recheckExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "chain-recheck");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Age after which a verdict is re-verified in the background; 0 keeps it until the tip moves
+    @Value("${blockchain.verify.recheck-interval-ms:60000}")
+    private long recheckIntervalMillis;
+
+    public ChainVerificationState(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("documents.integrity.verified.sequence", current,
+                        state -> state.get() == null ? Double.NaN : state.get().tipSequence)
+                .description("Tip sequence the current verification verdict was made against")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        recheckExecutor.shutdownNow();
+    }
+
+    /**
+     * The verdict for this tip, running verify on the calling thread only when
+     * no verdict or running verification for it exists.
+     *
+     * @param tipSequence the current tip sequence; 0 for an empty chain
+     * @param tipHash     the current tip hash; null for an empty chain
+     * @param verify      runs a full verification; exceptions reach every waiting caller
+     */
+    public boolean isValid(int tipSequence, String tipHash, BooleanSupplier verify) {
+        while (true) {
+            Verification verification = current.get();
+            if (verification != null && verification.isFor(tipSequence, tipHash)
+                    && !verification.result.isCompletedExceptionally()) {
+                boolean done = verification.result.isDone();
+                meterRegistry.counter("documents.integrity.check.shared", "source", done ? "cache" : "inflight")
+                        .increment();
+                if (done) {
+                    recheckIfStale(verification, verify);
+                }
+                return verification.await();
+            }
+            Verification next = new Verification(tipSequence, tipHash);
+            if (current.compareAndSet(verification, next)) {
+                next.run(verify);
+                return next.await();
+            }
+        }
+    }
+
+    private void recheckIfStale(Verification verification, BooleanSupplier verify) {
+        if (recheckIntervalMillis <= 0
+                || System.nanoTime() - verification.checkedAt < TimeUnit.MILLISECONDS.toNanos(recheckIntervalMillis)
+                || !verification.rechecking.compareAndSet(false, true)) {
+            return;
+        }
+        recheckExecutor.execute(() -> {
+            Verification recheck = new Verification(verification.tipSequence, verification.tipHash);
+            recheck.run(verify);
+            if (recheck.result.isCompletedExceptionally()) {
+                // Keep serving the last verdict and try again after another interval
+                verification.checkedAt = System.nanoTime();
+                verification.rechecking.set(false);
+                return;
+            }
+            if (current.compareAndSet(verification, recheck) && !recheck.await()) {
+                logger.error("Background re-verification at sequence {} found the chain invalid",
+                        verification.tipSequence);
+            }
+        });
+    }
+
+    private final class Verification {
+        private final int tipSequence;
+        private final String tipHash;
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        private final AtomicBoolean rechecking = new AtomicBoolean();
+        private volatile long checkedAt;
+
+        private Verification(int tipSequence, String tipHash) {
+            this.tipSequence = tipSequence;
+            this.tipHash = tipHash;
+        }
+
+        private void run(BooleanSupplier verify) {
+            try {
+                boolean valid = verify.getAsBoolean();
+                checkedAt = System.nanoTime();
+                result.complete(valid);
+            } catch (RuntimeException | Error e) {
+                current.compareAndSet(this, null);
+                result.completeExceptionally(e);
+            }
+        }
+
+        private boolean await() {
+            try {
+                return result.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+
+        private boolean isFor(int tipSequence, String tipHash) {
+            return this.tipSequence == tipSequence && Objects.equals(this.tipHash, tipHash);
+        }
+    }
+}
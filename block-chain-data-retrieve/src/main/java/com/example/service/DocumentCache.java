@@ -0,0 +1,130 @@
+package com.example.service;
+
+import com.example.dto.DocumentPage;
+import com.example.model.BlockchainDocument;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache for lookups by ID and by identifier. Blocks never change once
+ * written, so a document is cached under its ID for as long as it stays popular.
+ * An identifier page is keyed by its cursor and limit; a full page (one with a
+ * next cursor) can never change either, since new blocks only append past it,
+ * while the last page is also keyed by the chain tip it was read at, so a moved
+ * tip misses and reads the new documents.
+ * <p>
+ * Both kinds share one Caffeine cache (W-TinyLFU eviction), bounded by the
+ * approximate JSON size of what it holds. Hits and misses are published as
+ * cache.gets{cache="documents"}.
+ */
+@Component
+public class DocumentCache {
+
+    // Per-entry bookkeeping on top of the JSON size: key, node and object headers
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+    private final ObjectMapper objectMapper;
+    private final Cache<Object, Object> cache;
+
+    public DocumentCache(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                         @Value("${documents.cache.max-weight-bytes:67108864}") long maxWeightBytes) {
+        this.objectMapper = objectMapper;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher((Object key, Object value) -> weigh(value))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "documents");
+    }
+
+    /**
+     * The document with this ID, loading it on a miss. Missing documents are not
+     * cached, since a block with that ID may still be written.
+     */
+    public Optional<BlockchainDocument> getById(String id, Supplier<Optional<BlockchainDocument>> load) {
+        BlockchainDocument cached = (BlockchainDocument) cache.getIfPresent(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<BlockchainDocument> loaded = load.get();
+        loaded.ifPresent(document -> cache.put(id, document));
+        return loaded;
+    }
+
+    /**
+     * A page of documents by identifier, loading it on a miss.
+     *
+     * @param tipSequence the chain tip the caller verified; only the last page depends on it
+     */
+    public DocumentPage getByIdentifier(String identifier, Integer after, int limit, int tipSequence,
+                                        Supplier<DocumentPage> load) {
+        PageKey fullPage = new PageKey(identifier, after, limit, null);
+        PageKey lastPage = new PageKey(identifier, after, limit, tipSequence);
+        // Probe quietly so that each request is recorded as a single hit or miss
+        PageKey key = cache.policy().getIfPresentQuietly(fullPage) != null ? fullPage : lastPage;
+        DocumentPage cached = (DocumentPage) cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        DocumentPage loaded = load.get();
+        cache.put(loaded.getNextCursor() != null ? fullPage : lastPage, loaded);
+        return loaded;
+    }
+
+    private int weigh(Object value) {
+        if (value instanceof DocumentPage) {
+            int weight = ENTRY_OVERHEAD_BYTES;
+            for (BlockchainDocument document : ((DocumentPage) value).getDocuments()) {
+                weight += weigh(document);
+            }
+            return weight;
+        }
+        try {
+            return ENTRY_OVERHEAD_BYTES + objectMapper.writeValueAsBytes(value).length;
+        } catch (Exception e) {
+            // Not serializable means it would not be served either; count it as large
+            return 64 * 1024;
+        }
+    }
+
+    private static final class PageKey {
+        private final String identifier;
+        private final Integer after;
+        private final int limit;
+        private final Integer tipSequence;
+
+        private PageKey(String identifier, Integer after, int limit, Integer tipSequence) {
+            this.identifier = identifier;
+            this.after = after;
+            this.limit = limit;
+            this.tipSequence = tipSequence;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PageKey)) {
+                return false;
+            }
+            PageKey other = (PageKey) o;
+            return limit == other.limit && identifier.equals(other.identifier)
+                    && Objects.equals(after, other.after) && Objects.equals(tipSequence, other.tipSequence);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(identifier, after, limit, tipSequence);
+        }
+    }
+}
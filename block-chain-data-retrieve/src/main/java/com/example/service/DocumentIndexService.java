@@ -0,0 +1,140 @@
+package com.example.service;
+
+import com.example.model.BlockchainDocument;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Secondary indexes on the documents collection for the lookups this service
+ * (and chain_handler) make. The compound indexes lead with data.dataType and
+ * data.identifier, so they serve plain equality lookups on those fields as well
+ * as the sequence-ordered pages and streams; separate single-field indexes on
+ * them would only add write cost.
+ */
+@Service
+public class DocumentIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentIndexService.class);
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${documents.indexes.ensure-on-startup:true}")
+    private boolean ensureOnStartup;
+
+    public DocumentIndexService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * The indexes this service relies on. The sequence index is a plain one: this
+     * service only reads, and block-chain's ledger makes it unique when it loads.
+     */
+    static List<Index> requiredIndexes() {
+        List<Index> indexes = new ArrayList<>();
+        indexes.add(new Index("sequence", Sort.Direction.ASC));
+        indexes.add(new Index("timestamp", Sort.Direction.ASC));
+        indexes.add(new Index().on("data.dataType", Sort.Direction.ASC).on("sequence", Sort.Direction.ASC));
+        indexes.add(new Index().on("data.identifier", Sort.Direction.ASC).on("sequence", Sort.Direction.ASC));
+        return indexes;
+    }
+
+    /**
+     * Build missing indexes once the application is up. Runs on its own thread:
+     * an index build on a large collection, or an unreachable Mongo, must not hold
+     * up startup, and queries simply scan until the build finishes.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexesOnStartup() {
+        if (!ensureOnStartup) {
+            return;
+        }
+        Thread thread = new Thread(this::ensureIndexes, "ensure-indexes");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Create the required indexes whose keys are not indexed yet. An index already
+     * on the same keys is kept whatever its options, e.g. the ledger's unique one.
+     */
+    public void ensureIndexes() {
+        Set<Document> existing;
+        try {
+            existing = mongoTemplate.indexOps(BlockchainDocument.class).getIndexInfo().stream()
+                    .map(DocumentIndexService::keyOf)
+                    .collect(Collectors.toSet());
+        } catch (RuntimeException e) {
+            logger.warn("Could not list indexes on documents: {}", e.getMessage());
+            return;
+        }
+        for (Index index : requiredIndexes()) {
+            if (existing.contains(index.getIndexKeys())) {
+                continue;
+            }
+            try {
+                String name = mongoTemplate.indexOps(BlockchainDocument.class).ensureIndex(index);
+                logger.info("Index {} on documents is in place", name);
+            } catch (RuntimeException e) {
+                logger.warn("Could not ensure index {} on documents: {}", index.getIndexKeys().toJson(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Usage of every index on the documents collection since the mongod started,
+     * from $indexStats, and which required indexes are missing.
+     */
+    public Map<String, Object> indexStats() {
+        String collection = mongoTemplate.getCollectionName(BlockchainDocument.class);
+        Aggregation aggregation = Aggregation.newAggregation(context -> new Document("$indexStats", new Document()));
+        List<Map<String, Object>> indexes = new ArrayList<>();
+        for (Document stats : mongoTemplate.aggregate(aggregation, collection, Document.class)) {
+            Document accesses = stats.get("accesses", Document.class);
+            Map<String, Object> index = new LinkedHashMap<>();
+            index.put("name", stats.getString("name"));
+            index.put("key", stats.get("key"));
+            index.put("ops", accesses == null ? null : accesses.get("ops"));
+            index.put("since", accesses == null ? null : accesses.get("since"));
+            index.put("host", stats.getString("host"));
+            indexes.add(index);
+        }
+
+        Set<Document> existing = mongoTemplate.indexOps(collection).getIndexInfo().stream()
+                .map(DocumentIndexService::keyOf)
+                .collect(Collectors.toSet());
+        List<Document> missing = requiredIndexes().stream()
+                .map(Index::getIndexKeys)
+                .filter(keys -> !existing.contains(keys))
+                .collect(Collectors.toList());
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("collection", collection);
+        response.put("indexes", indexes);
+        response.put("missing", missing);
+        return response;
+    }
+
+    private static Document keyOf(IndexInfo info) {
+        Document keys = new Document();
+        info.getIndexFields().forEach(field -> keys.put(field.getKey(),
+                field.getDirection() == Sort.Direction.DESC ? -1 : 1));
+        return keys;
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.service;
 
 import com.example.dto.BlockchainVerificationResponse;
+import com.example.dto.DocumentPage;
 import com.example.model.BlockchainDocument;
 import com.example.repository.DocumentRepository;
 import org.springframework.stereotype.Service;
@@ -9,12 +10,26 @@ import org.springframework.beans.factory.annotation.Value;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.util.CloseableIterator;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.function.Supplier;
 
 @Service
 public class DocumentService {
@@ -24,57 +39,125 @@ public class DocumentService {
     private final DocumentRepository documentRepository;
     private final RestTemplate restTemplate;
     private final MongoTemplate mongoTemplate;
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final ChainVerificationState verificationState;
+    private final DocumentCache documentCache;
+    private final MeterRegistry meterRegistry;
+
+    // Documents fetched per cursor round trip during an export or stream; bounds the memory one holds
+    private static final int CURSOR_BATCH_SIZE = 500;
 
     @Value("${blockchain.verify.url}")
     private String blockchainVerifyUrl; // The verification API endpoint
 
-    public DocumentService(DocumentRepository documentRepository, RestTemplate restTemplate, MongoTemplate mongoTemplate) {
+    public DocumentService(DocumentRepository documentRepository, RestTemplate restTemplate, MongoTemplate mongoTemplate,
+                           ReactiveMongoTemplate reactiveMongoTemplate, ObjectMapper objectMapper,
+                           ChainVerificationState verificationState, DocumentCache documentCache,
+                           MeterRegistry meterRegistry) {
         this.documentRepository = documentRepository;
         this.restTemplate = restTemplate;
         this.mongoTemplate = mongoTemplate;
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.objectMapper = objectMapper;
+        this.verificationState = verificationState;
+        this.documentCache = documentCache;
+        this.meterRegistry = meterRegistry;
     }
 
     /**
      * Check if the blockchain is valid before allowing retrieval.
-     * Calls the FastAPI endpoint to verify chain integrity.
+     * The verdict is kept per chain tip, so the verification API is only called
+     * again once the tip moves; reads in between cost one tip lookup.
      */
     private boolean isBlockchainValid() {
+        return verifiedTip().isPresent();
+    }
+
+    /**
+     * The tip sequence the chain was verified at (0 for an empty chain), or empty
+     * when it is not valid or could not be verified.
+     */
+    private OptionalInt verifiedTip() {
+        try {
+            BlockchainDocument tip = findTip();
+            boolean valid = tip == null ? verificationState.isValid(0, null, this::requestVerification)
+                    : verificationState.isValid(tip.getSequence(), tip.getHash(), this::requestVerification);
+            return valid ? OptionalInt.of(tip == null ? 0 : tip.getSequence()) : OptionalInt.empty();
+        } catch (Exception e) {
+            logger.error("⚠️ Error verifying blockchain integrity: {}", e.getMessage(), e);
+            return OptionalInt.empty();
+        }
+    }
+
+    /**
+     * Calls the FastAPI endpoint to verify chain integrity.
+     */
+    private boolean requestVerification() {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String result = "error";
         try {
             logger.info("Verifying blockchain integrity at URL: {}", blockchainVerifyUrl);
             BlockchainVerificationResponse response = restTemplate.getForObject(blockchainVerifyUrl, BlockchainVerificationResponse.class);
 
             if (response != null && response.isIntegrity()) {
                 logger.info("✅ Blockchain is valid: {}", response.getMessage());
+                result = "valid";
                 return true;
             } else {
                 logger.error("❌ Blockchain verification failed: {}", (response != null ? response.getMessage() : "No response"));
+                result = "invalid";
                 return false;
             }
-
-        } catch (Exception e) {
-            logger.error("⚠️ Error verifying blockchain integrity: {}", e.getMessage(), e);
-            return false;
+        } finally {
+            sample.stop(Timer.builder("documents.integrity.check")
+                    .description("Integrity check made before serving documents")
+                    .tag("result", result)
+                    .register(meterRegistry));
         }
     }
 
     /**
-     * Fetch all documents if the blockchain is valid.
-     * If not valid, returns a list containing a special "tampered" document.
+     * Sequence and hash of the last block in the chain, or null when it is empty.
+     */
+    private BlockchainDocument findTip() {
+        Query query = new Query().with(Sort.by(Sort.Direction.DESC, "sequence")).limit(1);
+        query.fields().include("sequence").include("hash");
+        return mongoTemplate.findOne(query, BlockchainDocument.class);
+    }
+
+    /**
+     * Time a Mongo query, tagged with the kind of lookup.
      */
-    public List<BlockchainDocument> fetchAllDocuments() {
+    private <T> T timedQuery(String query, Supplier<T> lookup) {
+        return Timer.builder("documents.query")
+                .description("Document lookups in Mongo, after the integrity check")
+                .tag("query", query)
+                .register(meterRegistry)
+                .record(lookup);
+    }
+
+    /**
+     * Fetch one page of all documents if the blockchain is valid.
+     * If not valid, returns a page containing a special "tampered" document.
+     *
+     * @param after the sequence the previous page ended at (its nextCursor), or null for the first page
+     * @param limit the page size; at most the configured maximum
+     */
+    public DocumentPage fetchAllDocuments(Integer after, int limit) {
         if (!isBlockchainValid()) {
-            // Blockchain has been tampered with. Return a list containing a "tampered" document.
+            // Blockchain has been tampered with. Return a page containing a "tampered" document.
             logger.warn("Blockchain validation failed. Returning tampered document.");
             BlockchainDocument tamperedDocument = new BlockchainDocument();
             tamperedDocument.setId("TAMPERED"); // Set ID to indicate tampering
             tamperedDocument.setData("Blockchain has been tampered with!"); // Set data field
-            return Arrays.asList(tamperedDocument); // Return a list with only the tampered document.
+            return new DocumentPage(Arrays.asList(tamperedDocument), null); // Return a page with only the tampered document.
         }
 
-        logger.info("Blockchain validation successful. Fetching all documents.");
-        List<BlockchainDocument> documents = documentRepository.findAll();
-        logger.info("Fetched {} documents", documents.size());
-        return documents;
+        logger.info("Blockchain validation successful. Fetching documents after sequence {} (limit {}).", after, limit);
+        DocumentPage page = fetchPage("all", new Criteria(), after, limit);
+        logger.info("Fetched {} documents", page.getDocuments().size());
+        return page;
     }
 
 
@@ -89,7 +172,8 @@ public class DocumentService {
         }
         
         logger.info("Blockchain validation successful. Fetching document with ID: {}", id);
-        Optional<BlockchainDocument> document = documentRepository.findById(id);
+        Optional<BlockchainDocument> document = documentCache.getById(id,
+                () -> timedQuery("id", () -> documentRepository.findById(id)));
         if (document.isPresent()) {
             logger.info("Document found with ID: {}", id);
         } else {
@@ -99,13 +183,15 @@ public class DocumentService {
     }
     
     /**
-     * Fetch documents by dataType if the blockchain is valid.
+     * Fetch one page of documents by dataType if the blockchain is valid.
      * Throws an exception if the blockchain is not valid.
      * 
      * @param dataType The dataType to search for (e.g., "genesis")
-     * @return List of documents with the specified dataType
+     * @param after the sequence the previous page ended at, or null for the first page
+     * @param limit the page size; at most the configured maximum
+     * @return Page of documents with the specified dataType
      */
-    public List<BlockchainDocument> fetchDocumentsByDataType(String dataType) {
+    public DocumentPage fetchDocumentsByDataType(String dataType, Integer after, int limit) {
         if (!isBlockchainValid()) {
             logger.error("Blockchain validation failed. Cannot retrieve documents with dataType: {}", dataType);
             throw new RuntimeException("Blockchain validation failed. Cannot retrieve documents.");
@@ -113,34 +199,140 @@ public class DocumentService {
         
         logger.info("Blockchain validation successful. Fetching documents with dataType: {}", dataType);
         
-        // Create a query to find documents where data.dataType equals the specified dataType
-        Query query = new Query(Criteria.where("data.dataType").is(dataType));
-        List<BlockchainDocument> documents = mongoTemplate.find(query, BlockchainDocument.class);
+        // Documents where data.dataType equals the specified dataType
+        DocumentPage page = fetchPage("dataType", Criteria.where("data.dataType").is(dataType), after, limit);
         
-        logger.info("Found {} documents with dataType: {}", documents.size(), dataType);
-        return documents;
+        logger.info("Found {} documents with dataType: {}", page.getDocuments().size(), dataType);
+        return page;
     }
 
     /**
-     * Fetch documents by identifier if the blockchain is valid.
+     * Fetch one page of documents by identifier if the blockchain is valid.
      * Throws an exception if the blockchain is not valid.
      * 
      * @param identifier The identifier to search for (e.g., "chain_start")
-     * @return List of documents with the specified identifier
+     * @param after the sequence the previous page ended at, or null for the first page
+     * @param limit the page size; at most the configured maximum
+     * @return Page of documents with the specified identifier
      */
-    public List<BlockchainDocument> fetchDocumentsByIdentifier(String identifier) {
-        if (!isBlockchainValid()) {
+    public DocumentPage fetchDocumentsByIdentifier(String identifier, Integer after, int limit) {
+        OptionalInt tip = verifiedTip();
+        if (tip.isEmpty()) {
             logger.error("Blockchain validation failed. Cannot retrieve documents with identifier: {}", identifier);
             throw new RuntimeException("Blockchain validation failed. Cannot retrieve documents.");
         }
         
         logger.info("Blockchain validation successful. Fetching documents with identifier: {}", identifier);
         
-        // Create a query to find documents where data.identifier equals the specified identifier
-        Query query = new Query(Criteria.where("data.identifier").is(identifier));
-        List<BlockchainDocument> documents = mongoTemplate.find(query, BlockchainDocument.class);
+        // Documents where data.identifier equals the specified identifier
+        DocumentPage page = documentCache.getByIdentifier(identifier, after, limit, tip.getAsInt(),
+                () -> fetchPage("identifier", Criteria.where("data.identifier").is(identifier), after, limit));
         
-        logger.info("Found {} documents with identifier: {}", documents.size(), identifier);
-        return documents;
+        logger.info("Found {} documents with identifier: {}", page.getDocuments().size(), identifier);
+        return page;
+    }
+
+    /**
+     * Keyset page in sequence order: seeks past the cursor instead of skipping,
+     * so every page costs the same however deep it is. One extra document is
+     * read to tell whether another page follows.
+     */
+    private DocumentPage fetchPage(String queryName, Criteria criteria, Integer after, int limit) {
+        if (after != null) {
+            criteria = criteria.and("sequence").gt(after);
+        }
+        Query query = new Query(criteria)
+                .with(Sort.by(Sort.Direction.ASC, "sequence"))
+                .limit(limit + 1);
+        List<BlockchainDocument> documents = timedQuery(queryName, () -> mongoTemplate.find(query, BlockchainDocument.class));
+        if (documents.size() <= limit) {
+            return new DocumentPage(documents, null);
+        }
+        List<BlockchainDocument> page = documents.subList(0, limit);
+        return new DocumentPage(page, page.get(limit - 1).getSequence());
+    }
+
+    /**
+     * Throws if the blockchain is not valid; checked once before an export or stream starts.
+     */
+    public void requireValidChain() {
+        if (!isBlockchainValid()) {
+            logger.error("Blockchain validation failed. Cannot retrieve documents.");
+            throw new RuntimeException("Blockchain validation failed. Cannot retrieve documents.");
+        }
+    }
+
+    /**
+     * Stream all documents in sequence order through the reactive driver, which
+     * fetches the next cursor batch only as the client consumes the previous one.
+     * Call {@link #requireValidChain()} first.
+     *
+     * @param after only documents past this sequence, for resuming a stream; null for all
+     */
+    public Flux<BlockchainDocument> streamAllDocuments(Integer after) {
+        return timedStream("all", new Criteria(), after);
+    }
+
+    /**
+     * Stream documents by dataType in sequence order; see {@link #streamAllDocuments(Integer)}.
+     */
+    public Flux<BlockchainDocument> streamDocumentsByDataType(String dataType, Integer after) {
+        return timedStream("dataType", Criteria.where("data.dataType").is(dataType), after);
+    }
+
+    /**
+     * Stream documents by identifier in sequence order; see {@link #streamAllDocuments(Integer)}.
+     */
+    public Flux<BlockchainDocument> streamDocumentsByIdentifier(String identifier, Integer after) {
+        return timedStream("identifier", Criteria.where("data.identifier").is(identifier), after);
+    }
+
+    private Flux<BlockchainDocument> timedStream(String queryName, Criteria criteria, Integer after) {
+        if (after != null) {
+            criteria = criteria.and("sequence").gt(after);
+        }
+        Query query = new Query(criteria)
+                .with(Sort.by(Sort.Direction.ASC, "sequence"))
+                .cursorBatchSize(CURSOR_BATCH_SIZE);
+        return Flux.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return reactiveMongoTemplate.find(query, BlockchainDocument.class)
+                    .doFinally(signal -> sample.stop(Timer.builder("documents.stream")
+                            .description("Reactive document streams, from subscription to completion or cancel")
+                            .tag("query", queryName)
+                            .tag("result", signal == SignalType.CANCEL ? "cancel"
+                                    : signal == SignalType.ON_ERROR ? "error" : "complete")
+                            .register(meterRegistry)));
+        });
+    }
+
+    /**
+     * Stream documents in sequence order as NDJSON, one JSON document per line.
+     * Documents come from a Mongo cursor, so only one cursor batch is held at a time.
+     *
+     * @param fromSequence the first sequence to export, for resuming an interrupted export
+     * @param out where the lines are written; not closed
+     * @return the number of documents written
+     */
+    public long exportDocuments(int fromSequence, OutputStream out) throws IOException {
+        logger.info("Exporting documents from sequence {}", fromSequence);
+        Query query = new Query(Criteria.where("sequence").gte(fromSequence))
+                .with(Sort.by(Sort.Direction.ASC, "sequence"))
+                .cursorBatchSize(CURSOR_BATCH_SIZE);
+        ObjectWriter writer = objectMapper.writerFor(BlockchainDocument.class);
+        long exported = 0;
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+             CloseableIterator<BlockchainDocument> documents = mongoTemplate.stream(query, BlockchainDocument.class)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            while (documents.hasNext()) {
+                writer.writeValue(generator, documents.next());
+                generator.writeRaw('\n');
+                if (++exported % CURSOR_BATCH_SIZE == 0) {
+                    generator.flush();
+                }
+            }
+        }
+        logger.info("Exported {} documents from sequence {}", exported, fromSequence);
+        return exported;
     }
-}
\ No newline at end of file
+}
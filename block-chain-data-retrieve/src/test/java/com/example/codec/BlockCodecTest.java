@@ -0,0 +1,175 @@
+package com.example.codec;
+
+import com.example.model.BlockchainDocument;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BlockCodecTest {
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    /**
+     * Two blocks as encoded by the block-chain service's BlockCodec; this copy must
+     * keep reading (and writing) exactly these bytes.
+     */
+    private static final String SERVED_STREAM = ""
+            + "424c4b31020141d999a794e00000010c0123456789abcdef012345670120111111111111111111111111111111111111"
+            + "111111111111111111111111111101200000000000000000000000000000000000000000000000000000000000000000"
+            + "03ababababababababababababababababababababababababababababababababababababababababababababababab"
+            + "ababababababababababababababababab0120cdcdcdcdcdcdcdcdcdcdcdcdcdcdcdcdcdcdcdcdcdcdcdcdcdcdcdcdcd"
+            + "cdcdcd0705146964656e7469666965720509747275636b5f3130311064617461547970650503677073066c617404403c"
+            + "9c28f5c28f5c066c6f6e0440534ccccccccccd1274696d657374616d700441d999a794e000000241d999a79520000000"
+            + "0120222222222222222222222222222222222222222222222222222222222222222205020f6e6f742d612d7369676e61"
+            + "7475726504000705010509747275636b5f3130320305036770730a636f756e7403050874616773060305016100020904"
+            + "41d999a795200000";
+
+    private final Random random = new Random(7);
+    private final String verifyKey = HEX.formatHex(randomBytes(32));
+
+    @Test
+    void roundTripsChainHandlerBlocks() throws IOException {
+        List<BlockchainDocument> blocks = chain(50);
+        List<BlockchainDocument> decoded = decode(encode(blocks));
+        assertEquals(blocks.size(), decoded.size());
+        for (int i = 0; i < blocks.size(); i++) {
+            assertSameBlock(blocks.get(i), decoded.get(i));
+        }
+    }
+
+    @Test
+    void readsAndWritesTheServedFormat() throws IOException {
+        String key = "cd".repeat(32);
+        String firstHash = "11".repeat(32);
+        Map<String, Object> first = new LinkedHashMap<>();
+        first.put("identifier", "truck_101");
+        first.put("dataType", "gps");
+        first.put("lat", 28.61);
+        first.put("lon", 77.2);
+        first.put("timestamp", 1718001235.5);
+        Map<String, Object> second = new LinkedHashMap<>();
+        second.put("identifier", "truck_102");
+        second.put("dataType", "gps");
+        second.put("count", -3);
+        second.put("tags", Arrays.asList("a", null, true));
+        second.put("timestamp", 1718001236.5);
+        List<BlockchainDocument> expected = List.of(
+                new BlockchainDocument("0123456789abcdef01234567", first, firstHash,
+                        "ab".repeat(64) + HEX.formatHex(firstHash.getBytes(StandardCharsets.US_ASCII)), key,
+                        "0".repeat(64), 1718001235.5, 1),
+                new BlockchainDocument(null, second, "22".repeat(32), "not-a-signature", key, firstHash,
+                        1718001236.5, 2));
+
+        List<BlockchainDocument> decoded = decode(HEX.parseHex(SERVED_STREAM));
+        assertEquals(expected.size(), decoded.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSameBlock(expected.get(i), decoded.get(i));
+        }
+        assertArrayEquals(HEX.parseHex(SERVED_STREAM), encode(expected));
+    }
+
+    @Test
+    void keepsFieldsThatAreNotHex() throws IOException {
+        BlockchainDocument odd = new BlockchainDocument("TAMPERED", "Blockchain has been tampered with!", null,
+                "not-a-signature", "ABCDEF", "0".repeat(64), 0, 0);
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("big", new BigInteger("123456789012345678901234567890"));
+        data.put("long", 1L << 40);
+        data.put("negative", -5);
+        data.put("nested", Arrays.asList(null, false, 1.5, List.of("é")));
+        BlockchainDocument values = new BlockchainDocument(null, data, "ab", "ab", null, "ab", 1.25, 3);
+
+        List<BlockchainDocument> decoded = decode(encode(List.of(odd, values)));
+        assertEquals("TAMPERED", decoded.get(0).getId());
+        assertEquals("Blockchain has been tampered with!", decoded.get(0).getData());
+        assertNull(decoded.get(0).getHash());
+        assertEquals("not-a-signature", decoded.get(0).getSignature());
+        assertEquals("ABCDEF", decoded.get(0).getVerifyKey());
+        assertNull(decoded.get(1).getId());
+        assertNull(decoded.get(1).getVerifyKey());
+        assertEquals(data, decoded.get(1).getData());
+    }
+
+    @Test
+    void isAtLeastThreeTimesSmallerThanJson() throws IOException {
+        List<BlockchainDocument> blocks = chain(200);
+        int json = new ObjectMapper().writeValueAsBytes(blocks).length;
+        int binary = encode(blocks).length;
+        assertTrue(json >= 3 * binary, "json " + json + " bytes, binary " + binary + " bytes");
+    }
+
+    @Test
+    void rejectsOtherStreams() {
+        byte[] json = "[{\"hash\":\"00\"}]".getBytes(StandardCharsets.US_ASCII);
+        assertThrows(IOException.class, () -> decode(json));
+    }
+
+    private static void assertSameBlock(BlockchainDocument expected, BlockchainDocument actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getHash(), actual.getHash());
+        assertEquals(expected.getPrevHash(), actual.getPrevHash());
+        assertEquals(expected.getSignature(), actual.getSignature());
+        assertEquals(expected.getVerifyKey(), actual.getVerifyKey());
+        assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        assertEquals(expected.getSequence(), actual.getSequence());
+        assertEquals(expected.getData(), actual.getData());
+    }
+
+    /**
+     * Blocks shaped like chain_handler's: a GPS payload, the PyNaCl signed message
+     * as signature and one verify key for the whole chain.
+     */
+    private List<BlockchainDocument> chain(int length) {
+        List<BlockchainDocument> blocks = new ArrayList<>();
+        String prevHash = "0".repeat(64);
+        for (int sequence = 1; sequence <= length; sequence++) {
+            double timestamp = 1718001234.5678 + sequence;
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("identifier", "truck_" + (100 + sequence % 20));
+            data.put("dataType", "gps");
+            data.put("lat", 28.6 + random.nextDouble() / 10);
+            data.put("lon", 77.2 + random.nextDouble() / 10);
+            data.put("timestamp", timestamp);
+            String hash = HEX.formatHex(randomBytes(32));
+            String signature = HEX.formatHex(randomBytes(64)) + HEX.formatHex(hash.getBytes(StandardCharsets.US_ASCII));
+            blocks.add(new BlockchainDocument(HEX.formatHex(randomBytes(12)), data, hash, signature, verifyKey,
+                    prevHash, timestamp, sequence));
+            prevHash = hash;
+        }
+        return blocks;
+    }
+
+    private byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static byte[] encode(List<BlockchainDocument> blocks) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BlockCodec.encode(blocks, out);
+        return out.toByteArray();
+    }
+
+    private static List<BlockchainDocument> decode(byte[] bytes) throws IOException {
+        return BlockCodec.decode(new ByteArrayInputStream(bytes));
+    }
+}
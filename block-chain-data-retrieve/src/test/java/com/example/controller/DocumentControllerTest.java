@@ -0,0 +1,90 @@
+package com.example.controller;
+
+import com.example.dto.DocumentPage;
+import com.example.model.BlockchainDocument;
+import com.example.service.DocumentService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Lookups without limit= return everything up to the unpaged maximum, as they did
+ * before paging; explicit limits are paged and bounded by the maximum page size.
+ */
+class DocumentControllerTest {
+
+    private final DocumentService documentService = mock(DocumentService.class);
+    private DocumentController controller;
+
+    @BeforeEach
+    void setUp() {
+        controller = new DocumentController(documentService);
+        ReflectionTestUtils.setField(controller, "unpagedMaxSize", 10_000);
+        ReflectionTestUtils.setField(controller, "maxPageSize", 1000);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/documents");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void withoutLimitEveryDocumentIsReturned() {
+        DocumentPage all = new DocumentPage(List.of(document(1), document(2), document(3)), null);
+        when(documentService.fetchAllDocuments(null, 10_000)).thenReturn(all);
+        when(documentService.fetchDocumentsByDataType("reading", null, 10_000)).thenReturn(all);
+        when(documentService.fetchDocumentsByIdentifier("alice", null, 10_000)).thenReturn(all);
+
+        assertEquals(all.getDocuments(), controller.getAllDocuments(null, null).getBody());
+        assertEquals(all.getDocuments(), controller.getDocumentsByDataType("reading", null, null).getBody());
+        assertEquals(all.getDocuments(), controller.getDocumentsByIdentifier("alice", null, null).getBody());
+    }
+
+    @Test
+    void beyondTheUnpagedMaximumTheRestIsLinked() {
+        ReflectionTestUtils.setField(controller, "unpagedMaxSize", 2);
+        when(documentService.fetchAllDocuments(null, 2))
+                .thenReturn(new DocumentPage(List.of(document(1), document(2)), 2));
+
+        ResponseEntity<?> response = controller.getAllDocuments(null, null);
+        assertEquals("2", response.getHeaders().getFirst("X-Next-Cursor"));
+    }
+
+    @Test
+    void explicitLimitIsPagedAndBounded() {
+        when(documentService.fetchAllDocuments(any(), anyInt())).thenReturn(new DocumentPage(List.of(document(1)), null));
+
+        ResponseEntity<?> response = controller.getAllDocuments(1500, 500);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNull(response.getHeaders().getFirst("X-Next-Cursor"));
+        verify(documentService).fetchAllDocuments(1500, 500);
+
+        ResponseEntity<?> tooLarge = controller.getAllDocuments(null, 1001);
+        assertEquals(HttpStatus.BAD_REQUEST, tooLarge.getStatusCode());
+        assertEquals("limit must be between 1 and 1000", ((Map<?, ?>) tooLarge.getBody()).get("message"));
+    }
+
+    private static BlockchainDocument document(int sequence) {
+        return new BlockchainDocument("id-" + sequence, Map.of("identifier", "alice", "dataType", "reading"),
+                "ab".repeat(32), "cd".repeat(96), "ef".repeat(32), "01".repeat(32), 1_718_000_000.0 + sequence, sequence);
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * One verification per tip however many reads arrive, a new one when the tip
+ * moves, nothing kept from a failed one, and a stale verdict re-verified in
+ * the background.
+ */
+class ChainVerificationStateTest {
+
+    private ChainVerificationState state;
+    private final AtomicInteger verifications = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        state = new ChainVerificationState(new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        state.stop();
+    }
+
+    @Test
+    void concurrentReadsAtOneTipShareOneVerification() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        BooleanSupplier slow = counted(() -> {
+            try {
+                return release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        int readers = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(readers);
+        try {
+            List<Future<Boolean>> reads = new ArrayList<>();
+            for (int i = 0; i < readers; i++) {
+                reads.add(executor.submit(() -> state.isValid(5, "tip", slow)));
+            }
+            // Let every reader reach the running verification before it finishes
+            Thread.sleep(200);
+            release.countDown();
+            for (Future<Boolean> read : reads) {
+                assertTrue(read.get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(1, verifications.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void movedTipIsVerifiedAgain() {
+        assertTrue(state.isValid(5, "a", counted(() -> true)));
+        assertTrue(state.isValid(5, "a", counted(() -> true)));
+        assertEquals(1, verifications.get());
+
+        assertFalse(state.isValid(6, "b", counted(() -> false)));
+        assertEquals(2, verifications.get());
+    }
+
+    @Test
+    void failedVerificationIsNotReused() {
+        assertThrows(IllegalStateException.class, () -> state.isValid(5, "a", counted(() -> {
+            throw new IllegalStateException("chain_handler unreachable");
+        })));
+
+        assertTrue(state.isValid(5, "a", counted(() -> true)));
+        assertEquals(2, verifications.get());
+    }
+
+    @Test
+    void staleVerdictIsRecheckedAndCanTurnInvalid() throws InterruptedException {
+        ReflectionTestUtils.setField(state, "recheckIntervalMillis", 20L);
+        assertTrue(state.isValid(5, "a", counted(() -> true)));
+        Thread.sleep(50);
+
+        // Tampered without moving the tip: the stale verdict is served while the recheck runs
+        BooleanSupplier tampered = counted(() -> false);
+        assertTrue(state.isValid(5, "a", tampered));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        boolean valid = true;
+        while (valid && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            valid = state.isValid(5, "a", tampered);
+        }
+        assertFalse(valid);
+    }
+
+    @Test
+    void freshVerdictIsNotRechecked() throws InterruptedException {
+        ReflectionTestUtils.setField(state, "recheckIntervalMillis", 60_000L);
+        assertTrue(state.isValid(5, "a", counted(() -> true)));
+        assertTrue(state.isValid(5, "a", counted(() -> false)));
+        Thread.sleep(50);
+        assertTrue(state.isValid(5, "a", counted(() -> false)));
+        assertEquals(1, verifications.get());
+    }
+
+    private BooleanSupplier counted(BooleanSupplier verify) {
+        return () -> {
+            verifications.incrementAndGet();
+            return verify.getAsBoolean();
+        };
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.service;
+
+import com.example.dto.DocumentPage;
+import com.example.model.BlockchainDocument;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Full identifier pages outlive tip changes, the last page does not, and the
+ * cache stays within its byte budget.
+ */
+class DocumentCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void fullPageIsKeptAcrossTips() {
+        DocumentCache cache = cache(1 << 20);
+        DocumentPage full = new DocumentPage(List.of(document(1), document(2)), 2);
+
+        assertSame(full, cache.getByIdentifier("alice", null, 2, 10, counted(() -> full)));
+        // Blocks appended after the page cannot change it
+        assertSame(full, cache.getByIdentifier("alice", null, 2, 11, counted(() -> page(1, 2, 3))));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void lastPageIsReloadedOnceTheTipMoves() {
+        DocumentCache cache = cache(1 << 20);
+        DocumentPage last = new DocumentPage(List.of(document(3)), null);
+
+        assertSame(last, cache.getByIdentifier("alice", 2, 2, 10, counted(() -> last)));
+        assertSame(last, cache.getByIdentifier("alice", 2, 2, 10, counted(() -> page(3, 4))));
+        assertEquals(1, loads.get());
+
+        // A new block for the identifier was appended at sequence 11
+        DocumentPage grown = new DocumentPage(List.of(document(3), document(11)), null);
+        assertSame(grown, cache.getByIdentifier("alice", 2, 2, 11, counted(() -> grown)));
+        assertSame(grown, cache.getByIdentifier("alice", 2, 2, 11, counted(() -> page(3))));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void missingDocumentIsNotCached() {
+        DocumentCache cache = cache(1 << 20);
+        assertTrue(cache.getById("a", counted(Optional::empty)).isEmpty());
+        BlockchainDocument written = document(1);
+        assertSame(written, cache.getById("a", counted(() -> Optional.of(written))).orElseThrow());
+        assertSame(written, cache.getById("a", counted(Optional::empty)).orElseThrow());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void weightStaysWithinTheBound() {
+        long maxWeight = 8 * 1024;
+        DocumentCache cache = cache(maxWeight);
+        for (int sequence = 1; sequence <= 200; sequence++) {
+            BlockchainDocument document = document(sequence);
+            cache.getById("id-" + sequence, () -> Optional.of(document));
+            cache.getByIdentifier("id-" + sequence, null, 1, sequence, () -> new DocumentPage(List.of(document), null));
+        }
+
+        @SuppressWarnings("unchecked")
+        Cache<Object, Object> entries = (Cache<Object, Object>) ReflectionTestUtils.getField(cache, "cache");
+        entries.cleanUp();
+        long weight = entries.policy().eviction().orElseThrow().weightedSize().orElseThrow();
+        assertTrue(weight > 0 && weight <= maxWeight, "weighted size " + weight);
+        assertTrue(entries.estimatedSize() < 400, "entries " + entries.estimatedSize());
+    }
+
+    private static DocumentCache cache(long maxWeightBytes) {
+        return new DocumentCache(new ObjectMapper(), new SimpleMeterRegistry(), maxWeightBytes);
+    }
+
+    private <T> Supplier<T> counted(Supplier<T> load) {
+        return () -> {
+            loads.incrementAndGet();
+            return load.get();
+        };
+    }
+
+    private static DocumentPage page(int... sequences) {
+        BlockchainDocument[] documents = new BlockchainDocument[sequences.length];
+        for (int i = 0; i < sequences.length; i++) {
+            documents[i] = document(sequences[i]);
+        }
+        return new DocumentPage(List.of(documents), null);
+    }
+
+    private static BlockchainDocument document(int sequence) {
+        return new BlockchainDocument("id-" + sequence, Map.of("identifier", "alice", "n", sequence),
+                "ab".repeat(32), "cd".repeat(96), "ef".repeat(32), "01".repeat(32), 1_718_000_000.0 + sequence, sequence);
+    }
+}
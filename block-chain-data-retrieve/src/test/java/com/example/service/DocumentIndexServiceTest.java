@@ -0,0 +1,95 @@
+package com.example.service;
+
+import com.example.model.BlockchainDocument;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Missing indexes are created, and an index block-chain already made on the same
+ * keys, like the ledger's unique sequence index, is left as it is.
+ */
+class DocumentIndexServiceTest {
+
+    private final MongoServer server = new MongoServer(new MemoryBackend());
+    private MongoClient client;
+    private MongoTemplate mongoTemplate;
+    private DocumentIndexService indexService;
+
+    @BeforeEach
+    void setUp() {
+        client = MongoClients.create(server.bindAndGetConnectionString());
+        mongoTemplate = new MongoTemplate(client, "secure_db");
+        mongoTemplate.insert(new BlockchainDocument("a", Map.of("identifier", "alice", "dataType", "reading"),
+                "ab".repeat(32), "cd".repeat(96), "ef".repeat(32), "01".repeat(32), 1_718_000_000.0, 1));
+        indexService = new DocumentIndexService(mongoTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        server.shutdownNow();
+    }
+
+    @Test
+    void createsTheMissingIndexes() {
+        indexService.ensureIndexes();
+
+        List<IndexInfo> indexes = indexOps().getIndexInfo();
+        for (Index required : DocumentIndexService.requiredIndexes()) {
+            assertTrue(indexes.stream().anyMatch(info -> keysOf(info).equals(required.getIndexKeys())),
+                    "missing " + required.getIndexKeys().toJson());
+        }
+        assertFalse(sequenceIndex().isUnique());
+    }
+
+    @Test
+    void keepsTheLedgersUniqueSequenceIndex() {
+        // As LedgerEngine creates it when block-chain loads
+        String name = indexOps().ensureIndex(new Index("sequence", Sort.Direction.ASC).unique());
+
+        indexService.ensureIndexes();
+        indexService.ensureIndexes();
+
+        IndexInfo sequence = sequenceIndex();
+        assertEquals(name, sequence.getName());
+        assertTrue(sequence.isUnique());
+        // _id plus the four required ones, with nothing duplicated
+        assertEquals(DocumentIndexService.requiredIndexes().size() + 1, indexOps().getIndexInfo().size());
+    }
+
+    private IndexOperations indexOps() {
+        return mongoTemplate.indexOps(BlockchainDocument.class);
+    }
+
+    private IndexInfo sequenceIndex() {
+        return indexOps().getIndexInfo().stream()
+                .filter(info -> keysOf(info).equals(new Document("sequence", 1)))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static Document keysOf(IndexInfo info) {
+        Document keys = new Document();
+        info.getIndexFields().forEach(field -> keys.put(field.getKey(),
+                field.getDirection() == Sort.Direction.DESC ? -1 : 1));
+        return keys;
+    }
+}
@@ -0,0 +1,258 @@
+package com.example.loadtest;
+
+import com.example.blockchain.ledger.CanonicalJson;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Sorts;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.bouncycastle.crypto.params.Ed25519PrivateKeyParameters;
+import org.bouncycastle.crypto.signers.Ed25519Signer;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stand-in for the FastAPI chain_handler on :8011. It serves POST /store_data and
+ * GET /check_chain_integrity with the same request and response shapes, and
+ * appends real blocks to secure_db.documents: hashed like generate_hash, signed
+ * with a signing_key.bin it creates, so block-chain's native engine can carry on
+ * the same chain. Latency, failures and the cost of the integrity walk are injected
+ * instead of reproduced.
+ */
+final class ChainHandlerStandIn implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ChainHandlerStandIn.class);
+
+    private static final String GENESIS_PREV_HASH = "0".repeat(64);
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final LoadTestOptions options;
+    private final MongoClient client;
+    private final MongoCollection<Document> documents;
+    private final Ed25519PrivateKeyParameters signingKey;
+    private final String verifyKey;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ExecutorService workers;
+    private HttpServer server;
+
+    ChainHandlerStandIn(LoadTestOptions options, String mongoUri) throws IOException {
+        this.options = options;
+        this.client = MongoClients.create(mongoUri);
+        this.documents = client.getDatabase("secure_db").getCollection("documents");
+        this.signingKey = loadOrCreateKey(options.workDir().resolve("signing_key.bin"));
+        this.verifyKey = HEX.formatHex(signingKey.generatePublicKey().getEncoded());
+        this.workers = Executors.newFixedThreadPool(options.chainHandlerWorkers());
+    }
+
+    void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(options.chainHandlerPort()), 256);
+        server.createContext("/store_data", this::storeData);
+        server.createContext("/check_chain_integrity", this::checkChainIntegrity);
+        server.setExecutor(workers);
+        server.start();
+        logger.info("chain_handler stand-in listening on :{} ({} worker(s), {} ms + up to {} ms latency, "
+                        + "failure rate {})", options.chainHandlerPort(), options.chainHandlerWorkers(),
+                options.chainHandlerLatency().toMillis(), options.chainHandlerJitter().toMillis(),
+                options.chainHandlerFailureRate());
+    }
+
+    /**
+     * Insert the genesis block if the chain is empty, then append GPS blocks until
+     * it holds the given number of blocks after genesis.
+     */
+    synchronized void seed(int blocks, int identifiers) {
+        if (documents.countDocuments() == 0) {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("message", "Genesis block");
+            payload.put("timestamp", "2025-03-03T00:00:00");
+            Map<String, Object> genesis = new LinkedHashMap<>();
+            genesis.put("dataType", "genesis");
+            genesis.put("identifier", "chain_start");
+            genesis.put("payload", payload);
+            documents.insertOne(block(genesis, GENESIS_PREV_HASH, 1));
+        }
+        Document last = lastDocument();
+        List<Document> batch = new ArrayList<>();
+        for (int sequence = last.getInteger("sequence") + 1; sequence <= blocks + 1; sequence++) {
+            Map<String, Object> data = Payloads.payload(Payloads.dataType(sequence),
+                    Payloads.identifier(sequence % identifiers));
+            data.put("timestamp", now());
+            Document block = block(data, last.getString("hash"), sequence);
+            batch.add(block);
+            last = block;
+            if (batch.size() == 500) {
+                documents.insertMany(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            documents.insertMany(batch);
+        }
+        logger.info("Chain holds {} blocks", documents.countDocuments());
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+        }
+        workers.shutdownNow();
+        client.close();
+    }
+
+    private void storeData(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, Map.of("detail", "Method Not Allowed"));
+                return;
+            }
+            if (injectFault(exchange)) {
+                return;
+            }
+            Map<String, Object> data;
+            try (InputStream body = exchange.getRequestBody()) {
+                data = objectMapper.readValue(body, new TypeReference<LinkedHashMap<String, Object>>() {});
+            }
+            respond(exchange, 200, append(data));
+        }
+    }
+
+    /**
+     * add_data: stamp the payload, then chain it onto the last block.
+     */
+    private synchronized Map<String, Object> append(Map<String, Object> data) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        try {
+            data.put("timestamp", now());
+            Document last = lastDocument();
+            if (last == null) {
+                response.put("message", "Data not added integrity error");
+                return response;
+            }
+            documents.insertOne(block(data, last.getString("hash"), last.getInteger("sequence") + 1));
+            response.put("message", "Data added successfully");
+            response.put("data", data);
+        } catch (RuntimeException e) {
+            logger.warn("store_data failed: {}", e.getMessage());
+            response.put("message", "Error: " + e.getMessage());
+        }
+        return response;
+    }
+
+    private void checkChainIntegrity(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (injectFault(exchange)) {
+                return;
+            }
+            long blocks = documents.countDocuments();
+            // verify_chain_integrity walks every block, so its cost grows with the chain
+            sleepMicros(blocks * options.chainHandlerIntegrityMicrosPerBlock());
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("Integrity", blocks > 0);
+            response.put("message", blocks > 0 ? "Chain integrity verified" : "Chain integrity not verified");
+            respond(exchange, 200, response);
+        }
+    }
+
+    /**
+     * Apply the configured latency, and answer with a 500 for the configured share of
+     * requests, as uvicorn does for an unhandled exception.
+     *
+     * @return whether the request was failed
+     */
+    private boolean injectFault(HttpExchange exchange) throws IOException {
+        long jitter = options.chainHandlerJitter().toNanos();
+        long delay = options.chainHandlerLatency().toNanos()
+                + (jitter > 0 ? ThreadLocalRandom.current().nextLong(jitter) : 0);
+        sleepMicros(TimeUnit.NANOSECONDS.toMicros(delay));
+        if (ThreadLocalRandom.current().nextDouble() >= options.chainHandlerFailureRate()) {
+            return false;
+        }
+        byte[] body = "Internal Server Error".getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(500, body.length);
+        exchange.getResponseBody().write(body);
+        return true;
+    }
+
+    private Document block(Map<String, Object> data, String prevHash, int sequence) {
+        String hash = CanonicalJson.hash(data);
+        return new Document("data", new Document(data))
+                .append("hash", hash)
+                .append("signature", sign(hash))
+                .append("verify_key", verifyKey)
+                .append("prev_hash", prevHash)
+                .append("timestamp", now())
+                .append("sequence", sequence);
+    }
+
+    /**
+     * PyNaCl's SigningKey.sign(): signature followed by the signed message, hex encoded.
+     */
+    private String sign(String hash) {
+        byte[] message = hash.getBytes(StandardCharsets.US_ASCII);
+        Ed25519Signer signer = new Ed25519Signer();
+        signer.init(true, signingKey);
+        signer.update(message, 0, message.length);
+        return HEX.formatHex(signer.generateSignature()) + HEX.formatHex(message);
+    }
+
+    private Document lastDocument() {
+        return documents.find().sort(Sorts.descending("sequence")).limit(1).first();
+    }
+
+    private void respond(HttpExchange exchange, int status, Map<String, Object> body) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, json.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(json);
+        }
+    }
+
+    private static Ed25519PrivateKeyParameters loadOrCreateKey(Path keyFile) throws IOException {
+        if (!Files.exists(keyFile)) {
+            byte[] seed = new byte[Ed25519PrivateKeyParameters.KEY_SIZE];
+            new SecureRandom().nextBytes(seed);
+            Files.createDirectories(keyFile.getParent());
+            Files.write(keyFile, seed);
+        }
+        return new Ed25519PrivateKeyParameters(Files.readAllBytes(keyFile), 0);
+    }
+
+    private static double now() {
+        return System.currentTimeMillis() / 1000.0;
+    }
+
+    private static void sleepMicros(long micros) {
+        if (micros <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.MICROSECONDS.sleep(micros);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
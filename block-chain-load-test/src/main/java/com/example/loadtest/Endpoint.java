@@ -0,0 +1,30 @@
+package com.example.loadtest;
+
+/**
+ * The gateway routes the load is spread over. Each is reported separately.
+ */
+enum Endpoint {
+    LOGIN("login", "POST /auth/login"),
+    STORE("store", "POST /blockchain/store"),
+    BY_IDENTIFIER("identifier", "GET /documents/identifier/{identifier}"),
+    BY_DATA_TYPE("dataType", "GET /documents/type/{dataType}");
+
+    private final String key;
+    private final String route;
+
+    Endpoint(String key, String route) {
+        this.key = key;
+        this.route = route;
+    }
+
+    /**
+     * Name used in the mix option.
+     */
+    String key() {
+        return key;
+    }
+
+    String route() {
+        return route;
+    }
+}
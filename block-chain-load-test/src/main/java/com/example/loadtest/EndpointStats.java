@@ -0,0 +1,64 @@
+package com.example.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencies and outcomes of one endpoint. Each virtual user keeps its own and
+ * they are merged once the run is over, so recording takes no locks.
+ */
+final class EndpointStats {
+
+    // Microseconds, up to an hour, three significant digits
+    private final Histogram latencies = new Histogram(TimeUnit.HOURS.toMicros(1), 3);
+    private final Map<String, Long> outcomes = new TreeMap<>();
+    private long errors;
+
+    /**
+     * @param outcome the HTTP status, or the kind of failure when there was no response
+     */
+    void record(long latencyNanos, String outcome, boolean error) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(latencyNanos);
+        latencies.recordValue(Math.min(micros, latencies.getHighestTrackableValue()));
+        outcomes.merge(outcome, 1L, Long::sum);
+        if (error) {
+            errors++;
+        }
+    }
+
+    void add(EndpointStats other) {
+        latencies.add(other.latencies);
+        other.outcomes.forEach((outcome, count) -> outcomes.merge(outcome, count, Long::sum));
+        errors += other.errors;
+    }
+
+    long requests() {
+        return latencies.getTotalCount();
+    }
+
+    long errors() {
+        return errors;
+    }
+
+    double errorRate() {
+        return requests() == 0 ? 0 : (double) errors / requests();
+    }
+
+    /**
+     * Latency at the given percentile, in milliseconds.
+     */
+    double percentileMillis(double percentile) {
+        return requests() == 0 ? 0 : latencies.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    double maxMillis() {
+        return requests() == 0 ? 0 : latencies.getMaxValue() / 1000.0;
+    }
+
+    Map<String, Long> outcomes() {
+        return outcomes;
+    }
+}
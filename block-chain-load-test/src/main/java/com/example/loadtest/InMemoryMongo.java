@@ -0,0 +1,36 @@
+package com.example.loadtest;
+
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * MongoDB stand-in: an in-memory server speaking the wire protocol, so auth,
+ * block-chain and data-retrieve run unchanged against it. Everything is gone
+ * when the run ends.
+ */
+final class InMemoryMongo implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryMongo.class);
+
+    private final MongoServer server = new MongoServer(new MemoryBackend());
+    private final int port;
+
+    InMemoryMongo(int port) {
+        this.port = port;
+    }
+
+    void start() {
+        server.bind("localhost", port);
+        logger.info("In-memory MongoDB listening on :{}", port);
+    }
+
+    String uri(String database) {
+        return "mongodb://localhost:" + port + "/" + database;
+    }
+
+    @Override
+    public void close() {
+        server.shutdownNow();
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Throughput, p50/p99/p999 latency and error rate per endpoint, as a table
+ * and as JSON for comparing runs.
+ */
+final class LoadReport {
+
+    private final Map<Endpoint, EndpointStats> endpoints;
+    private final EndpointStats total = new EndpointStats();
+    private final double seconds;
+    private final Map<String, String> options;
+
+    LoadReport(Map<Endpoint, EndpointStats> endpoints, Duration measured, Map<String, String> options) {
+        this.endpoints = endpoints;
+        this.seconds = measured.toNanos() / 1e9;
+        this.options = options;
+        endpoints.values().forEach(total::add);
+    }
+
+    void print(PrintStream out) {
+        String format = "%-42s %9s %9s %8s %9s %9s %9s %9s%n";
+        out.println();
+        out.printf(format, "endpoint", "requests", "req/s", "errors", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        endpoints.forEach((endpoint, stats) -> out.printf(format, row(endpoint.route(), stats)));
+        out.printf(format, row("total", total));
+        out.println();
+        endpoints.forEach((endpoint, stats) -> out.printf("%-42s %s%n", endpoint.route(), stats.outcomes()));
+    }
+
+    void write(Path file) throws IOException {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("measuredSeconds", seconds);
+        report.put("options", options);
+        List<Map<String, Object>> rows = new ArrayList<>();
+        endpoints.forEach((endpoint, stats) -> rows.add(json(endpoint.route(), stats)));
+        report.put("endpoints", rows);
+        report.put("total", json("total", total));
+        if (file.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), report);
+    }
+
+    private Object[] row(String route, EndpointStats stats) {
+        return new Object[]{
+                route,
+                stats.requests(),
+                String.format("%.1f", stats.requests() / seconds),
+                String.format("%.2f%%", stats.errorRate() * 100),
+                String.format("%.1f", stats.percentileMillis(50)),
+                String.format("%.1f", stats.percentileMillis(99)),
+                String.format("%.1f", stats.percentileMillis(99.9)),
+                String.format("%.1f", stats.maxMillis())
+        };
+    }
+
+    private Map<String, Object> json(String route, EndpointStats stats) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("endpoint", route);
+        row.put("requests", stats.requests());
+        row.put("throughput", stats.requests() / seconds);
+        row.put("errors", stats.errors());
+        row.put("errorRate", stats.errorRate());
+        row.put("p50Ms", stats.percentileMillis(50));
+        row.put("p99Ms", stats.percentileMillis(99));
+        row.put("p999Ms", stats.percentileMillis(99.9));
+        row.put("maxMs", stats.maxMillis());
+        row.put("outcomes", stats.outcomes());
+        return row;
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.loadtest;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Load test settings, given as name=value arguments. Durations take an
+ * ms, s, m or h suffix; the mix is a list of endpoint=weight pairs.
+ */
+final class LoadTestOptions {
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("gateway", "http://localhost:8080");
+        DEFAULTS.put("duration", "60s");
+        DEFAULTS.put("warmup", "10s");
+        DEFAULTS.put("concurrency", "16");
+        DEFAULTS.put("rate", "0");
+        DEFAULTS.put("mix", "login=5,store=20,identifier=40,dataType=35");
+        DEFAULTS.put("identifiers", "20");
+        DEFAULTS.put("request-timeout", "30s");
+        DEFAULTS.put("username", "loadtest");
+        DEFAULTS.put("password", "loadtest-password");
+        DEFAULTS.put("stand-ins", "true");
+        DEFAULTS.put("mongo-port", "27017");
+        DEFAULTS.put("preload", "1000");
+        DEFAULTS.put("chain-handler-port", "8011");
+        DEFAULTS.put("chain-handler-workers", "1");
+        DEFAULTS.put("chain-handler-latency", "5ms");
+        DEFAULTS.put("chain-handler-jitter", "0ms");
+        DEFAULTS.put("chain-handler-failure-rate", "0");
+        DEFAULTS.put("chain-handler-integrity-us-per-block", "0");
+        DEFAULTS.put("launch", "false");
+        DEFAULTS.put("ledger-engine", "native");
+        DEFAULTS.put("repo-dir", "..");
+        DEFAULTS.put("mvn", "mvn");
+        DEFAULTS.put("startup-timeout", "5m");
+        DEFAULTS.put("service-log-level", "INFO");
+        DEFAULTS.put("work-dir", "target/load-test");
+        DEFAULTS.put("result", "target/load-test-result.json");
+    }
+
+    private static final String HELP = String.join(System.lineSeparator(),
+            "gateway                     base URL the load is sent to",
+            "duration, warmup            measured run time, and time before it whose results are dropped",
+            "concurrency                 virtual users, each logged in with its own token",
+            "rate                        total requests/s spread over the users (0 = as fast as they can go);",
+            "                            latency is then measured from each request's scheduled start",
+            "mix                         endpoint weights: login, store, identifier, dataType",
+            "identifiers                 number of trucks the payloads and queries spread over",
+            "request-timeout             per request; a timeout counts as an error",
+            "username, password          account registered and logged in before the run",
+            "stand-ins                   start the in-memory MongoDB and the chain_handler stand-in",
+            "mongo-port                  port of the in-memory MongoDB",
+            "preload                     blocks written to the chain before the run",
+            "chain-handler-port          port of the chain_handler stand-in (block-chain's fastapi engine expects 8011)",
+            "chain-handler-workers       requests it serves at once (1, like chain_handler's blocking handlers)",
+            "chain-handler-latency       added to each chain_handler request, plus up to chain-handler-jitter",
+            "chain-handler-failure-rate  fraction of chain_handler requests answered with a 500",
+            "chain-handler-integrity-us-per-block  integrity check cost per block in the chain",
+            "launch                      start auth, block-chain, data-retrieve and the gateway with mvn spring-boot:run",
+            "ledger-engine               block-chain's blockchain.ledger.engine when launched: native or fastapi",
+            "repo-dir, mvn               where the service modules are, and the Maven command used to start them",
+            "startup-timeout             how long to wait for the launched services",
+            "service-log-level           level for the loggers the services set to DEBUG/TRACE (empty keeps theirs)",
+            "work-dir                    signing key, ledger files and service logs",
+            "result                      JSON report file");
+
+    private final Map<String, String> values = new LinkedHashMap<>(DEFAULTS);
+    private final boolean help;
+
+    LoadTestOptions(String[] args) {
+        boolean helpRequested = false;
+        for (String arg : args) {
+            if (arg.equals("help") || arg.equals("-h") || arg.equals("--help")) {
+                helpRequested = true;
+                continue;
+            }
+            int eq = arg.indexOf('=');
+            String name = eq < 0 ? arg : arg.substring(0, eq);
+            if (eq < 0 || !DEFAULTS.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown option '" + arg + "', expected one of "
+                        + String.join(", ", DEFAULTS.keySet()));
+            }
+            values.put(name, arg.substring(eq + 1));
+        }
+        this.help = helpRequested;
+    }
+
+    static String usage() {
+        StringBuilder usage = new StringBuilder("Options (name=value):").append(System.lineSeparator());
+        usage.append(HELP).append(System.lineSeparator()).append(System.lineSeparator()).append("Defaults:");
+        DEFAULTS.forEach((name, value) -> usage.append(System.lineSeparator()).append("  ").append(name)
+                .append('=').append(value));
+        return usage.toString();
+    }
+
+    boolean help() {
+        return help;
+    }
+
+    String gateway() {
+        String gateway = values.get("gateway");
+        return gateway.endsWith("/") ? gateway.substring(0, gateway.length() - 1) : gateway;
+    }
+
+    Duration duration() {
+        return duration("duration");
+    }
+
+    Duration warmup() {
+        return duration("warmup");
+    }
+
+    int concurrency() {
+        return positive("concurrency");
+    }
+
+    double rate() {
+        return Double.parseDouble(values.get("rate"));
+    }
+
+    /**
+     * Relative weight of each endpoint; endpoints left out get none.
+     */
+    Map<Endpoint, Integer> mix() {
+        Map<Endpoint, Integer> mix = new EnumMap<>(Endpoint.class);
+        for (String entry : values.get("mix").split(",")) {
+            String[] pair = entry.trim().split("=");
+            Endpoint endpoint = Arrays.stream(Endpoint.values())
+                    .filter(candidate -> candidate.key().equals(pair[0].trim()))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown endpoint in mix: " + pair[0]));
+            mix.put(endpoint, pair.length > 1 ? Integer.parseInt(pair[1].trim()) : 1);
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("The mix needs at least one endpoint with a positive weight");
+        }
+        return mix;
+    }
+
+    int identifiers() {
+        return positive("identifiers");
+    }
+
+    Duration requestTimeout() {
+        return duration("request-timeout");
+    }
+
+    String username() {
+        return values.get("username");
+    }
+
+    String password() {
+        return values.get("password");
+    }
+
+    boolean standIns() {
+        return Boolean.parseBoolean(values.get("stand-ins"));
+    }
+
+    int mongoPort() {
+        return positive("mongo-port");
+    }
+
+    int preload() {
+        return Integer.parseInt(values.get("preload"));
+    }
+
+    int chainHandlerPort() {
+        return positive("chain-handler-port");
+    }
+
+    int chainHandlerWorkers() {
+        return positive("chain-handler-workers");
+    }
+
+    Duration chainHandlerLatency() {
+        return duration("chain-handler-latency");
+    }
+
+    Duration chainHandlerJitter() {
+        return duration("chain-handler-jitter");
+    }
+
+    double chainHandlerFailureRate() {
+        return Double.parseDouble(values.get("chain-handler-failure-rate"));
+    }
+
+    long chainHandlerIntegrityMicrosPerBlock() {
+        return Long.parseLong(values.get("chain-handler-integrity-us-per-block"));
+    }
+
+    boolean launch() {
+        return Boolean.parseBoolean(values.get("launch"));
+    }
+
+    String ledgerEngine() {
+        return values.get("ledger-engine");
+    }
+
+    Path repoDir() {
+        return Paths.get(values.get("repo-dir")).toAbsolutePath().normalize();
+    }
+
+    String mvn() {
+        return values.get("mvn");
+    }
+
+    Duration startupTimeout() {
+        return duration("startup-timeout");
+    }
+
+    String serviceLogLevel() {
+        return values.get("service-log-level").trim();
+    }
+
+    Path workDir() {
+        return Paths.get(values.get("work-dir")).toAbsolutePath().normalize();
+    }
+
+    Path result() {
+        return Paths.get(values.get("result"));
+    }
+
+    /**
+     * The settings of the run, for the report; the password is left out.
+     */
+    Map<String, String> asMap() {
+        Map<String, String> settings = new LinkedHashMap<>(values);
+        settings.remove("password");
+        return settings;
+    }
+
+    private int positive(String name) {
+        int value = Integer.parseInt(values.get(name));
+        if (value <= 0) {
+            throw new IllegalArgumentException(name + " must be positive");
+        }
+        return value;
+    }
+
+    private Duration duration(String name) {
+        String value = values.get(name).trim();
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        long amount = Long.parseLong(value.substring(0, value.length() - 1));
+        switch (value.charAt(value.length() - 1)) {
+            case 's':
+                return Duration.ofSeconds(amount);
+            case 'm':
+                return Duration.ofMinutes(amount);
+            case 'h':
+                return Duration.ofHours(amount);
+            default:
+                throw new IllegalArgumentException(name + " needs a ms, s, m or h suffix: " + value);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.loadtest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives the stack through the gateway: the JWT login flow, stores and the
+ * document queries, in the configured mix. By default it first starts the
+ * stand-ins for MongoDB and chain_handler, so a run needs nothing but the
+ * services; with launch=true it starts those too. Prints throughput, p50/p99/p999
+ * latency and error rate per endpoint and writes them as JSON.
+ */
+public final class LoadTestRunner {
+
+    static {
+        System.setProperty("org.slf4j.simpleLogger.showDateTime", "true");
+        System.setProperty("org.slf4j.simpleLogger.log.de.bwaldvogel", "warn");
+        System.setProperty("org.slf4j.simpleLogger.log.org.mongodb", "warn");
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadTestRunner.class);
+
+    private LoadTestRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        // exec:exec passes -Dload.args as a single argument
+        String[] arguments = Arrays.stream(args)
+                .flatMap(arg -> Arrays.stream(arg.trim().split("\\s+")))
+                .filter(arg -> !arg.isEmpty())
+                .toArray(String[]::new);
+        LoadTestOptions options = new LoadTestOptions(arguments);
+        if (options.help()) {
+            System.out.println(LoadTestOptions.usage());
+            return;
+        }
+
+        List<AutoCloseable> started = new ArrayList<>();
+        try {
+            if (options.standIns()) {
+                InMemoryMongo mongo = new InMemoryMongo(options.mongoPort());
+                mongo.start();
+                started.add(mongo);
+                ChainHandlerStandIn chainHandler = new ChainHandlerStandIn(options, mongo.uri("secure_db"));
+                started.add(chainHandler);
+                chainHandler.seed(options.preload(), options.identifiers());
+                chainHandler.start();
+            }
+            if (options.launch()) {
+                ServiceLauncher services = new ServiceLauncher(options);
+                started.add(services);
+                services.start();
+            }
+            run(options);
+        } finally {
+            for (int i = started.size() - 1; i >= 0; i--) {
+                started.get(i).close();
+            }
+        }
+    }
+
+    private static void run(LoadTestOptions options) throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        awaitAccount(options, client);
+
+        int concurrency = options.concurrency();
+        long interval = options.rate() > 0 ? (long) (concurrency * 1e9 / options.rate()) : 0;
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        List<VirtualUser> users = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            VirtualUser user = new VirtualUser(options, client, start, interval, interval * i / concurrency);
+            users.add(user);
+            Thread thread = new Thread(user, "virtual-user-" + i);
+            thread.setDaemon(true);
+            threads.add(thread);
+        }
+        logger.info("Running {} users against {} for {} after {} of warmup ({})", concurrency, options.gateway(),
+                options.duration(), options.warmup(),
+                interval > 0 ? options.rate() + " requests/s" : "closed loop");
+        threads.forEach(Thread::start);
+        long deadline = start + options.warmup().plus(options.duration()).plus(options.requestTimeout())
+                .plusSeconds(5).toNanos();
+        for (Thread thread : threads) {
+            thread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            thread.interrupt();
+        }
+
+        Map<Endpoint, EndpointStats> merged = new EnumMap<>(Endpoint.class);
+        for (Endpoint endpoint : options.mix().keySet()) {
+            EndpointStats stats = new EndpointStats();
+            users.forEach(user -> stats.add(user.stats().get(endpoint)));
+            merged.put(endpoint, stats);
+        }
+        LoadReport report = new LoadReport(merged, options.duration(), options.asMap());
+        report.print(System.out);
+        report.write(options.result());
+        logger.info("Wrote {}", options.result().toAbsolutePath());
+    }
+
+    /**
+     * Register the load test account, retrying until the gateway and the auth
+     * service answer (routes may still be resolving right after startup), then
+     * check that it can log in.
+     */
+    private static void awaitAccount(LoadTestOptions options, HttpClient client) throws InterruptedException {
+        long deadline = System.nanoTime() + options.startupTimeout().toNanos();
+        while (true) {
+            try {
+                int status = VirtualUser.register(options, client);
+                if (status == 200 || status == 400) {
+                    break;
+                }
+                logger.info("Registration answered {}, retrying", status);
+            } catch (IOException e) {
+                logger.info("Gateway not reachable yet: {}", e.toString());
+            }
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Could not register " + options.username() + " through "
+                        + options.gateway() + " within " + options.startupTimeout());
+            }
+            TimeUnit.SECONDS.sleep(2);
+        }
+        if (!VirtualUser.canLogIn(options, client)) {
+            throw new IllegalStateException("Login as " + options.username() + " failed; is the password right?");
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.loadtest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Payloads shaped like the trucks' traffic in chain_handler's insert_data.py.
+ * The identifiers and data types are the ones the query endpoints are asked for.
+ */
+final class Payloads {
+
+    static final String[] DATA_TYPES = {"gps", "temperature", "fuel"};
+
+    private Payloads() {
+    }
+
+    static String identifier(int index) {
+        return "truck_" + (100 + index);
+    }
+
+    static String dataType(int index) {
+        return DATA_TYPES[Math.floorMod(index, DATA_TYPES.length)];
+    }
+
+    /**
+     * A payload for /blockchain/store; chain_handler adds the timestamp.
+     */
+    static Map<String, Object> payload(String dataType, String identifier) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Map<String, Object> payload = new LinkedHashMap<>();
+        switch (dataType) {
+            case "temperature":
+                payload.put("celsius", Math.round((2 + random.nextDouble() * 6) * 10) / 10.0);
+                payload.put("zone", "reefer");
+                break;
+            case "fuel":
+                payload.put("litres", Math.round(random.nextDouble() * 4000) / 10.0);
+                payload.put("odometer", 180000 + random.nextInt(20000));
+                break;
+            default:
+                payload.put("latitude", 29.7041 + random.nextDouble() / 100);
+                payload.put("longitude", 78.1025 + random.nextDouble() / 100);
+                break;
+        }
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("dataType", dataType);
+        data.put("identifier", identifier);
+        data.put("payload", payload);
+        return data;
+    }
+}
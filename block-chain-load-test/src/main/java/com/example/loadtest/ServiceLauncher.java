@@ -0,0 +1,150 @@
+package com.example.loadtest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts the services behind the gateway with mvn spring-boot:run, wired to the
+ * stand-ins instead of Eureka, MongoDB and chain_handler: the gateway resolves its
+ * lb:// routes from a static service list, and every service points at the
+ * in-memory MongoDB. Each service logs to its own file in the work directory.
+ */
+final class ServiceLauncher implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ServiceLauncher.class);
+
+    private static final int AUTH_PORT = 8081;
+    private static final int DATA_RETRIEVE_PORT = 8084;
+    private static final int BLOCK_CHAIN_PORT = 8086;
+
+    // Loggers the services' own configuration turns up to DEBUG or TRACE
+    private static final String[] VERBOSE_LOGGERS = {
+            "org.springframework.security", "com.example", "com.example.auth", "com.example.gateway",
+            "org.springframework.cloud.gateway", "org.springframework.cloud.gateway.route",
+            "org.springframework.cloud.gateway.handler", "org.springframework.cloud.gateway.filter",
+            "org.springframework.cloud.loadbalancer", "org.springframework.cloud.netflix", "com.netflix.discovery"
+    };
+
+    private final LoadTestOptions options;
+    private final List<Process> processes = new ArrayList<>();
+
+    ServiceLauncher(LoadTestOptions options) {
+        this.options = options;
+    }
+
+    void start() throws IOException, InterruptedException {
+        Path work = options.workDir();
+        String mongo = "mongodb://localhost:" + options.mongoPort() + "/";
+        String chainHandler = "http://localhost:" + options.chainHandlerPort();
+
+        start("auth", "block-chain-auth", "com.example.auth.AuthApplication", AUTH_PORT,
+                "--spring.data.mongodb.uri=" + mongo + "auth_db");
+        start("block-chain", "block-chain", "com.example.blockchain.BlockChainApplication", BLOCK_CHAIN_PORT,
+                "--spring.data.mongodb.uri=" + mongo + "secure_db",
+                "--blockchain.ledger.engine=" + options.ledgerEngine(),
+                "--blockchain.ledger.signing-key-file=" + work.resolve("signing_key.bin"),
+                "--blockchain.ledger.tip-cache-file=" + work.resolve("last_hash_cache.bin"),
+                "--blockchain.ledger.wal-file=" + work.resolve("ledger.wal"),
+                "--blockchain.ledger.segment-dir=" + work.resolve("ledger-segments"));
+        start("data-retrieve", "block-chain-data-retrieve", "com.example.BlockChainDataRetrieveApplication",
+                DATA_RETRIEVE_PORT,
+                "--spring.data.mongodb.uri=" + mongo + "secure_db",
+                "--blockchain.verify.url=" + chainHandler + "/check_chain_integrity");
+        start("gateway", "block-chain-api-gateway", "com.example.gateway.BlockChainApiGatewayApplication",
+                gatewayPort(),
+                "--spring.cloud.discovery.client.simple.instances.block-chain[0].uri=http://localhost:"
+                        + BLOCK_CHAIN_PORT,
+                "--spring.cloud.discovery.client.simple.instances.auth-service[0].uri=http://localhost:" + AUTH_PORT,
+                "--spring.cloud.discovery.client.simple.instances.blockchain-service[0].uri=http://localhost:"
+                        + DATA_RETRIEVE_PORT);
+
+        long deadline = System.nanoTime() + options.startupTimeout().toNanos();
+        awaitPort("auth", AUTH_PORT, deadline);
+        awaitPort("block-chain", BLOCK_CHAIN_PORT, deadline);
+        awaitPort("data-retrieve", DATA_RETRIEVE_PORT, deadline);
+        awaitPort("gateway", gatewayPort(), deadline);
+    }
+
+    @Override
+    public void close() {
+        for (Process process : processes) {
+            // mvn forks the application, so stop the whole tree
+            process.descendants().forEach(ProcessHandle::destroy);
+            process.destroy();
+        }
+        for (Process process : processes) {
+            try {
+                if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                    process.descendants().forEach(ProcessHandle::destroyForcibly);
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void start(String name, String module, String mainClass, int port, String... properties)
+            throws IOException {
+        List<String> arguments = new ArrayList<>(List.of(properties));
+        arguments.add("--server.port=" + port);
+        arguments.add("--eureka.client.enabled=false");
+        if (!options.serviceLogLevel().isEmpty()) {
+            for (String verbose : VERBOSE_LOGGERS) {
+                arguments.add("--logging.level." + verbose + "=" + options.serviceLogLevel());
+            }
+        }
+        Path log = options.workDir().resolve("logs").resolve(name + ".log");
+        Files.createDirectories(log.getParent());
+        List<String> command = List.of(options.mvn(), "-q",
+                "-f", options.repoDir().resolve(module).resolve("pom.xml").toString(),
+                "spring-boot:run",
+                // spring-boot-starter-parent passes start-class as the plugin's mainClass
+                "-Dstart-class=" + mainClass,
+                "-Dspring-boot.run.arguments=" + String.join(" ", arguments));
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        processes.add(process);
+        logger.info("Starting {} on :{}, logging to {}", name, port, log);
+    }
+
+    private void awaitPort(String name, int port, long deadline) throws InterruptedException {
+        while (!listening(port)) {
+            if (processes.stream().anyMatch(process -> !process.isAlive())) {
+                throw new IllegalStateException(name + " or another service exited during startup, see "
+                        + options.workDir().resolve("logs"));
+            }
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException(name + " did not start listening on :" + port + " within "
+                        + options.startupTimeout());
+            }
+            TimeUnit.SECONDS.sleep(1);
+        }
+        logger.info("{} is up on :{}", name, port);
+    }
+
+    private int gatewayPort() {
+        int port = URI.create(options.gateway()).getPort();
+        return port < 0 ? 80 : port;
+    }
+
+    private static boolean listening(int port) {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress("localhost", port), 500);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * One client of the gateway: logs in, then sends requests picked from the mix
+ * until the run ends. Without a rate it sends the next request as soon as the
+ * last one is answered. With one, requests go out on a fixed schedule and their
+ * latency counts from the scheduled start, so time spent queued behind a slow
+ * response is not hidden from the percentiles.
+ */
+final class VirtualUser implements Runnable {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final LoadTestOptions options;
+    private final HttpClient client;
+    private final Endpoint[] endpoints;
+    private final int[] cumulativeWeights;
+    private final Map<Endpoint, EndpointStats> stats = new EnumMap<>(Endpoint.class);
+    private final long measureFrom;
+    private final long end;
+    private final long interval;
+    private long next;
+    private String token;
+
+    /**
+     * @param start    nanoTime the run starts at, warmup included
+     * @param interval nanoseconds between this user's requests, 0 for a closed loop
+     * @param offset   delay of this user's first request, to spread the users' schedules
+     */
+    VirtualUser(LoadTestOptions options, HttpClient client, long start, long interval, long offset) {
+        this.options = options;
+        this.client = client;
+        Map<Endpoint, Integer> mix = options.mix();
+        this.endpoints = mix.keySet().toArray(new Endpoint[0]);
+        this.cumulativeWeights = new int[endpoints.length];
+        int sum = 0;
+        for (int i = 0; i < endpoints.length; i++) {
+            sum += mix.get(endpoints[i]);
+            cumulativeWeights[i] = sum;
+        }
+        for (Endpoint endpoint : Endpoint.values()) {
+            stats.put(endpoint, new EndpointStats());
+        }
+        this.measureFrom = start + options.warmup().toNanos();
+        this.end = measureFrom + options.duration().toNanos();
+        this.interval = interval;
+        this.next = start + offset;
+    }
+
+    @Override
+    public void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            long intended;
+            if (interval > 0) {
+                intended = next;
+                next += interval;
+                long wait;
+                while ((wait = intended - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            } else {
+                intended = System.nanoTime();
+            }
+            if (intended >= end) {
+                break;
+            }
+            // A user whose login failed logs in again before anything else
+            Endpoint endpoint = token == null ? Endpoint.LOGIN : pick();
+            Outcome outcome = send(endpoint);
+            if (intended >= measureFrom) {
+                stats.get(endpoint).record(System.nanoTime() - intended, outcome.name, outcome.error);
+            }
+        }
+    }
+
+    Map<Endpoint, EndpointStats> stats() {
+        return stats;
+    }
+
+    /**
+     * Register the load test account if it does not exist yet.
+     *
+     * @return the status of the registration; 400 means the name is taken
+     */
+    static int register(LoadTestOptions options, HttpClient client) throws IOException, InterruptedException {
+        Map<String, String> body = Map.of("username", options.username(), "password", options.password(),
+                "role", "USER");
+        return client.send(json(options, "/auth/register", body).build(), HttpResponse.BodyHandlers.discarding())
+                .statusCode();
+    }
+
+    static boolean canLogIn(LoadTestOptions options, HttpClient client) throws InterruptedException {
+        try {
+            return !new VirtualUser(options, client, System.nanoTime(), 0, 0).login().error;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private Endpoint pick() {
+        int roll = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < endpoints.length; i++) {
+            if (roll < cumulativeWeights[i]) {
+                return endpoints[i];
+            }
+        }
+        return endpoints[endpoints.length - 1];
+    }
+
+    private Outcome send(Endpoint endpoint) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String identifier = Payloads.identifier(random.nextInt(options.identifiers()));
+        String dataType = Payloads.dataType(random.nextInt(Payloads.DATA_TYPES.length));
+        try {
+            switch (endpoint) {
+                case LOGIN:
+                    return login();
+                case STORE:
+                    Map<String, Object> payload = Payloads.payload(dataType, identifier);
+                    return exchange(authorized(json(options, "/blockchain/store", payload)));
+                case BY_IDENTIFIER:
+                    return exchange(get("/documents/identifier/" + identifier));
+                default:
+                    return exchange(get("/documents/type/" + dataType));
+            }
+        } catch (HttpTimeoutException e) {
+            return new Outcome("timeout", true);
+        } catch (ConnectException e) {
+            return new Outcome("connect", true);
+        } catch (IOException e) {
+            return new Outcome("io", true);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Outcome("interrupted", true);
+        }
+    }
+
+    private Outcome login() throws IOException, InterruptedException {
+        Map<String, String> credentials = Map.of("username", options.username(), "password", options.password());
+        HttpResponse<byte[]> response = client.send(json(options, "/auth/login", credentials).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() == 200) {
+            JsonNode token = objectMapper.readTree(response.body()).path("token");
+            this.token = token.isTextual() ? token.asText() : null;
+        }
+        return new Outcome(String.valueOf(response.statusCode()), response.statusCode() != 200 || token == null);
+    }
+
+    private Outcome exchange(HttpRequest request) throws IOException, InterruptedException {
+        int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        if (status == 401) {
+            // Expired or rejected token: log in again next time
+            token = null;
+        }
+        return new Outcome(String.valueOf(status), status >= 400);
+    }
+
+    private HttpRequest get(String path) {
+        return authorized(request(options, path).GET());
+    }
+
+    private HttpRequest authorized(HttpRequest.Builder builder) {
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder.build();
+    }
+
+    private static HttpRequest.Builder json(LoadTestOptions options, String path, Object body) throws IOException {
+        return request(options, path)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)));
+    }
+
+    private static HttpRequest.Builder request(LoadTestOptions options, String path) {
+        return HttpRequest.newBuilder(URI.create(options.gateway() + path)).timeout(options.requestTimeout());
+    }
+
+    private static final class Outcome {
+        final String name;
+        final boolean error;
+
+        Outcome(String name, boolean error) {
+            this.name = name;
+            this.error = error;
+        }
+    }
+}
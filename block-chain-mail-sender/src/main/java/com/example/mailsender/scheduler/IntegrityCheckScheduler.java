@@ -5,12 +5,16 @@ import com.example.mailsender.service.BlockchainIntegrityService;
 import com.example.mailsender.service.EmailService;
 import com.example.mailsender.service.RecipientService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+
 @Component
 public class IntegrityCheckScheduler {
 
@@ -26,7 +30,17 @@ public class IntegrityCheckScheduler {
     @Autowired
     private RecipientService recipientService;
     
-    private boolean lastIntegrityStatus = true;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private volatile boolean lastIntegrityStatus = true;
+    
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("mail.integrity.last.valid", this, scheduler -> scheduler.lastIntegrityStatus ? 1 : 0)
+                .description("1 while the last completed integrity check found the chain valid")
+                .register(meterRegistry);
+    }
     
     // Approach 1: Cron expression - runs every minute
     @Scheduled(cron = "0 * * * * ?")
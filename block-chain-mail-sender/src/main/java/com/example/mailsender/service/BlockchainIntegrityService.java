@@ -1,6 +1,8 @@
 package com.example.mailsender.service;
 
 import com.example.mailsender.model.IntegrityCheckResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,18 +20,31 @@ public class BlockchainIntegrityService {
     private static final Logger logger = LoggerFactory.getLogger(BlockchainIntegrityService.class);
     
     private final WebClient webClient;
+    private final MeterRegistry meterRegistry;
     
     @Value("${blockchain.integrity.url}")
     private String integrityCheckUrl;
     
     @Autowired
-    public BlockchainIntegrityService(WebClient.Builder webClientBuilder) {
+    public BlockchainIntegrityService(WebClient.Builder webClientBuilder, MeterRegistry meterRegistry) {
         this.webClient = webClientBuilder.build();
+        this.meterRegistry = meterRegistry;
     }
     
     public Mono<IntegrityCheckResponse> checkBlockchainIntegrity() {
         logger.info("Checking blockchain integrity at: {}", integrityCheckUrl);
         
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return requestIntegrity().doOnNext(response -> sample.stop(Timer.builder("mail.integrity.check")
+                    .description("Integrity checks made by the monitor")
+                    .tag("result", response.getIntegrity() == null ? "error"
+                            : response.getIntegrity() ? "valid" : "compromised")
+                    .register(meterRegistry)));
+        });
+    }
+    
+    private Mono<IntegrityCheckResponse> requestIntegrity() {
         return webClient.get()
                 .uri(integrityCheckUrl)
                 .retrieve()
@@ -1,5 +1,6 @@
 package com.example.mailsender.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -23,6 +24,9 @@ public class EmailService {
     @Autowired
     private RecipientService recipientService;
     
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
     @Value("${spring.mail.username}")
     private String senderEmail;
     
@@ -54,11 +58,17 @@ public class EmailService {
             
             mailSender.send(message);
             logger.info("Integrity alert email sent to {} recipients", recipients.size());
+            countAlert("success");
         } catch (Exception e) {
             logger.error("Failed to send integrity alert email: {}", e.getMessage(), e);
+            countAlert("failure");
         }
     }
     
+    private void countAlert(String result) {
+        meterRegistry.counter("mail.alerts.sent", "result", result).increment();
+    }
+    
     // Optional: Method to send test email
     public boolean sendTestEmail(String recipient) {
         try {
@@ -0,0 +1,97 @@
+package com.example.blockchain.codec;
+
+import com.example.blockchain.model.BlockchainDocument;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.lang.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * Reads and writes lists of blocks as {@link BlockCodec#MEDIA_TYPE}. It only
+ * takes part when a client asks for that type, so JSON stays the default;
+ * callers should send "Accept: application/x-block-stream, application/json;q=0.9"
+ * so that error bodies still come back as JSON. Registered after the JSON
+ * converter (see WebMvcConfig), so a wildcard Accept still gets JSON.
+ */
+public class BlockCodecMessageConverter extends AbstractGenericHttpMessageConverter<List<BlockchainDocument>> {
+
+    public static final MediaType BLOCK_STREAM = MediaType.parseMediaType(BlockCodec.MEDIA_TYPE);
+
+    public BlockCodecMessageConverter() {
+        super(BLOCK_STREAM);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return List.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Type type, @Nullable Class<?> contextClass, @Nullable MediaType mediaType) {
+        return holdsBlocks(type) && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(@Nullable Type type, Class<?> clazz, @Nullable MediaType mediaType) {
+        // A wildcard or Object return type says nothing about the element type; the class decides
+        boolean listType = type != null && List.class.isAssignableFrom(ResolvableType.forType(type).toClass());
+        return supports(clazz) && (!listType || holdsBlocks(type)) && canWrite(mediaType);
+    }
+
+    @Override
+    public List<BlockchainDocument> read(Type type, @Nullable Class<?> contextClass, HttpInputMessage inputMessage)
+            throws IOException {
+        return readInternal(null, inputMessage);
+    }
+
+    @Override
+    protected List<BlockchainDocument> readInternal(@Nullable Class<? extends List<BlockchainDocument>> clazz,
+                                                    HttpInputMessage inputMessage) throws IOException {
+        try {
+            return BlockCodec.decode(inputMessage.getBody());
+        } catch (IOException e) {
+            throw new HttpMessageNotReadableException("Invalid block stream: " + e.getMessage(), e, inputMessage);
+        }
+    }
+
+    @Override
+    protected void writeInternal(List<BlockchainDocument> blocks, @Nullable Type type, HttpOutputMessage outputMessage)
+            throws IOException {
+        for (Object block : blocks) {
+            if (!(block instanceof BlockchainDocument)) {
+                throw new HttpMessageNotWritableException("Only blocks can be written as " + BlockCodec.MEDIA_TYPE);
+            }
+        }
+        // Encode up front so a block that cannot be encoded fails before anything is sent
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream(256 * blocks.size() + 16);
+        try {
+            BlockCodec.encode(blocks, encoded);
+        } catch (IllegalArgumentException e) {
+            throw new HttpMessageNotWritableException(e.getMessage(), e);
+        }
+        outputMessage.getHeaders().setContentLength(encoded.size());
+        encoded.writeTo(outputMessage.getBody());
+    }
+
+    /**
+     * A List of blocks, or a raw List whose element type is only known at runtime
+     * (e.g. a body resolved from a Mono).
+     */
+    private static boolean holdsBlocks(Type type) {
+        ResolvableType resolved = ResolvableType.forType(type);
+        if (!List.class.isAssignableFrom(resolved.toClass())) {
+            return false;
+        }
+        Class<?> element = resolved.asCollection().resolveGeneric(0);
+        return element == null || element == Object.class || BlockchainDocument.class.isAssignableFrom(element);
+    }
+}
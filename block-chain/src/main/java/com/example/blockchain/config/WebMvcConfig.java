@@ -0,0 +1,17 @@
+package com.example.blockchain.config;
+
+import com.example.blockchain.codec.BlockCodecMessageConverter;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        // Last, so a wildcard Accept negotiates JSON and only an explicit request gets the binary form
+        converters.add(new BlockCodecMessageConverter());
+    }
+}
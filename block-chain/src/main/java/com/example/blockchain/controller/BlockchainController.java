@@ -1,16 +1,32 @@
 package com.example.blockchain.controller;
 
+import com.example.blockchain.codec.BlockCodec;
+import com.example.blockchain.exception.AppendQueueFullException;
+import com.example.blockchain.exception.LedgerException;
+import com.example.blockchain.model.BatchItemResult;
+import com.example.blockchain.model.BlockchainDocument;
+import com.example.blockchain.model.StoreReceipt;
+import com.example.blockchain.service.AdaptiveConcurrencyLimiter;
+import com.example.blockchain.service.AdaptiveConcurrencyLimiter.Lane;
 import com.example.blockchain.service.BlockchainService;
+import com.example.blockchain.service.IdempotencyStore;
+import com.example.blockchain.service.ReceiptStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Mono;
 
+import java.net.URI;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/blockchain")
@@ -18,20 +34,77 @@ public class BlockchainController {
     private static final Logger logger = LoggerFactory.getLogger(BlockchainController.class);
     
     private final BlockchainService blockchainService;
+    private final IdempotencyStore idempotencyStore;
+    private final ReceiptStore receiptStore;
+    private final AdaptiveConcurrencyLimiter limiter;
+    
+    @Value("${blockchain.ledger.max-batch-size:1000}")
+    private int maxBatchSize;
     
     @Autowired
-    public BlockchainController(BlockchainService blockchainService) {
+    public BlockchainController(BlockchainService blockchainService, IdempotencyStore idempotencyStore,
+                                ReceiptStore receiptStore, AdaptiveConcurrencyLimiter limiter) {
         this.blockchainService = blockchainService;
+        this.idempotencyStore = idempotencyStore;
+        this.receiptStore = receiptStore;
+        this.limiter = limiter;
     }
     
     /**
      * Store data in the blockchain after checking integrity
+     * A retry with the same Idempotency-Key gets the original response, marked Idempotent-Replayed
+     * With async=true the store is accepted at once with 202 and a receipt to poll at /receipts/{id}
      * @param data the data to store
-     * @return the response with stored data details
+     * @param async run the integrity check and append in the background
+     * @param idempotencyKey optional client key identifying this store across retries
+     * @return the response with stored data details, or the receipt when async
      */
     @PostMapping("/store")
-    public Mono<ResponseEntity<Map<String, Object>>> storeData(@RequestBody Map<String, Object> data) {
-        logger.info("Received request to store data in blockchain: {}", data);
+    public Mono<ResponseEntity<Map<String, Object>>> storeData(@RequestBody Map<String, Object> data,
+                                                               @RequestParam(defaultValue = "false") boolean async,
+                                                               @RequestHeader(value = IdempotencyStore.HEADER, required = false)
+                                                               String idempotencyKey) {
+        logger.info("Received request to store data in blockchain (async={}): {}", async, data);
+        
+        Supplier<Mono<ResponseEntity<Map<String, Object>>>> store = async ? () -> accept(data)
+                : () -> limited(Lane.INGEST, () -> store(data));
+        if (idempotencyKey != null) {
+            return idempotencyStore.execute(idempotencyKey, data, store);
+        }
+        return store.get();
+    }
+    
+    /**
+     * Status of a store accepted with async=true
+     * @param id the receipt ID returned when the store was accepted
+     * @return the status, and the sequence and hash once stored or the error once failed
+     */
+    @GetMapping("/receipts/{id}")
+    public Mono<ResponseEntity<Map<String, Object>>> getReceipt(@PathVariable String id) {
+        return receiptStore.find(id)
+                .map(receipt -> ResponseEntity.ok(receiptResponse(receipt)))
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("success", false);
+                    response.put("error", "No receipt with ID " + id);
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+                }));
+    }
+    
+    private Mono<ResponseEntity<Map<String, Object>>> accept(Map<String, Object> data) {
+        // Accepted stores wait for a permit instead of being turned away
+        return receiptStore.submit(() -> limiter.acquire(Lane.INGEST)
+                        .flatMap(permit -> limiter.run(permit, store(data), BlockchainController::overloaded)))
+                .map(receipt -> ResponseEntity.accepted()
+                        .location(URI.create("/blockchain/receipts/" + receipt.getId()))
+                        .body(receiptResponse(receipt)))
+                .switchIfEmpty(Mono.fromSupplier(() -> queueFull("Too many pending asynchronous stores, retry later")));
+    }
+    
+    private Mono<ResponseEntity<Map<String, Object>>> store(Map<String, Object> data) {
+        if (!blockchainService.hasAppendCapacity()) {
+            return Mono.just(queueFull("Append queue is full, retry later"));
+        }
         
         // First check chain integrity
         return blockchainService.checkChainIntegrity()
@@ -55,10 +128,64 @@ public class BlockchainController {
                                 } else {
                                     return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
                                 }
-                            });
+                            })
+                            .onErrorResume(AppendQueueFullException.class, e -> Mono.just(queueFull(e.getMessage())));
                 });
     }
     
+    /**
+     * Store a batch of payloads after a single integrity check
+     * @param items the payloads to store, in chain order
+     * @return the per-item sequence or error, in request order
+     */
+    @PostMapping("/store/batch")
+    public Mono<ResponseEntity<Map<String, Object>>> storeBatch(@RequestBody List<Map<String, Object>> items) {
+        logger.info("Received request to store batch of {} payloads in blockchain", items.size());
+        
+        if (items.isEmpty() || items.size() > maxBatchSize) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("error", "Batch must contain between 1 and " + maxBatchSize + " items");
+            return Mono.just(ResponseEntity.badRequest().body(errorResponse));
+        }
+        if (!blockchainService.hasAppendCapacity()) {
+            return Mono.just(queueFull("Append queue is full, retry later"));
+        }
+        
+        return limited(Lane.INGEST, () -> blockchainService.checkChainIntegrity()
+                .flatMap(isValid -> {
+                    if (!isValid) {
+                        logger.warn("Blockchain integrity check failed - aborting batch store operation");
+                        Map<String, Object> errorResponse = new HashMap<>();
+                        errorResponse.put("success", false);
+                        errorResponse.put("error", "Blockchain integrity check failed - data not stored");
+                        return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse));
+                    }
+                    
+                    return blockchainService.storeBatch(items)
+                            .map(results -> {
+                                long stored = results.stream().filter(BatchItemResult::isSuccess).count();
+                                Map<String, Object> response = new HashMap<>();
+                                response.put("success", stored == results.size());
+                                response.put("stored", stored);
+                                response.put("failed", results.size() - stored);
+                                response.put("results", results);
+                                if (stored == 0) {
+                                    return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+                                }
+                                return ResponseEntity.ok(response);
+                            })
+                            .onErrorResume(AppendQueueFullException.class, e -> Mono.just(queueFull(e.getMessage())))
+                            .onErrorResume(e -> {
+                                logger.error("Error storing batch in blockchain: {}", e.getMessage());
+                                Map<String, Object> errorResponse = new HashMap<>();
+                                errorResponse.put("success", false);
+                                errorResponse.put("error", "Failed to store batch: " + e.getMessage());
+                                return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse));
+                            });
+                }));
+    }
+    
     /**
      * Check the integrity of the blockchain
      * @return the response with blockchain validity status
@@ -67,11 +194,117 @@ public class BlockchainController {
     public Mono<ResponseEntity<Map<String, Object>>> validateChain() {
         logger.info("Received request to validate blockchain");
         
-        return blockchainService.checkChainIntegrity()
+        return limited(Lane.PRIORITY, () -> blockchainService.checkChainIntegrity()
                 .map(isValid -> {
                     Map<String, Object> response = new HashMap<>();
                     response.put("valid", isValid);
                     return ResponseEntity.ok(response);
+                }));
+    }
+    
+    /**
+     * Integrity check with the same response shape as the FastAPI /check_chain_integrity,
+     * so existing consumers can point at this service instead
+     * @return the integrity flag and message
+     */
+    @GetMapping("/check_chain_integrity")
+    public Mono<ResponseEntity<Map<String, Object>>> checkChainIntegrity() {
+        logger.info("Received request to check chain integrity");
+        
+        return limited(Lane.PRIORITY, () -> blockchainService.verifyChain()
+                .map(result -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("Integrity", result.isValid());
+                    response.put("message", result.isValid() ? "Chain integrity verified" : result.getMessage());
+                    response.put("verifiedSequence", result.getVerifiedSequence());
+                    response.put("firstFailedSequence", result.getFirstFailedSequence());
+                    response.put("failureKind", result.getFailureKind());
+                    return ResponseEntity.ok(response);
+                }));
+    }
+    
+    /**
+     * Full audit of the chain from genesis, checked in parallel segments
+     * @return the integrity flag, the first failing sequence and the number of blocks checked
+     */
+    @GetMapping("/audit")
+    public Mono<ResponseEntity<Map<String, Object>>> auditChain() {
+        logger.info("Received request for full chain audit");
+        
+        return limited(Lane.PRIORITY, () -> blockchainService.auditChain()
+                .map(result -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("Integrity", result.isValid());
+                    response.put("message", result.getMessage());
+                    response.put("firstFailedSequence", result.getFirstFailedSequence());
+                    response.put("failureKind", result.getFailureKind());
+                    response.put("blocksChecked", result.getBlocksChecked());
+                    return ResponseEntity.ok(response);
+                }));
+    }
+    
+    /**
+     * Localize tampering: the first bad sequence, what is wrong with it and the range it affects
+     * @param deep also audit the whole chain block by block, signatures included; without it,
+     *             spans that predate checkpoint digests are reported as unchecked
+     * @return the integrity report
+     */
+    @GetMapping("/integrity/report")
+    public Mono<ResponseEntity<Object>> integrityReport(@RequestParam(defaultValue = "false") boolean deep) {
+        logger.info("Received request for integrity report (deep={})", deep);
+        
+        return limited(Lane.PRIORITY, () -> blockchainService.integrityReport(deep)
+                .<ResponseEntity<Object>>map(ResponseEntity::ok)
+                .onErrorResume(e -> {
+                    logger.error("Error building integrity report: {}", e.getMessage());
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("success", false);
+                    response.put("error", "Failed to build integrity report: " + e.getMessage());
+                    return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response));
+                }));
+    }
+    
+    /**
+     * Consecutive blocks for other services. JSON by default; internal callers can ask for the
+     * compact binary form with Accept: application/x-block-stream
+     * @param from the first sequence to return
+     * @param limit the maximum number of blocks, at most max-batch-size
+     * @return the blocks in sequence order
+     */
+    @GetMapping(value = "/blocks", produces = {MediaType.APPLICATION_JSON_VALUE, BlockCodec.MEDIA_TYPE})
+    public Mono<ResponseEntity<List<BlockchainDocument>>> getBlocks(@RequestParam(defaultValue = "1") int from,
+                                                                    @RequestParam(defaultValue = "100") int limit) {
+        logger.info("Received request for {} blocks from sequence {}", limit, from);
+        
+        if (from < 1 || limit < 1 || limit > maxBatchSize) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return blockchainService.getBlocks(from, limit)
+                .map(ResponseEntity::ok);
+    }
+    
+    /**
+     * Merkle inclusion proof for a single block
+     * @param sequence the block sequence
+     * @return the audit path and the current (signed) root
+     */
+    @GetMapping("/proof/{sequence}")
+    public Mono<ResponseEntity<Object>> getInclusionProof(@PathVariable int sequence) {
+        logger.info("Received request for inclusion proof of sequence {}", sequence);
+        
+        return blockchainService.getInclusionProof(sequence)
+                .<ResponseEntity<Object>>map(ResponseEntity::ok)
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("success", false);
+                    response.put("error", "No block with sequence " + sequence + " in the Merkle tree");
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+                }))
+                .onErrorResume(LedgerException.class, e -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("success", false);
+                    response.put("error", e.getMessage());
+                    return Mono.just(ResponseEntity.status(HttpStatus.CONFLICT).body(response));
                 });
     }
     
@@ -85,4 +318,50 @@ public class BlockchainController {
         status.put("status", "UP");
         return ResponseEntity.ok(status);
     }
-} 
\ No newline at end of file
+    
+    /**
+     * Body describing an asynchronous store receipt and how far it has got
+     */
+    private static Map<String, Object> receiptResponse(StoreReceipt receipt) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("receiptId", receipt.getId());
+        response.put("status", receipt.getStatus());
+        response.put("sequence", receipt.getSequence());
+        response.put("hash", receipt.getHash());
+        response.put("error", receipt.getError());
+        response.put("acceptedAt", receipt.getAcceptedAt());
+        response.put("completedAt", receipt.getCompletedAt());
+        return response;
+    }
+    
+    /**
+     * Run the call under a concurrency permit for the lane, or turn it away with 429 at once
+     */
+    @SuppressWarnings("unchecked")
+    private <T> Mono<ResponseEntity<T>> limited(Lane lane, Supplier<Mono<ResponseEntity<T>>> call) {
+        return limiter.tryAcquire(lane)
+                .map(permit -> limiter.run(permit, Mono.defer(call), BlockchainController::overloaded))
+                .orElseGet(() -> Mono.just((ResponseEntity<T>) (ResponseEntity<?>)
+                        queueFull("Too many concurrent requests, retry later")));
+    }
+    
+    /**
+     * Responses that mean the service or chain_handler could not keep up
+     */
+    private static boolean overloaded(ResponseEntity<?> response) {
+        return response.getStatusCode().is5xxServerError() || response.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS;
+    }
+    
+    /**
+     * 429 response telling the client to back off and retry
+     */
+    private ResponseEntity<Map<String, Object>> queueFull(String message) {
+        logger.warn("Rejecting request: {}", message);
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("success", false);
+        errorResponse.put("error", message);
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(limiter.retryAfterSeconds()))
+                .body(errorResponse);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.blockchain.exception;
+
+public class AppendQueueFullException extends LedgerException {
+    public AppendQueueFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.blockchain.exception;
+
+public class LedgerException extends RuntimeException {
+    public LedgerException(String message) {
+        super(message);
+    }
+
+    public LedgerException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
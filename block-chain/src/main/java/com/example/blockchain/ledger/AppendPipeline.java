@@ -0,0 +1,209 @@
+package com.example.blockchain.ledger;
+
+import com.example.blockchain.exception.AppendQueueFullException;
+import com.example.blockchain.exception.LedgerException;
+import com.example.blockchain.model.BatchItemResult;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single-writer front end for {@link LedgerEngine}. Request threads publish their
+ * payloads into a bounded ring buffer; one writer thread drains it, group-commits
+ * everything it finds with a single appendBatch, and completes each caller once
+ * its blocks are in Mongo. A full buffer is reported straight back to the caller.
+ * A group commit that ends in an Error stops all further appends until a restart.
+ */
+@Service
+public class AppendPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(AppendPipeline.class);
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final LedgerEngine ledgerEngine;
+    private final MeterRegistry meterRegistry;
+    private final Timer queueWait;
+    private final DistributionSummary groupSize;
+
+    @Value("${blockchain.ledger.queue-capacity:4096}")
+    private int queueCapacity;
+
+    @Value("${blockchain.ledger.max-group-size:500}")
+    private int maxGroupSize;
+
+    private RingBuffer<PendingAppend> queue;
+    private Thread writer;
+    private volatile boolean running;
+    private volatile boolean writerIdle;
+    // Set when a group commit ends in an Error; every append fails with it from then on
+    private volatile LedgerException failure;
+
+    public AppendPipeline(LedgerEngine ledgerEngine, MeterRegistry meterRegistry) {
+        this.ledgerEngine = ledgerEngine;
+        this.meterRegistry = meterRegistry;
+        this.queueWait = Timer.builder("blockchain.append.queue.wait")
+                .description("Time appends spend in the ring buffer before their group commit starts")
+                .register(meterRegistry);
+        this.groupSize = DistributionSummary.builder("blockchain.append.group.size")
+                .description("Payloads written per group commit")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        queue = new RingBuffer<>(queueCapacity);
+        running = true;
+        writer = new Thread(this::drainLoop, "ledger-writer");
+        writer.setDaemon(true);
+        writer.start();
+        Gauge.builder("blockchain.append.queue.depth", this, AppendPipeline::getQueueDepth)
+                .description("Appends waiting in the ring buffer")
+                .register(meterRegistry);
+        logger.info("Ledger append pipeline started with queue capacity {}", queue.capacity());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+        PendingAppend pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result.completeExceptionally(new LedgerException("Ledger is shutting down"));
+        }
+    }
+
+    /**
+     * Queue payloads to be appended as consecutive blocks.
+     *
+     * @param payloads the payloads, in chain order
+     * @return per-payload results, emitted once the blocks are written
+     * @throws AppendQueueFullException (as an error signal) when the ring buffer is full
+     */
+    public Mono<List<BatchItemResult>> submit(List<Map<String, Object>> payloads) {
+        return Mono.defer(() -> {
+            LedgerException stopped = failure;
+            if (stopped != null) {
+                return Mono.error(stopped);
+            }
+            PendingAppend pending = new PendingAppend(payloads);
+            if (!running || !queue.offer(pending)) {
+                return Mono.error(new AppendQueueFullException(
+                        "Append queue is full (" + queue.capacity() + " pending), retry later"));
+            }
+            if (writerIdle) {
+                LockSupport.unpark(writer);
+            }
+            return Mono.fromFuture(pending.result);
+        });
+    }
+
+    /**
+     * True if the queue currently has room; used to reject requests before doing any work.
+     */
+    public boolean hasCapacity() {
+        return queue.size() < queue.capacity();
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    private void drainLoop() {
+        List<PendingAppend> group = new ArrayList<>();
+        List<Map<String, Object>> payloads = new ArrayList<>();
+        while (running) {
+            PendingAppend next = queue.poll();
+            if (next == null) {
+                writerIdle = true;
+                if (queue.size() == 0 && running) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                writerIdle = false;
+                continue;
+            }
+
+            group.clear();
+            payloads.clear();
+            while (next != null) {
+                group.add(next);
+                payloads.addAll(next.payloads);
+                if (payloads.size() >= maxGroupSize) {
+                    break;
+                }
+                next = queue.poll();
+            }
+            try {
+                if (failure != null) {
+                    fail(group, failure);
+                } else {
+                    commit(group, payloads);
+                }
+            } catch (Throwable e) {
+                // An Error can leave the group half written and the engine's tip unknown, and appending
+                // on could reuse sequences: fail this group and all later appends until a restart.
+                // The writer keeps draining so nothing published in the meantime waits forever.
+                logger.error("Group commit of {} payloads failed; ledger writer stops appending", payloads.size(), e);
+                failure = new LedgerException("Ledger writer stopped after an unexpected error: " + e, e);
+                fail(group, failure);
+            }
+        }
+    }
+
+    private static void fail(List<PendingAppend> group, RuntimeException error) {
+        for (PendingAppend pending : group) {
+            pending.result.completeExceptionally(error);
+        }
+    }
+
+    private void commit(List<PendingAppend> group, List<Map<String, Object>> payloads) {
+        long started = System.nanoTime();
+        for (PendingAppend pending : group) {
+            queueWait.record(started - pending.enqueued, TimeUnit.NANOSECONDS);
+        }
+        groupSize.record(payloads.size());
+        List<BatchItemResult> results;
+        try {
+            results = ledgerEngine.appendBatch(payloads);
+        } catch (RuntimeException e) {
+            logger.error("Group commit of {} payloads failed: {}", payloads.size(), e.getMessage());
+            fail(group, e);
+            return;
+        }
+
+        int offset = 0;
+        for (PendingAppend pending : group) {
+            List<BatchItemResult> own = new ArrayList<>(pending.payloads.size());
+            for (int i = 0; i < pending.payloads.size(); i++) {
+                own.add(results.get(offset + i).withIndex(i));
+            }
+            offset += pending.payloads.size();
+            pending.result.complete(own);
+        }
+    }
+
+    private static final class PendingAppend {
+        private final List<Map<String, Object>> payloads;
+        private final CompletableFuture<List<BatchItemResult>> result = new CompletableFuture<>();
+        private final long enqueued = System.nanoTime();
+
+        private PendingAppend(List<Map<String, Object>> payloads) {
+            this.payloads = payloads;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.blockchain.ledger;
+
+import org.bouncycastle.crypto.params.Ed25519PrivateKeyParameters;
+import org.bouncycastle.crypto.params.Ed25519PublicKeyParameters;
+import org.bouncycastle.crypto.signers.Ed25519Signer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HexFormat;
+
+/**
+ * Ed25519 signing with the same signing_key.bin seed the Python chain handler uses.
+ * Signatures are encoded like PyNaCl's SigningKey.sign(): the 64-byte signature
+ * followed by the signed message, hex encoded.
+ */
+@Component
+public class BlockSigner {
+    private static final Logger logger = LoggerFactory.getLogger(BlockSigner.class);
+
+    private static final int SIGNATURE_LENGTH = Ed25519PrivateKeyParameters.SIGNATURE_SIZE;
+
+    @Value("${blockchain.ledger.signing-key-file}")
+    private String signingKeyFile;
+
+    private Ed25519PrivateKeyParameters privateKey;
+    private String verifyKey;
+
+    @PostConstruct
+    public void init() {
+        Path path = Paths.get(signingKeyFile);
+        if (!Files.exists(path)) {
+            logger.warn("Signing key not found at {} - native appends are disabled until it exists", path.toAbsolutePath());
+            return;
+        }
+        try {
+            byte[] seed = Files.readAllBytes(path);
+            this.privateKey = new Ed25519PrivateKeyParameters(seed, 0);
+            this.verifyKey = HexFormat.of().formatHex(privateKey.generatePublicKey().getEncoded());
+            logger.info("Loaded signing key. Verify key: {}...", verifyKey.substring(0, 8));
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalStateException("Unable to load signing key from " + path, e);
+        }
+    }
+
+    public boolean isAvailable() {
+        return privateKey != null;
+    }
+
+    /**
+     * Hex verify key, as stored in each document's verify_key field.
+     */
+    public String getVerifyKey() {
+        requireKey();
+        return verifyKey;
+    }
+
+    /**
+     * Sign the hex data hash the way chain_handler does: sign(data_hash.encode()).hex().
+     */
+    public String sign(String dataHash) {
+        requireKey();
+        byte[] message = dataHash.getBytes(StandardCharsets.US_ASCII);
+        Ed25519Signer signer = new Ed25519Signer();
+        signer.init(true, privateKey);
+        signer.update(message, 0, message.length);
+        byte[] signature = signer.generateSignature();
+
+        byte[] signed = new byte[signature.length + message.length];
+        System.arraycopy(signature, 0, signed, 0, signature.length);
+        System.arraycopy(message, 0, signed, signature.length, message.length);
+        return HexFormat.of().formatHex(signed);
+    }
+
+    /**
+     * Check a stored signature against its document hash and verify key.
+     */
+    public static boolean verify(String dataHash, String signatureHex, String verifyKeyHex) {
+        try {
+            return verify(HexFormat.of().parseHex(signatureHex), dataHash.getBytes(StandardCharsets.US_ASCII),
+                    HexFormat.of().parseHex(verifyKeyHex));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Same check on raw bytes: signed is signature || message, message the ASCII hex hash.
+     */
+    public static boolean verify(byte[] signed, byte[] message, byte[] verifyKey) {
+        if (signed.length != SIGNATURE_LENGTH + message.length || verifyKey.length != Ed25519PublicKeyParameters.KEY_SIZE) {
+            return false;
+        }
+        for (int i = 0; i < message.length; i++) {
+            if (signed[SIGNATURE_LENGTH + i] != message[i]) {
+                return false;
+            }
+        }
+        try {
+            Ed25519Signer verifier = new Ed25519Signer();
+            verifier.init(false, new Ed25519PublicKeyParameters(verifyKey, 0));
+            verifier.update(message, 0, message.length);
+            byte[] signature = new byte[SIGNATURE_LENGTH];
+            System.arraycopy(signed, 0, signature, 0, SIGNATURE_LENGTH);
+            return verifier.verifySignature(signature);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private void requireKey() {
+        if (privateKey == null) {
+            throw new IllegalStateException("Signing key not loaded from " + signingKeyFile);
+        }
+    }
+}
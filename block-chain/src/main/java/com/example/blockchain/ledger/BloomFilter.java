@@ -0,0 +1,72 @@
+package com.example.blockchain.ledger;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over hex SHA-256 digests. The digests are already uniformly
+ * distributed, so the two base hashes are read straight out of the hex string
+ * and combined by double hashing instead of being hashed again.
+ */
+final class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final long expectedInsertions;
+
+    private BloomFilter(long bitCount, int hashCount, long expectedInsertions) {
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, (bitCount + 63) >>> 6);
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words << 6;
+        this.hashCount = hashCount;
+        this.expectedInsertions = expectedInsertions;
+    }
+
+    /**
+     * A filter that holds expectedInsertions digests at roughly the given false positive rate.
+     */
+    static BloomFilter create(long expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(1, expectedInsertions);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int k = Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+        return new BloomFilter(Math.max(64, m), k, n);
+    }
+
+    long expectedInsertions() {
+        return expectedInsertions;
+    }
+
+    void put(String hexDigest) {
+        long h1 = parseHex(hexDigest, 0);
+        long h2 = parseHex(hexDigest, 16) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            while (((current = bits.get(word)) & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+                // retry with the updated word
+            }
+        }
+    }
+
+    boolean mightContain(String hexDigest) {
+        long h1 = parseHex(hexDigest, 0);
+        long h2 = parseHex(hexDigest, 16) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long parseHex(String s, int offset) {
+        if (s.length() < offset + 16) {
+            // Not a digest; fold whatever is there so put/mightContain stay consistent
+            return s.hashCode() * 0x9E3779B97F4A7C15L + offset;
+        }
+        return Long.parseUnsignedLong(s, offset, offset + 16, 16);
+    }
+}
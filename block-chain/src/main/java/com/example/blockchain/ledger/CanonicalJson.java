@@ -0,0 +1,414 @@
+package com.example.blockchain.ledger;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * Reproduces chain_handler's generate_hash: SHA-256 over
+ * {@code json.dumps(data, sort_keys=True)} with Python's default separators,
+ * ASCII escaping and float repr.
+ * <p>
+ * The canonical form is streamed straight into the digest through a small
+ * per-thread byte buffer; no intermediate JSON string is built.
+ */
+public final class CanonicalJson {
+
+    private static final byte[] NULL = ascii("null");
+    private static final byte[] TRUE = ascii("true");
+    private static final byte[] FALSE = ascii("false");
+    private static final byte[] NAN = ascii("NaN");
+    private static final byte[] INFINITY = ascii("Infinity");
+    private static final byte[] NEGATIVE_INFINITY = ascii("-Infinity");
+    private static final byte[] ZERO = ascii("0.0");
+    private static final byte[] NEGATIVE_ZERO = ascii("-0.0");
+    private static final byte[] ITEM_SEPARATOR = ascii(", ");
+    private static final byte[] KEY_SEPARATOR = ascii(": ");
+    private static final byte[] HEX_DIGITS = ascii("0123456789abcdef");
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private static final ThreadLocal<DigestWriter> WRITERS = ThreadLocal.withInitial(DigestWriter::new);
+
+    private CanonicalJson() {}
+
+    /**
+     * Hex SHA-256 of the canonical form, identical to Python generate_hash(data).
+     */
+    public static String hash(Object data) {
+        return HexFormat.of().formatHex(digest(data));
+    }
+
+    /**
+     * Raw SHA-256 of the canonical form.
+     */
+    public static byte[] digest(Object data) {
+        return WRITERS.get().digest(data);
+    }
+
+    /**
+     * The exact string Python would produce for json.dumps(data, sort_keys=True).
+     */
+    public static String serialize(Object data) {
+        CapturingWriter writer = new CapturingWriter();
+        writer.write(data);
+        writer.flush();
+        return writer.out.toString(StandardCharsets.US_ASCII);
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Python orders str keys by code point; String.compareTo orders by UTF-16
+     * unit, which differs once supplementary characters are involved.
+     */
+    static int compareCodePoints(String a, String b) {
+        int length = Math.min(a.length(), b.length());
+        for (int i = 0; i < length; i++) {
+            char ca = a.charAt(i);
+            char cb = b.charAt(i);
+            if (ca != cb) {
+                if (Character.isSurrogate(ca) || Character.isSurrogate(cb)) {
+                    return Integer.compare(a.codePointAt(i), b.codePointAt(i));
+                }
+                return ca - cb;
+            }
+        }
+        return a.length() - b.length();
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Serializer writing ASCII bytes into a fixed buffer that is handed to
+     * {@link #drain} whenever it fills up.
+     */
+    private abstract static class Writer {
+        private final byte[] buffer = new byte[1024];
+        private final byte[] digits = new byte[20];
+        private int position;
+
+        abstract void drain(byte[] bytes, int length);
+
+        final void flush() {
+            if (position > 0) {
+                drain(buffer, position);
+                position = 0;
+            }
+        }
+
+        final void discard() {
+            position = 0;
+        }
+
+        final void write(Object value) {
+            if (value == null) {
+                put(NULL);
+            } else if (value instanceof String) {
+                writeString((String) value);
+            } else if (value instanceof Boolean) {
+                put((Boolean) value ? TRUE : FALSE);
+            } else if (value instanceof Integer || value instanceof Long || value instanceof Short
+                    || value instanceof Byte) {
+                writeLong(((Number) value).longValue());
+            } else if (value instanceof Double || value instanceof Float) {
+                writeDouble(((Number) value).doubleValue());
+            } else if (value instanceof Map) {
+                writeObject((Map<?, ?>) value);
+            } else if (value instanceof Collection) {
+                writeArray((Collection<?>) value);
+            } else if (value instanceof Object[]) {
+                writeArray(Arrays.asList((Object[]) value));
+            } else if (value instanceof BigInteger) {
+                writeAscii(value.toString());
+            } else if (value instanceof BigDecimal) {
+                writeDouble(((BigDecimal) value).doubleValue());
+            } else {
+                throw new IllegalArgumentException("Object of type " + value.getClass().getName()
+                        + " is not JSON serializable");
+            }
+        }
+
+        private void writeObject(Map<?, ?> map) {
+            int size = map.size();
+            String[] keys = new String[size];
+            Object[] values = new Object[size];
+            int count = 0;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                Object key = entry.getKey();
+                String name = key instanceof String ? (String) key : String.valueOf(key);
+                // Insertion sort: payload objects are small and often arrive nearly sorted
+                int i = count++;
+                while (i > 0 && compareCodePoints(keys[i - 1], name) > 0) {
+                    keys[i] = keys[i - 1];
+                    values[i] = values[i - 1];
+                    i--;
+                }
+                keys[i] = name;
+                values[i] = entry.getValue();
+            }
+
+            put((byte) '{');
+            for (int i = 0; i < count; i++) {
+                if (i > 0) {
+                    put(ITEM_SEPARATOR);
+                }
+                writeString(keys[i]);
+                put(KEY_SEPARATOR);
+                write(values[i]);
+            }
+            put((byte) '}');
+        }
+
+        private void writeArray(Collection<?> items) {
+            put((byte) '[');
+            boolean first = true;
+            for (Object item : items) {
+                if (!first) {
+                    put(ITEM_SEPARATOR);
+                }
+                first = false;
+                write(item);
+            }
+            put((byte) ']');
+        }
+
+        private void writeString(String s) {
+            put((byte) '"');
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c >= 0x20 && c <= 0x7e && c != '"' && c != '\\') {
+                    put((byte) c);
+                    continue;
+                }
+                put((byte) '\\');
+                switch (c) {
+                    case '"': put((byte) '"'); break;
+                    case '\\': put((byte) '\\'); break;
+                    case '\n': put((byte) 'n'); break;
+                    case '\r': put((byte) 'r'); break;
+                    case '\t': put((byte) 't'); break;
+                    case '\b': put((byte) 'b'); break;
+                    case '\f': put((byte) 'f'); break;
+                    default:
+                        // ensure_ascii: UTF-16 code units map 1:1 onto Python's \\uXXXX (surrogate pairs included)
+                        put((byte) 'u');
+                        put(HEX_DIGITS[(c >> 12) & 0xf]);
+                        put(HEX_DIGITS[(c >> 8) & 0xf]);
+                        put(HEX_DIGITS[(c >> 4) & 0xf]);
+                        put(HEX_DIGITS[c & 0xf]);
+                }
+            }
+            put((byte) '"');
+        }
+
+        private void writeLong(long value) {
+            if (value == Long.MIN_VALUE) {
+                writeAscii(Long.toString(value));
+                return;
+            }
+            if (value < 0) {
+                put((byte) '-');
+                value = -value;
+            }
+            int length = 1;
+            while (length < POWERS_OF_TEN.length && value >= POWERS_OF_TEN[length]) {
+                length++;
+            }
+            for (int i = length - 1; i >= 0; i--) {
+                long power = POWERS_OF_TEN[i];
+                put((byte) ('0' + value / power));
+                value %= power;
+            }
+        }
+
+        /**
+         * Python float repr: shortest round-tripping digits, fixed notation when the
+         * decimal exponent is in (-4, 16], scientific ("1e+16", "1.5e-05") otherwise.
+         */
+        private void writeDouble(double d) {
+            if (Double.isNaN(d)) {
+                put(NAN);
+                return;
+            }
+            if (Double.isInfinite(d)) {
+                put(d > 0 ? INFINITY : NEGATIVE_INFINITY);
+                return;
+            }
+            if (d == 0.0) {
+                put(1.0 / d < 0 ? NEGATIVE_ZERO : ZERO);
+                return;
+            }
+
+            // digits[0..length) are the significant digits, value = 0.<digits> * 10^decpt
+            String repr = Double.toString(Math.abs(d));
+            int exponentAt = repr.indexOf('E');
+            int mantissaEnd = exponentAt < 0 ? repr.length() : exponentAt;
+            int pointAt = repr.indexOf('.');
+            int length = 0;
+            int zerosAfterPoint = 0;
+            for (int i = 0; i < mantissaEnd; i++) {
+                char c = repr.charAt(i);
+                if (c == '.') {
+                    continue;
+                }
+                if (length == 0 && c == '0') {
+                    if (i > pointAt) {
+                        zerosAfterPoint++;
+                    }
+                    continue;
+                }
+                digits[length++] = (byte) c;
+            }
+            int exponent = exponentAt < 0 ? 0 : Integer.parseInt(repr, exponentAt + 1, repr.length(), 10);
+            int decpt = (repr.charAt(0) == '0' ? -zerosAfterPoint : pointAt) + exponent;
+            while (length > 1 && digits[length - 1] == '0') {
+                length--;
+            }
+
+            // Up to 15 significant digits Double.toString is exact for normal doubles: only one
+            // such decimal fits in the rounding interval. Longer output, and any subnormal, may be
+            // neither the shortest nor the closest (JDK-4511638), so those are redone exactly.
+            if (length > 15 || Math.abs(d) < Double.MIN_NORMAL) {
+                BigDecimal shortest = shortestRoundTrip(Math.abs(d));
+                String unscaled = shortest.unscaledValue().toString();
+                length = unscaled.length();
+                for (int i = 0; i < length; i++) {
+                    digits[i] = (byte) unscaled.charAt(i);
+                }
+                decpt = length - shortest.scale();
+            }
+
+            if (d < 0) {
+                put((byte) '-');
+            }
+            if (decpt > -4 && decpt <= 16) {
+                if (decpt <= 0) {
+                    put((byte) '0');
+                    put((byte) '.');
+                    for (int i = decpt; i < 0; i++) {
+                        put((byte) '0');
+                    }
+                    put(digits, 0, length);
+                } else if (decpt >= length) {
+                    put(digits, 0, length);
+                    for (int i = length; i < decpt; i++) {
+                        put((byte) '0');
+                    }
+                    put((byte) '.');
+                    put((byte) '0');
+                } else {
+                    put(digits, 0, decpt);
+                    put((byte) '.');
+                    put(digits, decpt, length - decpt);
+                }
+            } else {
+                put(digits[0]);
+                if (length > 1) {
+                    put((byte) '.');
+                    put(digits, 1, length - 1);
+                }
+                int exp = decpt - 1;
+                put((byte) 'e');
+                put((byte) (exp < 0 ? '-' : '+'));
+                if (Math.abs(exp) < 10) {
+                    put((byte) '0');
+                }
+                writeLong(Math.abs(exp));
+            }
+        }
+
+        /**
+         * Shortest decimal that parses back to d, and the closest one when several
+         * of that length do - which is what Python's repr produces.
+         */
+        private static BigDecimal shortestRoundTrip(double d) {
+            BigDecimal exact = new BigDecimal(d);
+            BigDecimal best = exact.round(new MathContext(17, RoundingMode.HALF_EVEN));
+            for (int precision = 16; precision >= 1; precision--) {
+                BigDecimal rounded = exact.round(new MathContext(precision, RoundingMode.HALF_EVEN));
+                if (rounded.doubleValue() != d) {
+                    break;
+                }
+                best = rounded;
+            }
+            return best.stripTrailingZeros();
+        }
+
+        private void writeAscii(String s) {
+            for (int i = 0; i < s.length(); i++) {
+                put((byte) s.charAt(i));
+            }
+        }
+
+        private void put(byte b) {
+            if (position == buffer.length) {
+                flush();
+            }
+            buffer[position++] = b;
+        }
+
+        private void put(byte[] bytes) {
+            put(bytes, 0, bytes.length);
+        }
+
+        private void put(byte[] bytes, int offset, int length) {
+            for (int i = 0; i < length; i++) {
+                put(bytes[offset + i]);
+            }
+        }
+    }
+
+    private static final class DigestWriter extends Writer {
+        private final MessageDigest digest = sha256();
+
+        @Override
+        void drain(byte[] bytes, int length) {
+            digest.update(bytes, 0, length);
+        }
+
+        byte[] digest(Object data) {
+            try {
+                write(data);
+                flush();
+                return digest.digest();
+            } finally {
+                // Leave nothing behind if write() threw half way through
+                discard();
+                digest.reset();
+            }
+        }
+    }
+
+    private static final class CapturingWriter extends Writer {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+
+        @Override
+        void drain(byte[] bytes, int length) {
+            out.write(bytes, 0, length);
+        }
+    }
+}
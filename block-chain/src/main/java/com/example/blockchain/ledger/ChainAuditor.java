@@ -0,0 +1,324 @@
+package com.example.blockchain.ledger;
+
+import com.example.blockchain.model.BlockchainDocument;
+import com.example.blockchain.model.IntegrityFailure;
+import com.example.blockchain.model.IntegrityFailure.Kind;
+import com.example.blockchain.model.VerificationResult;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Full audit of the "documents" chain, ignoring the verified watermark. The
+ * sequence range is split into segments that are streamed and checked on a
+ * fork-join pool, each with its own cursor; the prev_hash links between
+ * segments are stitched together afterwards. Reports the first bad sequence.
+ * With the segment store enabled, each segment file is one audit segment and is
+ * checked straight from the mapping: the stored canonical JSON is hashed as is,
+ * without going through the driver or Jackson.
+ */
+@Service
+public class ChainAuditor {
+    private static final Logger logger = LoggerFactory.getLogger(ChainAuditor.class);
+
+    private static final byte[] GENESIS_PREV_HASH = new byte[SegmentRecord.DIGEST_SIZE];
+
+    private final MongoTemplate mongoTemplate;
+    private final TipCache tipCache;
+    private final SegmentStore segmentStore;
+
+    @Value("${blockchain.ledger.audit-parallelism:0}")
+    private int parallelism;
+
+    @Value("${blockchain.ledger.audit-segment-size:50000}")
+    private int segmentSize;
+
+    private ForkJoinPool pool;
+
+    public ChainAuditor(MongoTemplate mongoTemplate, TipCache tipCache, SegmentStore segmentStore) {
+        this.mongoTemplate = mongoTemplate;
+        this.tipCache = tipCache;
+        this.segmentStore = segmentStore;
+    }
+
+    @PostConstruct
+    public void start() {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        pool = new ForkJoinPool(threads);
+    }
+
+    @PreDestroy
+    public void stop() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Verify every block from genesis to the tip.
+     */
+    public VerificationResult audit() {
+        if (segmentStore.isEnabled() && segmentStore.getTipSequence() > 0) {
+            return audit(segmentStore.getTipSequence());
+        }
+        Query tipQuery = new Query().with(Sort.by(Sort.Direction.DESC, "sequence")).limit(1);
+        tipQuery.fields().include("sequence");
+        BlockchainDocument last = mongoTemplate.findOne(tipQuery, BlockchainDocument.class);
+        if (last == null) {
+            return fail(new IntegrityFailure(Kind.GAP, 1, "No documents found in the collection."), 0);
+        }
+        return audit(last.getSequence());
+    }
+
+    /**
+     * Verify blocks 1 to tip, reporting the first failure in chain order.
+     */
+    VerificationResult audit(int tip) {
+        long started = System.nanoTime();
+        boolean fromSegments = segmentStore.isEnabled() && segmentStore.getTipSequence() >= tip;
+        List<Segment> segments = fromSegments ? pool.invoke(new StoredSegmentsTask()) : pool.invoke(new SegmentTask(1, tip));
+        int checked = 0;
+        for (Segment segment : segments) {
+            checked += segment.checked;
+        }
+
+        Segment previous = null;
+        for (Segment segment : segments) {
+            if (segment.failure != null && segment.failure.getSequence() == segment.start) {
+                return fail(segment.failure, checked);
+            }
+            if (previous != null && segment.start != previous.lastSequence + 1) {
+                int missing = previous.lastSequence + 1;
+                return fail(new IntegrityFailure(Kind.GAP, missing, "Missing document at sequence " + missing + ". Chain broken."),
+                        checked);
+            }
+            if (previous != null && !previous.lastHash.equals(segment.firstPrevHash)) {
+                return fail(new IntegrityFailure(Kind.BROKEN_LINK, segment.start,
+                        "Chain broken at sequence " + segment.start + ". Previous hash mismatch."), checked);
+            }
+            if (segment.failure != null) {
+                return fail(segment.failure, checked);
+            }
+            previous = segment;
+        }
+
+        IntegrityFailure clone = findFirstClone();
+        if (clone != null) {
+            return fail(clone, checked);
+        }
+        if (previous.lastSequence < tip) {
+            return fail(new IntegrityFailure(Kind.GAP, previous.lastSequence + 1,
+                    "Missing document at sequence " + (previous.lastSequence + 1) + ". Chain broken."), checked);
+        }
+        // The collection is only an index when the segments hold the chain
+        long count = fromSegments ? tip : mongoTemplate.estimatedCount(BlockchainDocument.class);
+        if (count != tip) {
+            return fail(new IntegrityFailure(Kind.GAP, null,
+                    "Sequence mismatch: expected " + tip + " documents, found " + count), checked);
+        }
+        if (tipCache.isEnabled() && !previous.lastHash.equals(tipCache.read())) {
+            return fail(new IntegrityFailure(Kind.HASH_MISMATCH, tip,
+                    "Last document tampered. Cached hash does not match."), checked);
+        }
+
+        logger.info("Full chain audit passed: {} blocks in {} segments, {} ms", checked, segments.size(),
+                (System.nanoTime() - started) / 1_000_000);
+        return VerificationResult.valid(tip, checked);
+    }
+
+    private Segment scan(int start, int end) {
+        Segment segment = new Segment(start);
+        Query query = new Query(Criteria.where("sequence").gte(start).lte(end))
+                .with(Sort.by(Sort.Direction.ASC, "sequence"));
+        int expected = start;
+        String prevHash = null;
+        try (CloseableIterator<BlockchainDocument> blocks = mongoTemplate.stream(query, BlockchainDocument.class)) {
+            while (blocks.hasNext()) {
+                BlockchainDocument block = blocks.next();
+                IntegrityFailure failure = ChainVerifier.checkBlock(block, expected, prevHash);
+                if (failure != null) {
+                    segment.failure = failure;
+                    return segment;
+                }
+                if (expected == start) {
+                    segment.firstPrevHash = block.getPrevHash();
+                }
+                prevHash = block.getHash();
+                segment.lastHash = prevHash;
+                segment.lastSequence = expected;
+                segment.checked++;
+                expected++;
+            }
+        }
+        if (expected <= end) {
+            segment.failure = new IntegrityFailure(Kind.GAP, expected,
+                    "Missing document at sequence " + expected + ". Chain broken.");
+        }
+        return segment;
+    }
+
+    /**
+     * Check one segment file record by record, straight from the mapping.
+     */
+    private Segment scanStored(int segmentIndex, int start) {
+        Segment segment = new Segment(start);
+        HexFormat hex = HexFormat.of();
+        MessageDigest digest = CanonicalJson.sha256();
+        byte[] hash = new byte[SegmentRecord.DIGEST_SIZE];
+        byte[] prevHash = new byte[SegmentRecord.DIGEST_SIZE];
+        byte[] lastHash = new byte[SegmentRecord.DIGEST_SIZE];
+        int[] expected = {start};
+        segmentStore.scanSegment(segmentIndex, record -> {
+            int sequence = expected[0];
+            if (!record.crcValid()) {
+                segment.failure = new IntegrityFailure(Kind.HASH_MISMATCH, sequence,
+                        "Segment record for document " + sequence + " failed its CRC check.");
+                return false;
+            }
+            if (record.sequence() != sequence) {
+                segment.failure = new IntegrityFailure(Kind.GAP, sequence,
+                        "Missing document at sequence " + sequence + ". Chain broken.");
+                return false;
+            }
+            record.hash(hash);
+            record.prevHash(prevHash);
+            digest.update(record.data());
+            if (!MessageDigest.isEqual(digest.digest(), hash)) {
+                segment.failure = new IntegrityFailure(Kind.HASH_MISMATCH, sequence, "Data tampered in document " + sequence + ".");
+                return false;
+            }
+            boolean linked = sequence == 1 ? Arrays.equals(prevHash, GENESIS_PREV_HASH)
+                    : sequence == start || Arrays.equals(prevHash, lastHash);
+            if (!linked) {
+                segment.failure = new IntegrityFailure(Kind.BROKEN_LINK, sequence,
+                        "Chain broken at sequence " + sequence + ". Previous hash mismatch.");
+                return false;
+            }
+            byte[] message = hex.formatHex(hash).getBytes(StandardCharsets.US_ASCII);
+            if (!BlockSigner.verify(record.signature(), message, record.verifyKey())) {
+                segment.failure = new IntegrityFailure(Kind.BAD_SIGNATURE, sequence, "Invalid signature on document " + sequence + ".");
+                return false;
+            }
+            if (sequence == start) {
+                segment.firstPrevHash = hex.formatHex(prevHash);
+            }
+            System.arraycopy(hash, 0, lastHash, 0, hash.length);
+            segment.lastSequence = sequence;
+            segment.checked++;
+            expected[0]++;
+            return true;
+        });
+        if (segment.checked > 0) {
+            segment.lastHash = hex.formatHex(lastHash);
+        }
+        return segment;
+    }
+
+    /**
+     * Sequence of the earliest second copy of any data hash, or null if every hash is unique.
+     */
+    private IntegrityFailure findFirstClone() {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.group("hash").count().as("count").push("sequence").as("sequences"),
+                Aggregation.match(Criteria.where("count").gt(1)))
+                .withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+        Integer first = null;
+        for (Document group : mongoTemplate.aggregate(aggregation, BlockchainDocument.class, Document.class)) {
+            List<Integer> sequences = new ArrayList<>();
+            for (Number sequence : group.getList("sequences", Number.class)) {
+                sequences.add(sequence.intValue());
+            }
+            sequences.sort(null);
+            if (first == null || sequences.get(1) < first) {
+                first = sequences.get(1);
+            }
+        }
+        return first == null ? null : new IntegrityFailure(Kind.CLONE, first, "Cloned data detected in document " + first + ".");
+    }
+
+    private static VerificationResult fail(IntegrityFailure failure, int checked) {
+        logger.error("Full chain audit failed: {}", failure.getMessage());
+        Integer sequence = failure.getSequence();
+        return VerificationResult.invalid(failure, sequence == null ? 0 : sequence - 1, checked);
+    }
+
+    private final class SegmentTask extends RecursiveTask<List<Segment>> {
+        private final int start;
+        private final int end;
+
+        private SegmentTask(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected List<Segment> compute() {
+            if (end - start < segmentSize) {
+                List<Segment> single = new ArrayList<>(1);
+                single.add(scan(start, end));
+                return single;
+            }
+            int middle = start + (end - start) / 2;
+            SegmentTask left = new SegmentTask(start, middle);
+            left.fork();
+            List<Segment> right = new SegmentTask(middle + 1, end).compute();
+            List<Segment> segments = left.join();
+            segments.addAll(right);
+            return segments;
+        }
+    }
+
+    private final class StoredSegmentsTask extends RecursiveTask<List<Segment>> {
+        @Override
+        protected List<Segment> compute() {
+            int[] starts = segmentStore.segmentStarts();
+            List<ForkJoinTask<Segment>> tasks = new ArrayList<>(starts.length);
+            for (int i = 0; i < starts.length; i++) {
+                int index = i;
+                tasks.add(ForkJoinTask.adapt(() -> scanStored(index, starts[index])));
+            }
+            invokeAll(tasks);
+            List<Segment> segments = new ArrayList<>(starts.length);
+            for (ForkJoinTask<Segment> task : tasks) {
+                Segment segment = task.join();
+                if (segment.checked > 0 || segment.failure != null) {
+                    segments.add(segment);
+                }
+            }
+            return segments;
+        }
+    }
+
+    private static final class Segment {
+        private final int start;
+        private int lastSequence;
+        private String firstPrevHash;
+        private String lastHash;
+        private int checked;
+        private IntegrityFailure failure;
+
+        private Segment(int start) {
+            this.start = start;
+            this.lastSequence = start - 1;
+        }
+    }
+}
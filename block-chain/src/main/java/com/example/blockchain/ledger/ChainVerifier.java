@@ -0,0 +1,275 @@
+package com.example.blockchain.ledger;
+
+import com.example.blockchain.model.BlockchainDocument;
+import com.example.blockchain.model.ChainCheckpoint;
+import com.example.blockchain.model.IntegrityFailure;
+import com.example.blockchain.model.IntegrityFailure.Kind;
+import com.example.blockchain.model.TipSnapshot;
+import com.example.blockchain.model.VerificationResult;
+import com.example.blockchain.model.VerifiedWatermark;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Incremental version of chain_handler's verify_chain_integrity. Blocks up to the
+ * persisted watermark are trusted; each check re-hashes the watermark block and
+ * then walks only the blocks appended after it, in one ascending cursor.
+ * The walk stops at a tip snapshot taken from {@link LedgerEngine}, and the
+ * document count and tip cache are checked against that snapshot, so blocks
+ * appended while a check runs are left for the next one.
+ * Every {@value #CHECKPOINT_INTERVAL}th verified block is also recorded as a
+ * checkpoint, with a running digest over the span it closes, which
+ * {@link IntegrityLocator} uses to find tampered blocks.
+ */
+@Service
+public class ChainVerifier {
+    private static final Logger logger = LoggerFactory.getLogger(ChainVerifier.class);
+
+    private static final String GENESIS_PREV_HASH = "0".repeat(64);
+
+    // Clone checks and watermark saves happen once per chunk of this many blocks
+    private static final int CHUNK_SIZE = 1000;
+
+    static final int CHECKPOINT_INTERVAL = 1000;
+
+    private final MongoTemplate mongoTemplate;
+    private final TipCache tipCache;
+    private final LedgerEngine ledgerEngine;
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary blocksChecked;
+    private final Object verifyLock = new Object();
+
+    public ChainVerifier(MongoTemplate mongoTemplate, TipCache tipCache, LedgerEngine ledgerEngine,
+                         MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.tipCache = tipCache;
+        this.ledgerEngine = ledgerEngine;
+        this.meterRegistry = meterRegistry;
+        this.blocksChecked = DistributionSummary.builder("blockchain.ledger.verify.blocks")
+                .description("Blocks walked per incremental verification")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Verify every block appended since the last successful check and advance the watermark.
+     * Timed as blockchain.ledger.verify, including any wait for a check already running.
+     */
+    public VerificationResult verify() {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        VerificationResult result = verifySinceWatermark();
+        String outcome = result.isValid() ? "valid"
+                : result.getFailureKind() == null ? "invalid" : result.getFailureKind().name().toLowerCase(Locale.ROOT);
+        sample.stop(Timer.builder("blockchain.ledger.verify")
+                .description("Incremental chain verification")
+                .tag("result", outcome)
+                .register(meterRegistry));
+        blocksChecked.record(result.getBlocksChecked());
+        return result;
+    }
+
+    private VerificationResult verifySinceWatermark() {
+        synchronized (verifyLock) {
+            VerifiedWatermark watermark = mongoTemplate.findById(VerifiedWatermark.ID, VerifiedWatermark.class);
+            int verified = watermark == null ? 0 : watermark.getSequence();
+            String prevHash = watermark == null ? null : watermark.getHash();
+            // The open span's digest carries on from the watermark; a span begun before digests were kept gets none
+            String spanDigest = watermark == null ? null : watermark.getSpanDigest();
+            boolean spanKnown = verified % CHECKPOINT_INTERVAL == 0 || spanDigest != null;
+
+            if (watermark != null) {
+                BlockchainDocument anchor = mongoTemplate.findOne(
+                        new Query(Criteria.where("sequence").is(verified)), BlockchainDocument.class);
+                if (anchor == null || !watermark.getHash().equals(anchor.getHash())
+                        || !anchor.getHash().equals(CanonicalJson.hash(anchor.getData()))) {
+                    return fail(new IntegrityFailure(Kind.HASH_MISMATCH, verified,
+                            "Verified block " + verified + " has been modified or removed"), verified, 0);
+                }
+            }
+
+            TipSnapshot snapshot = ledgerEngine.snapshotTip();
+            int tip = snapshot.getSequence();
+            if (tip == 0) {
+                return fail("No documents found in the collection.", 0, 0);
+            }
+            if (tip < verified) {
+                return fail(new IntegrityFailure(Kind.GAP, tip + 1, "Chain ends at sequence " + tip
+                        + ", below the verified sequence " + verified), verified, 0);
+            }
+
+            int expected = verified + 1;
+            int checked = 0;
+            List<String> chunkHashes = new ArrayList<>(CHUNK_SIZE);
+            List<ChainCheckpoint> checkpoints = new ArrayList<>();
+            Query query = new Query(Criteria.where("sequence").gt(verified).lte(tip))
+                    .with(Sort.by(Sort.Direction.ASC, "sequence"));
+
+            try (CloseableIterator<BlockchainDocument> blocks = mongoTemplate.stream(query, BlockchainDocument.class)) {
+                while (blocks.hasNext()) {
+                    BlockchainDocument block = blocks.next();
+                    IntegrityFailure failure = checkBlock(block, expected, prevHash);
+                    if (failure != null) {
+                        return fail(failure, verified, checked);
+                    }
+
+                    chunkHashes.add(block.getHash());
+                    if (spanKnown) {
+                        spanDigest = foldSpan(spanDigest, block);
+                    }
+                    if (expected % CHECKPOINT_INTERVAL == 0) {
+                        checkpoints.add(new ChainCheckpoint(expected, block.getHash(), spanDigest, now()));
+                        spanDigest = null;
+                        spanKnown = true;
+                    }
+                    prevHash = block.getHash();
+                    checked++;
+                    expected++;
+
+                    if (chunkHashes.size() == CHUNK_SIZE) {
+                        failure = findFirstClone(chunkHashes);
+                        if (failure != null) {
+                            return fail(failure, verified, checked);
+                        }
+                        chunkHashes.clear();
+                        verified = expected - 1;
+                        saveWatermark(verified, prevHash, spanDigest, checkpoints);
+                    }
+                }
+            }
+
+            IntegrityFailure clone = chunkHashes.isEmpty() ? null : findFirstClone(chunkHashes);
+            if (clone != null) {
+                return fail(clone, verified, checked);
+            }
+            if (expected <= tip) {
+                return fail(new IntegrityFailure(Kind.GAP, expected,
+                        "Missing document at sequence " + expected + ". Chain broken."), verified, checked);
+            }
+            // Extra documents up to the snapshot tip, e.g. a second block claiming an old sequence
+            long count = mongoTemplate.count(new Query(Criteria.where("sequence").lte(tip)), BlockchainDocument.class);
+            if (count != tip) {
+                return fail(new IntegrityFailure(Kind.GAP, null,
+                        "Sequence mismatch: expected " + tip + " documents, found " + count), verified, checked);
+            }
+            if (!prevHash.equals(snapshot.getHash())) {
+                return fail(new IntegrityFailure(Kind.HASH_MISMATCH, tip,
+                        "Last document tampered. Stored hash does not match the ledger tip."), verified, checked);
+            }
+            if (tipCache.isEnabled() && !prevHash.equals(snapshot.getCachedHash())) {
+                return fail(new IntegrityFailure(Kind.HASH_MISMATCH, tip,
+                        "Last document tampered. Cached hash does not match."), verified, checked);
+            }
+
+            if (tip != verified) {
+                saveWatermark(tip, prevHash, spanDigest, checkpoints);
+            }
+            logger.info("Chain integrity verified up to sequence {} ({} new blocks checked)", tip, checked);
+            return VerificationResult.valid(tip, checked);
+        }
+    }
+
+    /**
+     * Check one block in isolation plus its link to the previous one.
+     *
+     * @param expected the sequence the block should have
+     * @param prevHash hash of block expected - 1, or null to skip the link check
+     *                 (genesis is always checked against the all-zero hash)
+     * @return the failure, or null if the block is intact
+     */
+    static IntegrityFailure checkBlock(BlockchainDocument block, int expected, String prevHash) {
+        if (block.getSequence() != expected) {
+            return new IntegrityFailure(Kind.GAP, expected, "Missing document at sequence " + expected + ". Chain broken.");
+        }
+        if (!CanonicalJson.hash(block.getData()).equals(block.getHash())) {
+            return new IntegrityFailure(Kind.HASH_MISMATCH, expected, "Data tampered in document " + expected + ".");
+        }
+        String expectedPrev = expected == 1 ? GENESIS_PREV_HASH : prevHash;
+        if (expectedPrev != null && !expectedPrev.equals(block.getPrevHash())) {
+            return new IntegrityFailure(Kind.BROKEN_LINK, expected,
+                    "Chain broken at sequence " + expected + ". Previous hash mismatch.");
+        }
+        if (!BlockSigner.verify(block.getHash(), block.getSignature(), block.getVerifyKey())) {
+            return new IntegrityFailure(Kind.BAD_SIGNATURE, expected, "Invalid signature on document " + expected + ".");
+        }
+        return null;
+    }
+
+    /**
+     * The earliest block whose data is also stored in another block, looking only
+     * at the given hashes; null if each of them is stored exactly once.
+     */
+    IntegrityFailure findFirstClone(List<String> hashes) {
+        Query query = new Query(Criteria.where("hash").in(hashes));
+        query.fields().include("hash").include("sequence");
+        Map<String, Integer> firstSeen = new HashMap<>();
+        Integer clone = null;
+        for (BlockchainDocument block : mongoTemplate.find(query.with(Sort.by(Sort.Direction.ASC, "sequence")),
+                BlockchainDocument.class)) {
+            Integer original = firstSeen.putIfAbsent(block.getHash(), block.getSequence());
+            if (original != null && (clone == null || block.getSequence() < clone)) {
+                clone = block.getSequence();
+            }
+        }
+        return clone == null ? null : new IntegrityFailure(Kind.CLONE, clone, "Cloned data detected in document " + clone + ".");
+    }
+
+    /**
+     * Fold one verified block into the running digest of its checkpoint span: SHA-256 of
+     * the previous digest and the block's sequence, hash, link, signature and key. The data
+     * is pinned by the hash, so a span whose digest still matches needs no signature checks.
+     *
+     * @param digest the digest so far, or null at the start of a span
+     */
+    static String foldSpan(String digest, BlockchainDocument block) {
+        MessageDigest sha = CanonicalJson.sha256();
+        if (digest != null) {
+            sha.update(HexFormat.of().parseHex(digest));
+        }
+        String fields = block.getSequence() + "\n" + block.getHash() + "\n" + block.getPrevHash() + "\n"
+                + block.getSignature() + "\n" + block.getVerifyKey();
+        return HexFormat.of().formatHex(sha.digest(fields.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private void saveWatermark(int sequence, String hash, String spanDigest, List<ChainCheckpoint> checkpoints) {
+        if (!checkpoints.isEmpty()) {
+            for (ChainCheckpoint checkpoint : checkpoints) {
+                mongoTemplate.save(checkpoint);
+            }
+            checkpoints.clear();
+        }
+        mongoTemplate.save(new VerifiedWatermark(sequence, hash, spanDigest, now()));
+    }
+
+    private static double now() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() + now.getNano() / 1_000_000_000.0;
+    }
+
+    private static VerificationResult fail(String message, int verified, int checked) {
+        logger.error("Chain integrity check failed: {}", message);
+        return VerificationResult.invalid(message, verified, checked);
+    }
+
+    private static VerificationResult fail(IntegrityFailure failure, int verified, int checked) {
+        logger.error("Chain integrity check failed: {}", failure.getMessage());
+        return VerificationResult.invalid(failure, verified, checked);
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.blockchain.ledger;
+
+import com.example.blockchain.model.BlockchainDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Service;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Duplicate-data detection for appends. A unique index on the data hash makes
+ * clones impossible to store; an in-memory Bloom filter in front of it answers
+ * "never stored" without a round trip, so only filter hits are looked up.
+ * The filter is rebuilt from the collection at startup, sized from its document count.
+ * Both only apply to the native engine: while chain_handler is the writer, its
+ * clone check is the one that runs, and the index is left as it finds it.
+ */
+@Service
+public class HashIndex {
+    private static final Logger logger = LoggerFactory.getLogger(HashIndex.class);
+
+    private static final long MIN_CAPACITY = 1 << 16;
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${blockchain.ledger.bloom-false-positive-rate:0.001}")
+    private double falsePositiveRate;
+
+    @Value("${blockchain.ledger.engine:fastapi}")
+    private String ledgerEngineMode;
+
+    private volatile BloomFilter filter;
+    private long indexedSequence;
+    private long indexedCount;
+
+    public HashIndex(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!isNative()) {
+            return;
+        }
+        Schedulers.boundedElastic().schedule(() -> {
+            try {
+                catchUp(0);
+            } catch (RuntimeException e) {
+                logger.warn("Could not build hash index at startup, will retry on first append: {}", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Sequence of any stored block whose hash is among the given ones, keyed by hash.
+     *
+     * @param hashes      candidate data hashes
+     * @param tipSequence the chain tip the caller is appending after; blocks up to it
+     *                    that the filter has not seen yet are folded in first
+     */
+    public Map<String, Integer> findStored(Collection<String> hashes, int tipSequence) {
+        catchUp(tipSequence);
+        BloomFilter current = filter;
+        List<String> maybeStored = new ArrayList<>();
+        for (String hash : hashes) {
+            if (current.mightContain(hash)) {
+                maybeStored.add(hash);
+            }
+        }
+        Map<String, Integer> stored = new HashMap<>();
+        if (maybeStored.isEmpty()) {
+            return stored;
+        }
+        Query query = new Query(Criteria.where("hash").in(maybeStored));
+        query.fields().include("hash").include("sequence");
+        for (BlockchainDocument existing : mongoTemplate.find(query, BlockchainDocument.class)) {
+            stored.put(existing.getHash(), existing.getSequence());
+        }
+        return stored;
+    }
+
+    /**
+     * Record freshly inserted blocks, which must directly follow what has been indexed.
+     */
+    public synchronized void add(List<BlockchainDocument> blocks) {
+        if (filter == null || blocks.isEmpty() || blocks.get(0).getSequence() != indexedSequence + 1) {
+            // Out of step; the next findStored catches up from the collection
+            return;
+        }
+        for (BlockchainDocument block : blocks) {
+            filter.put(block.getHash());
+        }
+        indexedSequence = blocks.get(blocks.size() - 1).getSequence();
+        indexedCount += blocks.size();
+        if (indexedCount > filter.expectedInsertions()) {
+            rebuild();
+        }
+    }
+
+    private synchronized void catchUp(int tipSequence) {
+        if (filter == null) {
+            rebuild();
+            return;
+        }
+        if (tipSequence <= indexedSequence) {
+            return;
+        }
+        Query query = new Query(Criteria.where("sequence").gt(indexedSequence))
+                .with(Sort.by(Sort.Direction.ASC, "sequence"));
+        query.fields().include("hash").include("sequence");
+        try (CloseableIterator<BlockchainDocument> blocks = mongoTemplate.stream(query, BlockchainDocument.class)) {
+            while (blocks.hasNext()) {
+                BlockchainDocument block = blocks.next();
+                if (block.getHash() != null) {
+                    filter.put(block.getHash());
+                }
+                indexedSequence = Math.max(indexedSequence, block.getSequence());
+                indexedCount++;
+            }
+        }
+        if (indexedCount > filter.expectedInsertions()) {
+            rebuild();
+        }
+    }
+
+    private void rebuild() {
+        if (isNative()) {
+            try {
+                mongoTemplate.indexOps(BlockchainDocument.class).ensureIndex(new Index("hash", Sort.Direction.ASC).unique());
+            } catch (RuntimeException e) {
+                // Fails when clones are already stored; the filter still catches new ones
+                logger.warn("Could not ensure unique hash index: {}", e.getMessage());
+            }
+        }
+
+        long count = mongoTemplate.estimatedCount(BlockchainDocument.class);
+        BloomFilter rebuilt = BloomFilter.create(Math.max(MIN_CAPACITY, count * 2), falsePositiveRate);
+        long sequence = 0;
+        long indexed = 0;
+        Query query = new Query();
+        query.fields().include("hash").include("sequence");
+        try (CloseableIterator<BlockchainDocument> blocks = mongoTemplate.stream(query, BlockchainDocument.class)) {
+            while (blocks.hasNext()) {
+                BlockchainDocument block = blocks.next();
+                if (block.getHash() != null) {
+                    rebuilt.put(block.getHash());
+                }
+                sequence = Math.max(sequence, block.getSequence());
+                indexed++;
+            }
+        }
+        filter = rebuilt;
+        indexedSequence = sequence;
+        indexedCount = indexed;
+        logger.info("Built hash filter over {} documents (capacity {})", indexed, rebuilt.expectedInsertions());
+    }
+
+    private boolean isNative() {
+        return "native".equalsIgnoreCase(ledgerEngineMode);
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.blockchain.ledger;
+
+import com.example.blockchain.model.BlockchainDocument;
+import com.example.blockchain.model.ChainCheckpoint;
+import com.example.blockchain.model.IntegrityFailure;
+import com.example.blockchain.model.IntegrityFailure.Kind;
+import com.example.blockchain.model.IntegrityReport;
+import com.example.blockchain.model.IntegrityReport.Status;
+import com.example.blockchain.model.TipSnapshot;
+import com.example.blockchain.model.VerificationResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds the first bad block without verifying every signature. Each checkpoint
+ * recorded by {@link ChainVerifier} carries a digest over the span it closes, so
+ * the spans are checked one by one against their own digest, re-hashing the data
+ * but skipping signatures; only the first span that no longer matches is walked
+ * block by block. Blocks after the last checkpoint are always walked in full.
+ */
+@Service
+public class IntegrityLocator {
+    private static final Logger logger = LoggerFactory.getLogger(IntegrityLocator.class);
+
+    private static final String METHOD_CHECKPOINTS = "checkpoints";
+    private static final String METHOD_AUDIT = "audit";
+
+    private final MongoTemplate mongoTemplate;
+    private final ChainVerifier chainVerifier;
+    private final ChainAuditor chainAuditor;
+    private final TipCache tipCache;
+    private final LedgerEngine ledgerEngine;
+
+    public IntegrityLocator(MongoTemplate mongoTemplate, ChainVerifier chainVerifier, ChainAuditor chainAuditor,
+                            TipCache tipCache, LedgerEngine ledgerEngine) {
+        this.mongoTemplate = mongoTemplate;
+        this.chainVerifier = chainVerifier;
+        this.chainAuditor = chainAuditor;
+        this.tipCache = tipCache;
+        this.ledgerEngine = ledgerEngine;
+    }
+
+    /**
+     * Locate the first bad block.
+     *
+     * @param deep also audit the whole chain block by block, signatures included; without
+     *             it, spans closed by checkpoints recorded before digests were kept can only
+     *             be probed at the checkpoint, and a clean result names them as unchecked
+     */
+    public IntegrityReport report(boolean deep) {
+        TipSnapshot snapshot = ledgerEngine.snapshotTip();
+        int tip = snapshot.getSequence();
+
+        List<ChainCheckpoint> checkpoints = mongoTemplate.find(
+                new Query().with(Sort.by(Sort.Direction.ASC, "sequence")), ChainCheckpoint.class);
+        int end = Math.max(tip, checkpoints.isEmpty() ? 0 : checkpoints.get(checkpoints.size() - 1).getSequence());
+        if (end == 0) {
+            return invalid(new IntegrityFailure(Kind.GAP, 1, "No documents found in the collection."),
+                    0, 0, 0, 0, METHOD_CHECKPOINTS);
+        }
+
+        int lastGood = 0;
+        String lastGoodHash = null;
+        int scanned = 0;
+        Integer uncheckedFrom = null;
+        Integer uncheckedTo = null;
+        for (ChainCheckpoint checkpoint : checkpoints) {
+            boolean intact;
+            if (checkpoint.getDigest() == null) {
+                // Recorded before digests were kept: only the checkpointed block itself can be probed
+                BlockchainDocument block = mongoTemplate.findOne(
+                        new Query(Criteria.where("sequence").is(checkpoint.getSequence())), BlockchainDocument.class);
+                intact = block != null && checkpoint.getHash().equals(block.getHash())
+                        && block.getHash().equals(CanonicalJson.hash(block.getData()));
+                if (intact) {
+                    uncheckedFrom = uncheckedFrom == null ? lastGood + 1 : uncheckedFrom;
+                    uncheckedTo = checkpoint.getSequence();
+                }
+            } else {
+                intact = spanMatches(lastGood, checkpoint);
+            }
+            if (!intact) {
+                return locate(lastGood, lastGoodHash, checkpoint, end, tip, scanned);
+            }
+            if (checkpoint.getDigest() != null) {
+                scanned += checkpoint.getSequence() - lastGood;
+            }
+            lastGood = checkpoint.getSequence();
+            lastGoodHash = checkpoint.getHash();
+        }
+
+        // Walk the blocks no checkpoint covers yet, up to the tip snapshot
+        int expected = lastGood + 1;
+        String prevHash = lastGoodHash;
+        List<String> hashes = new ArrayList<>();
+        try (CloseableIterator<BlockchainDocument> blocks = stream(lastGood, tip)) {
+            while (blocks.hasNext()) {
+                BlockchainDocument block = blocks.next();
+                IntegrityFailure failure = ChainVerifier.checkBlock(block, expected, prevHash);
+                if (failure != null) {
+                    return invalid(failure, end, lastGood, tip, scanned, METHOD_CHECKPOINTS);
+                }
+                hashes.add(block.getHash());
+                prevHash = block.getHash();
+                scanned++;
+                expected++;
+            }
+        }
+        if (expected <= tip) {
+            return invalid(new IntegrityFailure(Kind.GAP, expected, "Missing document at sequence " + expected + ". Chain broken."),
+                    end, lastGood, tip, scanned, METHOD_CHECKPOINTS);
+        }
+        IntegrityFailure clone = hashes.isEmpty() ? null : chainVerifier.findFirstClone(hashes);
+        if (clone != null) {
+            return invalid(clone, end, lastGood, tip, scanned, METHOD_CHECKPOINTS);
+        }
+        if (tipCache.isEnabled() && prevHash != null && !prevHash.equals(snapshot.getCachedHash())) {
+            return invalid(new IntegrityFailure(Kind.HASH_MISMATCH, tip, "Last document tampered. Cached hash does not match."),
+                    end, lastGood, tip, scanned, METHOD_CHECKPOINTS);
+        }
+
+        if (deep && lastGood > 0) {
+            VerificationResult audit = chainAuditor.audit(tip);
+            if (!audit.isValid()) {
+                IntegrityFailure failure = new IntegrityFailure(audit.getFailureKind(), audit.getFirstFailedSequence(),
+                        audit.getMessage());
+                return invalid(failure, end, lastGood, tip, audit.getBlocksChecked(), METHOD_AUDIT);
+            }
+            return new IntegrityReport(Status.VALID, "Chain integrity verified", null, null, null, null,
+                    lastGood, tip, audit.getBlocksChecked(), METHOD_AUDIT, null, null);
+        }
+        if (uncheckedFrom != null) {
+            return new IntegrityReport(Status.UNCHECKED, "No damage found, but blocks " + uncheckedFrom + " to "
+                    + uncheckedTo + " predate checkpoint digests and were only probed at their checkpoints."
+                    + " Request deep=true to verify them.", null, null, null, null,
+                    lastGood, tip, scanned, METHOD_CHECKPOINTS, uncheckedFrom, uncheckedTo);
+        }
+        return new IntegrityReport(Status.VALID, "Chain integrity verified", null, null, null, null,
+                lastGood, tip, scanned, METHOD_CHECKPOINTS, null, null);
+    }
+
+    /**
+     * Whether the span after {@code from} up to the checkpoint is complete, every block still
+     * hashes to its data, and the span folds to the checkpoint's digest.
+     */
+    private boolean spanMatches(int from, ChainCheckpoint checkpoint) {
+        int expected = from + 1;
+        String digest = null;
+        String lastHash = null;
+        try (CloseableIterator<BlockchainDocument> blocks = stream(from, checkpoint.getSequence())) {
+            while (blocks.hasNext()) {
+                BlockchainDocument block = blocks.next();
+                if (block.getSequence() != expected || !block.getHash().equals(CanonicalJson.hash(block.getData()))) {
+                    return false;
+                }
+                digest = ChainVerifier.foldSpan(digest, block);
+                lastHash = block.getHash();
+                expected++;
+            }
+        }
+        return expected == checkpoint.getSequence() + 1 && checkpoint.getHash().equals(lastHash)
+                && checkpoint.getDigest().equals(digest);
+    }
+
+    /**
+     * Walk a span that failed its checkpoint block by block, from the last good checkpoint.
+     */
+    private IntegrityReport locate(int lastGood, String lastGoodHash, ChainCheckpoint firstBad, int end, int tip,
+                                   int scanned) {
+        int spanEnd = firstBad.getSequence();
+        int expected = lastGood + 1;
+        String prevHash = lastGoodHash;
+        List<String> hashes = new ArrayList<>();
+        try (CloseableIterator<BlockchainDocument> blocks = stream(lastGood, spanEnd)) {
+            while (blocks.hasNext()) {
+                BlockchainDocument block = blocks.next();
+                IntegrityFailure failure = ChainVerifier.checkBlock(block, expected, prevHash);
+                if (failure != null) {
+                    return invalid(failure, end, lastGood, tip, scanned, METHOD_CHECKPOINTS);
+                }
+                hashes.add(block.getHash());
+                prevHash = block.getHash();
+                scanned++;
+                expected++;
+            }
+        }
+        if (expected <= spanEnd) {
+            return invalid(new IntegrityFailure(Kind.GAP, expected, "Missing document at sequence " + expected + ". Chain broken."),
+                    end, lastGood, tip, scanned, METHOD_CHECKPOINTS);
+        }
+        IntegrityFailure clone = hashes.isEmpty() ? null : chainVerifier.findFirstClone(hashes);
+        if (clone != null) {
+            return invalid(clone, end, lastGood, tip, scanned, METHOD_CHECKPOINTS);
+        }
+        // Every block checks out on its own, so the span was rewritten wholesale, e.g. re-signed with another key
+        return invalid(new IntegrityFailure(Kind.HASH_MISMATCH, lastGood + 1, "Blocks " + (lastGood + 1) + " to "
+                        + spanEnd + " no longer match checkpoint " + spanEnd + "."),
+                end, lastGood, tip, scanned, METHOD_CHECKPOINTS);
+    }
+
+    private CloseableIterator<BlockchainDocument> stream(int after, int upTo) {
+        Query query = new Query(Criteria.where("sequence").gt(after).lte(upTo))
+                .with(Sort.by(Sort.Direction.ASC, "sequence"));
+        return mongoTemplate.stream(query, BlockchainDocument.class);
+    }
+
+    private static IntegrityReport invalid(IntegrityFailure failure, int end, int lastGood, int tip, int scanned,
+                                           String method) {
+        logger.error("Integrity report: {} ({})", failure.getMessage(), failure.getKind());
+        Integer from = failure.getSequence();
+        return new IntegrityReport(Status.INVALID, failure.getMessage(), from, failure.getKind(), from,
+                from == null ? null : Math.max(end, from), lastGood, tip, scanned, method, null, null);
+    }
+}
@@ -0,0 +1,541 @@
+package com.example.blockchain.ledger;
+
+import com.example.blockchain.exception.LedgerException;
+import com.example.blockchain.model.BatchItemResult;
+import com.example.blockchain.model.BlockchainDocument;
+import com.example.blockchain.model.TipSnapshot;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process append engine for the "documents" chain. Produces the same documents
+ * as chain_handler's insert_document (hash, PyNaCl-style signature, prev_hash link,
+ * sequence) without the FastAPI hop and without rescanning the collection.
+ * Request paths go through {@link AppendPipeline}, which is its only writer.
+ * With the segment store enabled, blocks are written to the segment files first
+ * and the collection is kept in step as a query index. Otherwise each group is
+ * logged to the {@link WriteAheadLog} (one fsync) before the insert, and the log
+ * is replayed on load.
+ * <p>
+ * Signing, the log and the store writes are timed, and the chain length and
+ * the age of the tip block are published as gauges.
+ */
+@Service
+public class LedgerEngine {
+    private static final Logger logger = LoggerFactory.getLogger(LedgerEngine.class);
+
+    private static final int RECONCILE_CHUNK = 1000;
+
+    private final MongoTemplate mongoTemplate;
+    private final BlockSigner signer;
+    private final TipCache tipCache;
+    private final MerkleAccumulator merkleAccumulator;
+    private final HashIndex hashIndex;
+    private final SegmentStore segmentStore;
+    private final WriteAheadLog writeAheadLog;
+    private final MeterRegistry meterRegistry;
+    private final Timer signTimer;
+    private final Timer walTimer;
+
+    private final AtomicInteger sequence = new AtomicInteger();
+    private final Object appendLock = new Object();
+    private volatile String tipHash;
+    private volatile boolean loaded;
+    private volatile double tipTimestamp;
+    // Stamps new blocks; tests pin it to append the same data twice
+    private Clock clock = Clock.systemUTC();
+
+    public LedgerEngine(MongoTemplate mongoTemplate, BlockSigner signer, TipCache tipCache,
+                        MerkleAccumulator merkleAccumulator, HashIndex hashIndex, SegmentStore segmentStore,
+                        WriteAheadLog writeAheadLog, MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.signer = signer;
+        this.tipCache = tipCache;
+        this.merkleAccumulator = merkleAccumulator;
+        this.hashIndex = hashIndex;
+        this.segmentStore = segmentStore;
+        this.writeAheadLog = writeAheadLog;
+        this.meterRegistry = meterRegistry;
+        this.signTimer = Timer.builder("blockchain.ledger.sign")
+                .description("Signing one block")
+                .register(meterRegistry);
+        this.walTimer = Timer.builder("blockchain.ledger.wal.append")
+                .description("Logging and syncing one group to the write-ahead log")
+                .register(meterRegistry);
+        Gauge.builder("blockchain.chain.length", this, LedgerEngine::chainLength)
+                .description("Sequence of the chain tip")
+                .register(meterRegistry);
+        Gauge.builder("blockchain.chain.tip.age", this, LedgerEngine::tipAgeSeconds)
+                .description("Seconds since the tip block was appended")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Append several payloads as consecutive blocks with a single insertMany.
+     * Payloads that cannot be stored (clones, unserializable data) are reported
+     * as failed and do not consume a sequence; the rest are chained in order.
+     *
+     * @param items the payloads to store, in chain order
+     * @return one result per payload, in the same order
+     */
+    public List<BatchItemResult> appendBatch(List<Map<String, Object>> items) {
+        synchronized (appendLock) {
+            ensureLoaded();
+
+            BatchItemResult[] results = new BatchItemResult[items.size()];
+            List<BlockchainDocument> blocks = new ArrayList<>(items.size());
+            List<Integer> blockIndexes = new ArrayList<>(items.size());
+            Set<String> batchHashes = new HashSet<>();
+            String prevHash = tipHash;
+            int nextSequence = sequence.get() + 1;
+
+            // Build the chain first so clones can be ruled out with one query
+            List<BlockchainDocument> candidates = new ArrayList<>(items.size());
+            for (int i = 0; i < items.size(); i++) {
+                try {
+                    candidates.add(buildBlock(items.get(i), null, 0));
+                } catch (RuntimeException e) {
+                    candidates.add(null);
+                    results[i] = BatchItemResult.failed(i, "Failed to store data: " + e.getMessage());
+                } catch (StackOverflowError e) {
+                    // Hashing recurses into the payload; nothing has been written yet, so only this item fails
+                    candidates.add(null);
+                    results[i] = BatchItemResult.failed(i, "Failed to store data: payload is nested too deeply");
+                }
+            }
+            Map<String, Integer> storedHashes = findStoredHashes(candidates);
+
+            for (int i = 0; i < candidates.size(); i++) {
+                BlockchainDocument block = candidates.get(i);
+                if (block == null) {
+                    continue;
+                }
+                if (storedHashes.containsKey(block.getHash())) {
+                    results[i] = BatchItemResult.failed(i, "Data cloning detected in document " + storedHashes.get(block.getHash()));
+                    continue;
+                }
+                if (!batchHashes.add(block.getHash())) {
+                    results[i] = BatchItemResult.failed(i, "Data cloning detected within the same batch");
+                    continue;
+                }
+                block.setPrevHash(prevHash);
+                block.setSequence(nextSequence++);
+                prevHash = block.getHash();
+                blocks.add(block);
+                blockIndexes.add(i);
+            }
+
+            if (!blocks.isEmpty() && segmentStore.isEnabled()) {
+                List<BlockchainDocument> written = writeSegments(blocks);
+                for (int i = written.size(); i < blockIndexes.size(); i++) {
+                    int index = blockIndexes.get(i);
+                    results[index] = BatchItemResult.failed(index, "Failed to store data in segment store");
+                }
+                blocks = written;
+                indexInMongo(blocks);
+            } else if (!blocks.isEmpty()) {
+                boolean logged = writeAheadLog.isEnabled();
+                if (logged) {
+                    List<BlockchainDocument> group = blocks;
+                    walTimer.record(() -> writeAheadLog.append(group));
+                }
+                Timer.Sample persist = Timer.start(meterRegistry);
+                try {
+                    mongoTemplate.insert(blocks, BlockchainDocument.class);
+                    persist.stop(persistTimer("mongo", "success"));
+                } catch (DataAccessException e) {
+                    persist.stop(persistTimer("mongo", "failure"));
+                    // An ordered insertMany may have written a prefix of the batch before failing
+                    loaded = false;
+                    logger.error("Batch insert failed: {}", e.getMessage());
+                    blocks = keepPersisted(blocks);
+                    if (logged) {
+                        // Callers are told these failed, so they must not come back on replay
+                        writeAheadLog.rollbackAfter(blocks.isEmpty() ? sequence.get()
+                                : blocks.get(blocks.size() - 1).getSequence());
+                    }
+                    for (int i = blocks.size(); i < blockIndexes.size(); i++) {
+                        int index = blockIndexes.get(i);
+                        results[index] = BatchItemResult.failed(index, "Failed to store data: " + e.getMessage());
+                    }
+                }
+            }
+
+            for (int i = 0; i < blocks.size(); i++) {
+                int index = blockIndexes.get(i);
+                results[index] = BatchItemResult.stored(index, blocks.get(i));
+            }
+            if (!blocks.isEmpty()) {
+                advanceTip(blocks.get(blocks.size() - 1));
+                if (loaded && writeAheadLog.isEnabled() && !segmentStore.isEnabled()) {
+                    writeAheadLog.checkpoint();
+                }
+                hashIndex.add(blocks);
+                updateMerkleTree(blocks);
+                logger.info("Inserted {} documents, sequences {} to {}", blocks.size(),
+                        blocks.get(0).getSequence(), blocks.get(blocks.size() - 1).getSequence());
+            }
+            return Arrays.asList(results);
+        }
+    }
+
+    /**
+     * Up to limit consecutive blocks starting at fromSequence, from the segment
+     * files when they hold the chain and from the collection otherwise.
+     */
+    public List<BlockchainDocument> readBlocks(int fromSequence, int limit) {
+        if (segmentStore.isEnabled()) {
+            return segmentStore.readRange(fromSequence, limit);
+        }
+        Query query = new Query(Criteria.where("sequence").gte(fromSequence))
+                .with(Sort.by(Sort.Direction.ASC, "sequence"))
+                .limit(limit);
+        return mongoTemplate.find(query, BlockchainDocument.class);
+    }
+
+    /**
+     * Sequence of the last appended block, or 0 before the tip has been loaded.
+     */
+    public int getTipSequence() {
+        return sequence.get();
+    }
+
+    public String getTipHash() {
+        return tipHash;
+    }
+
+    /**
+     * Hash of the chain tip: the loaded tip, or the collection's last block while
+     * this engine is not the writer. Null when the chain is empty.
+     */
+    public String findTipHash() {
+        if (loaded) {
+            return tipHash;
+        }
+        BlockchainDocument last = findStoredTip();
+        return last == null ? null : last.getHash();
+    }
+
+    /**
+     * The tip and the tip cache read together under the append lock, so neither can
+     * move past the other: the loaded tip, or the collection's last block while this
+     * engine is not the writer. While chain_handler is the writer nothing can hold it
+     * back, so a store racing the snapshot may still leave the cache one block behind.
+     */
+    public TipSnapshot snapshotTip() {
+        synchronized (appendLock) {
+            String cached = tipCache.isEnabled() ? tipCache.read() : null;
+            if (loaded) {
+                return new TipSnapshot(sequence.get(), tipHash, cached);
+            }
+            Query query = new Query().with(Sort.by(Sort.Direction.DESC, "sequence")).limit(1);
+            query.fields().include("sequence").include("hash");
+            BlockchainDocument last = mongoTemplate.findOne(query, BlockchainDocument.class);
+            return last == null ? new TipSnapshot(0, null, cached)
+                    : new TipSnapshot(last.getSequence(), last.getHash(), cached);
+        }
+    }
+
+    /**
+     * Chain length for the gauge: the loaded tip, or the collection's highest
+     * sequence while this engine is not the writer (the fastapi engine).
+     */
+    private double chainLength() {
+        if (loaded) {
+            return sequence.get();
+        }
+        BlockchainDocument last = findStoredTip();
+        return last == null ? 0 : last.getSequence();
+    }
+
+    private double tipAgeSeconds() {
+        double timestamp = tipTimestamp;
+        if (!loaded) {
+            BlockchainDocument last = findStoredTip();
+            timestamp = last == null ? 0 : last.getTimestamp();
+        }
+        return timestamp == 0 ? Double.NaN : Math.max(0, now() - timestamp);
+    }
+
+    private BlockchainDocument findStoredTip() {
+        try {
+            Query query = new Query().with(Sort.by(Sort.Direction.DESC, "sequence")).limit(1);
+            query.fields().include("sequence").include("timestamp").include("hash");
+            return mongoTemplate.findOne(query, BlockchainDocument.class);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private Timer persistTimer(String store, String result) {
+        return Timer.builder("blockchain.ledger.persist")
+                .description("Writing one group of blocks to its store")
+                .tag("store", store)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Build a signed block for the data; like add_data, a "timestamp" field is
+     * added to the data before it is hashed.
+     */
+    private BlockchainDocument buildBlock(Map<String, Object> data, String prevHash, int blockSequence) {
+        double now = now();
+        Map<String, Object> blockData = new LinkedHashMap<>(data);
+        blockData.put("timestamp", now);
+        String dataHash = CanonicalJson.hash(blockData);
+        String signature = signTimer.record(() -> signer.sign(dataHash));
+        return new BlockchainDocument(null, blockData, dataHash, signature,
+                signer.getVerifyKey(), prevHash, now, blockSequence);
+    }
+
+    private void advanceTip(BlockchainDocument block) {
+        sequence.set(block.getSequence());
+        tipHash = block.getHash();
+        tipTimestamp = block.getTimestamp();
+        updateTipCache(block.getHash());
+    }
+
+    /**
+     * Sequence of any already-stored block whose hash matches a candidate, keyed by hash.
+     */
+    private Map<String, Integer> findStoredHashes(List<BlockchainDocument> candidates) {
+        List<String> hashes = new ArrayList<>(candidates.size());
+        for (BlockchainDocument candidate : candidates) {
+            if (candidate != null) {
+                hashes.add(candidate.getHash());
+            }
+        }
+        if (hashes.isEmpty()) {
+            return Map.of();
+        }
+        return hashIndex.findStored(hashes, sequence.get());
+    }
+
+    /**
+     * The leading blocks of a failed batch that did reach the collection.
+     */
+    private List<BlockchainDocument> keepPersisted(List<BlockchainDocument> blocks) {
+        Query query = new Query(Criteria.where("sequence").gte(blocks.get(0).getSequence())
+                .lte(blocks.get(blocks.size() - 1).getSequence()));
+        query.fields().include("hash").include("sequence");
+        Map<Integer, String> persisted = new HashMap<>();
+        for (BlockchainDocument existing : mongoTemplate.find(query, BlockchainDocument.class)) {
+            persisted.put(existing.getSequence(), existing.getHash());
+        }
+        int kept = 0;
+        while (kept < blocks.size()
+                && blocks.get(kept).getHash().equals(persisted.get(blocks.get(kept).getSequence()))) {
+            kept++;
+        }
+        return new ArrayList<>(blocks.subList(0, kept));
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        if (!signer.isAvailable()) {
+            throw new LedgerException("Signing key not available - cannot append blocks");
+        }
+        try {
+            IndexOperations indexOps = mongoTemplate.indexOps(BlockchainDocument.class);
+            for (IndexInfo info : indexOps.getIndexInfo()) {
+                if (info.isIndexForFields(List.of("sequence")) && !info.isUnique()) {
+                    // A plain one (data-retrieve creates it for its reads) would block the unique index
+                    logger.info("Replacing non-unique index {} with a unique sequence index", info.getName());
+                    indexOps.dropIndex(info.getName());
+                }
+            }
+            indexOps.ensureIndex(new Index("sequence", Sort.Direction.ASC).unique());
+        } catch (RuntimeException e) {
+            logger.warn("Could not ensure unique sequence index: {}", e.getMessage());
+        }
+
+        BlockchainDocument last = mongoTemplate.findOne(
+                new Query().with(Sort.by(Sort.Direction.DESC, "sequence")).limit(1), BlockchainDocument.class);
+        if (segmentStore.isEnabled()) {
+            reconcileSegments(last == null ? 0 : last.getSequence());
+            if (segmentStore.getTipSequence() == 0) {
+                throw new LedgerException("No initial data found. Insert genesis document first.");
+            }
+            sequence.set(segmentStore.getTipSequence());
+            tipHash = segmentStore.getTipHash();
+            List<BlockchainDocument> tip = segmentStore.readRange(sequence.get(), 1);
+            tipTimestamp = tip.isEmpty() ? 0 : tip.get(0).getTimestamp();
+        } else {
+            if (writeAheadLog.isEnabled()) {
+                last = replayLog(last);
+            }
+            if (last == null) {
+                throw new LedgerException("No initial data found. Insert genesis document first.");
+            }
+            sequence.set(last.getSequence());
+            tipHash = last.getHash();
+            tipTimestamp = last.getTimestamp();
+        }
+        loaded = true;
+        logger.info("Loaded chain tip at sequence {}", sequence.get());
+    }
+
+    /**
+     * Insert the logged blocks the collection is missing after a crash, then empty
+     * the log. When the log ends with the tip block, the tip cache is rewritten too,
+     * since a crash between the insert and the cache write leaves it one block behind.
+     *
+     * @return the tip after the replay
+     */
+    private BlockchainDocument replayLog(BlockchainDocument last) {
+        long started = System.nanoTime();
+        List<BlockchainDocument> logged = writeAheadLog.recover();
+        int tip = last == null ? 0 : last.getSequence();
+        String hash = last == null ? null : last.getHash();
+        List<BlockchainDocument> missing = new ArrayList<>();
+        for (BlockchainDocument block : logged) {
+            if (block.getSequence() <= tip) {
+                continue;
+            }
+            if (block.getSequence() != tip + 1 || !block.getPrevHash().equals(hash)) {
+                throw new LedgerException("Write-ahead log does not continue the chain at sequence "
+                        + block.getSequence() + " (collection tip is " + tip + ")");
+            }
+            missing.add(block);
+            tip = block.getSequence();
+            hash = block.getHash();
+        }
+        for (int from = 0; from < missing.size(); from += RECONCILE_CHUNK) {
+            mongoTemplate.insert(missing.subList(from, Math.min(from + RECONCILE_CHUNK, missing.size())),
+                    BlockchainDocument.class);
+        }
+        BlockchainDocument tipBlock = missing.isEmpty() ? last : missing.get(missing.size() - 1);
+        if (tipBlock != null && !logged.isEmpty() && tipBlock.getHash().equals(logged.get(logged.size() - 1).getHash())
+                && tipCache.isEnabled() && !tipBlock.getHash().equals(tipCache.read())) {
+            updateTipCache(tipBlock.getHash());
+            logger.info("Restored tip cache to sequence {} from the write-ahead log", tipBlock.getSequence());
+        }
+        writeAheadLog.reset();
+        hashIndex.add(missing);
+        logger.info("Replayed {} of {} logged blocks in {} ms", missing.size(), logged.size(),
+                (System.nanoTime() - started) / 1_000_000);
+        return tipBlock;
+    }
+
+    /**
+     * Write blocks to the segment files; returns the prefix that made it.
+     */
+    private List<BlockchainDocument> writeSegments(List<BlockchainDocument> blocks) {
+        Timer.Sample persist = Timer.start(meterRegistry);
+        try {
+            segmentStore.append(blocks);
+            persist.stop(persistTimer("segment", "success"));
+            return blocks;
+        } catch (RuntimeException e) {
+            persist.stop(persistTimer("segment", "failure"));
+            loaded = false;
+            logger.error("Segment append failed: {}", e.getMessage());
+            int written = segmentStore.getTipSequence() - blocks.get(0).getSequence() + 1;
+            return new ArrayList<>(blocks.subList(0, Math.max(0, Math.min(written, blocks.size()))));
+        }
+    }
+
+    /**
+     * Mirror stored blocks into the collection. The segments already hold them, so a
+     * failure here only leaves the index behind; it is filled in on the next load.
+     */
+    private void indexInMongo(List<BlockchainDocument> blocks) {
+        if (blocks.isEmpty()) {
+            return;
+        }
+        try {
+            mongoTemplate.insert(blocks, BlockchainDocument.class);
+        } catch (DataAccessException e) {
+            loaded = false;
+            logger.error("Failed to index {} blocks in Mongo: {}", blocks.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Bring the segment files and the collection to the same tip: blocks the
+     * collection has beyond the segments (e.g. written by chain_handler) are
+     * imported, and blocks only the segments have are indexed in the collection.
+     */
+    private void reconcileSegments(int collectionTip) {
+        int storedTip = segmentStore.getTipSequence();
+        if (collectionTip > storedTip) {
+            logger.info("Importing sequences {} to {} into the segment store", storedTip + 1, collectionTip);
+            Query query = new Query(Criteria.where("sequence").gt(storedTip))
+                    .with(Sort.by(Sort.Direction.ASC, "sequence"));
+            List<BlockchainDocument> chunk = new ArrayList<>(RECONCILE_CHUNK);
+            try (CloseableIterator<BlockchainDocument> blocks = mongoTemplate.stream(query, BlockchainDocument.class)) {
+                while (blocks.hasNext()) {
+                    chunk.add(blocks.next());
+                    if (chunk.size() == RECONCILE_CHUNK) {
+                        segmentStore.append(chunk);
+                        chunk.clear();
+                    }
+                }
+            }
+            segmentStore.append(chunk);
+        } else if (storedTip > collectionTip) {
+            logger.info("Indexing sequences {} to {} from the segment store", collectionTip + 1, storedTip);
+            int from = collectionTip + 1;
+            while (from <= storedTip) {
+                List<BlockchainDocument> chunk = segmentStore.readRange(from, RECONCILE_CHUNK);
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                mongoTemplate.insert(chunk, BlockchainDocument.class);
+                from += chunk.size();
+            }
+        }
+    }
+
+    private void updateMerkleTree(List<BlockchainDocument> blocks) {
+        try {
+            merkleAccumulator.append(blocks);
+        } catch (RuntimeException e) {
+            // The accumulator catches up from the collection on its next use
+            logger.error("Failed to update Merkle tree: {}", e.getMessage());
+        }
+    }
+
+    private void updateTipCache(String hash) {
+        try {
+            tipCache.write(hash);
+        } catch (IOException e) {
+            logger.error("Failed to update tip cache: {}", e.getMessage());
+        }
+    }
+
+    private double now() {
+        Instant instant = clock.instant();
+        return instant.getEpochSecond() + instant.getNano() / 1_000_000_000.0;
+    }
+}
@@ -0,0 +1,297 @@
+package com.example.blockchain.ledger;
+
+import com.example.blockchain.exception.LedgerException;
+import com.example.blockchain.model.BlockchainDocument;
+import com.example.blockchain.model.InclusionProof;
+import com.example.blockchain.model.MerkleNode;
+import com.example.blockchain.model.MerkleState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only Merkle tree over block hashes (RFC 6962 shape), kept in step with
+ * the chain. Every complete subtree is persisted once in merkle_nodes, and the
+ * right edge of the tree (one pending subtree per set bit of the size) is held
+ * in memory, so appends cost O(1) amortised and proofs O(log n) node reads.
+ */
+@Service
+public class MerkleAccumulator {
+    private static final Logger logger = LoggerFactory.getLogger(MerkleAccumulator.class);
+
+    private static final int MAX_LEVELS = 64;
+    private static final int CATCH_UP_CHUNK = 1000;
+
+    private final MongoTemplate mongoTemplate;
+    private final BlockSigner signer;
+
+    // frontier[level] holds the pending subtree of 2^level leaves whenever bit 'level' of size is set
+    private final byte[][] frontier = new byte[MAX_LEVELS][];
+    private long size;
+    private boolean loaded;
+
+    public MerkleAccumulator(MongoTemplate mongoTemplate, BlockSigner signer) {
+        this.mongoTemplate = mongoTemplate;
+        this.signer = signer;
+    }
+
+    /**
+     * Fold freshly inserted blocks into the tree. If blocks were appended
+     * elsewhere in the meantime, the tree first catches up from the collection.
+     */
+    public synchronized void append(List<BlockchainDocument> blocks) {
+        ensureLoaded();
+        if (blocks.isEmpty()) {
+            return;
+        }
+        if (blocks.get(0).getSequence() != size + 1) {
+            catchUp();
+            return;
+        }
+        List<MerkleNode> written = new ArrayList<>();
+        for (BlockchainDocument block : blocks) {
+            addLeaf(block.getHash(), written);
+        }
+        persist(written);
+    }
+
+    /**
+     * Fold any blocks the tree has not seen yet (e.g. written by the Python handler).
+     */
+    public synchronized void catchUp() {
+        ensureLoaded();
+        Query query = new Query(Criteria.where("sequence").gt(size))
+                .with(Sort.by(Sort.Direction.ASC, "sequence"));
+        query.fields().include("sequence").include("hash");
+
+        List<MerkleNode> written = new ArrayList<>();
+        try (CloseableIterator<BlockchainDocument> blocks = mongoTemplate.stream(query, BlockchainDocument.class)) {
+            while (blocks.hasNext()) {
+                BlockchainDocument block = blocks.next();
+                if (block.getSequence() != size + 1) {
+                    throw new LedgerException("Missing document at sequence " + (size + 1) + ", Merkle tree stopped there");
+                }
+                addLeaf(block.getHash(), written);
+                if (written.size() >= CATCH_UP_CHUNK) {
+                    persist(written);
+                    written.clear();
+                }
+            }
+        }
+        persist(written);
+    }
+
+    /**
+     * Inclusion proof for a block against the current root.
+     *
+     * @param sequence the block sequence (leaf index + 1)
+     * @return the proof, or null if the block is not in the tree
+     */
+    public InclusionProof prove(int sequence) {
+        long treeSize;
+        byte[][] edge = new byte[MAX_LEVELS][];
+        synchronized (this) {
+            catchUp();
+            treeSize = size;
+            System.arraycopy(frontier, 0, edge, 0, MAX_LEVELS);
+        }
+        long leafIndex = sequence - 1L;
+        if (sequence < 1 || leafIndex >= treeSize) {
+            return null;
+        }
+
+        // Walk the RFC 6962 PATH recursion: left siblings are complete stored subtrees,
+        // right siblings are either complete subtrees or a suffix folded from the edge
+        List<PathStep> steps = new ArrayList<>();
+        long m = leafIndex;
+        long start = 0;
+        long rangeSize = treeSize;
+        while (rangeSize > 1) {
+            long k = Long.highestOneBit(rangeSize - 1);
+            if (m < k) {
+                long rightSize = rangeSize - k;
+                steps.add(Long.bitCount(rightSize) == 1 && (start + k) % rightSize == 0
+                        ? PathStep.stored("right", Long.numberOfTrailingZeros(rightSize), (start + k) / rightSize)
+                        : PathStep.computed("right", foldEdge(edge, 64 - Long.numberOfLeadingZeros(rightSize))));
+                rangeSize = k;
+            } else {
+                steps.add(PathStep.stored("left", Long.numberOfTrailingZeros(k), start / k));
+                m -= k;
+                start += k;
+                rangeSize -= k;
+            }
+        }
+
+        List<String> keys = new ArrayList<>();
+        keys.add(MerkleNode.key(0, leafIndex));
+        for (PathStep step : steps) {
+            if (step.key != null) {
+                keys.add(step.key);
+            }
+        }
+        Map<String, String> nodes = new HashMap<>();
+        for (MerkleNode node : mongoTemplate.find(new Query(Criteria.where("_id").in(keys)), MerkleNode.class)) {
+            nodes.put(node.getId(), node.getHash());
+        }
+
+        BlockchainDocument block = mongoTemplate.findOne(
+                new Query(Criteria.where("sequence").is(sequence)), BlockchainDocument.class);
+        String leafHash = nodes.get(MerkleNode.key(0, leafIndex));
+        if (block == null || leafHash == null || !leafHash.equals(hex(leafHash(block.getHash())))) {
+            throw new LedgerException("Block " + sequence + " no longer matches its Merkle leaf - chain has been modified");
+        }
+
+        // Steps were collected top-down; proofs are read leaf-upwards
+        List<Map<String, String>> path = new ArrayList<>(steps.size());
+        for (int i = steps.size() - 1; i >= 0; i--) {
+            PathStep step = steps.get(i);
+            String hash = step.key != null ? nodes.get(step.key) : step.hash;
+            if (hash == null) {
+                throw new LedgerException("Merkle node " + step.key + " is missing");
+            }
+            path.add(Map.of("side", step.side, "hash", hash));
+        }
+
+        String root = hex(foldEdge(edge, MAX_LEVELS));
+        String signedRoot = signer.isAvailable() ? signer.sign(treeSize + ":" + root) : null;
+        String verifyKey = signer.isAvailable() ? signer.getVerifyKey() : null;
+        return new InclusionProof(sequence, leafIndex, treeSize, block.getHash(), leafHash, path, root, signedRoot, verifyKey);
+    }
+
+    /**
+     * Current root and size, after catching up with the collection.
+     */
+    public synchronized Map<String, Object> currentRoot() {
+        catchUp();
+        Map<String, Object> root = new HashMap<>();
+        root.put("treeSize", size);
+        root.put("root", hex(foldEdge(frontier, MAX_LEVELS)));
+        return root;
+    }
+
+    private void addLeaf(String blockHash, List<MerkleNode> written) {
+        byte[] hash = leafHash(blockHash);
+        long index = size;
+        written.add(new MerkleNode(0, index, hex(hash)));
+        int level = 0;
+        while ((index & 1) == 1) {
+            hash = nodeHash(frontier[level], hash);
+            frontier[level] = null;
+            level++;
+            index >>= 1;
+            written.add(new MerkleNode(level, index, hex(hash)));
+        }
+        frontier[level] = hash;
+        size++;
+    }
+
+    private void persist(List<MerkleNode> nodes) {
+        if (!nodes.isEmpty()) {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MerkleNode.class);
+            for (MerkleNode node : nodes) {
+                bulk.upsert(new Query(Criteria.where("_id").is(node.getId())),
+                        new Update().set("level", node.getLevel()).set("index", node.getIndex()).set("hash", node.getHash()));
+            }
+            bulk.execute();
+        }
+        mongoTemplate.save(new MerkleState(size));
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        MerkleState state = mongoTemplate.findById(MerkleState.ID, MerkleState.class);
+        long storedSize = state == null ? 0 : state.getSize();
+
+        List<String> peakKeys = new ArrayList<>();
+        for (int level = 0; level < MAX_LEVELS; level++) {
+            if ((storedSize & (1L << level)) != 0) {
+                peakKeys.add(MerkleNode.key(level, (storedSize >> level) - 1));
+            }
+        }
+        Map<String, String> peaks = new HashMap<>();
+        for (MerkleNode node : mongoTemplate.find(new Query(Criteria.where("_id").in(peakKeys)), MerkleNode.class)) {
+            peaks.put(node.getId(), node.getHash());
+        }
+        if (peaks.size() != peakKeys.size()) {
+            logger.warn("Merkle state at size {} is incomplete, rebuilding from the chain", storedSize);
+            storedSize = 0;
+            peaks.clear();
+        }
+        for (int level = 0; level < MAX_LEVELS; level++) {
+            frontier[level] = (storedSize & (1L << level)) != 0
+                    ? HexFormat.of().parseHex(peaks.get(MerkleNode.key(level, (storedSize >> level) - 1)))
+                    : null;
+        }
+        size = storedSize;
+        loaded = true;
+        logger.info("Loaded Merkle tree with {} leaves", size);
+    }
+
+    /**
+     * Hash of the subtree formed by the edge subtrees below maxLevel, folded right to left.
+     */
+    private static byte[] foldEdge(byte[][] edge, int maxLevel) {
+        byte[] acc = null;
+        for (int level = 0; level < maxLevel; level++) {
+            if (edge[level] != null) {
+                acc = acc == null ? edge[level] : nodeHash(edge[level], acc);
+            }
+        }
+        return acc != null ? acc : CanonicalJson.sha256().digest();
+    }
+
+    static byte[] leafHash(String blockHash) {
+        MessageDigest digest = CanonicalJson.sha256();
+        digest.update((byte) 0x00);
+        digest.update(HexFormat.of().parseHex(blockHash));
+        return digest.digest();
+    }
+
+    static byte[] nodeHash(byte[] left, byte[] right) {
+        MessageDigest digest = CanonicalJson.sha256();
+        digest.update((byte) 0x01);
+        digest.update(left);
+        digest.update(right);
+        return digest.digest();
+    }
+
+    private static String hex(byte[] bytes) {
+        return HexFormat.of().formatHex(bytes);
+    }
+
+    private static final class PathStep {
+        private final String side;
+        private final String key;
+        private final String hash;
+
+        private PathStep(String side, String key, String hash) {
+            this.side = side;
+            this.key = key;
+            this.hash = hash;
+        }
+
+        static PathStep stored(String side, int level, long index) {
+            return new PathStep(side, MerkleNode.key(level, index), null);
+        }
+
+        static PathStep computed(String side, byte[] hash) {
+            return new PathStep(side, null, hex(hash));
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.blockchain.ledger;
+
+import com.example.blockchain.model.BlockchainDocument;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.zip.CRC32C;
+
+/**
+ * Flyweight view of one block record inside a mapped segment file. Fields are
+ * read straight from the mapping; nothing is copied until a caller asks for it.
+ * <pre>
+ * int    length          payload length
+ * int    crc             CRC32C of the payload
+ * payload:
+ *   int    sequence
+ *   double timestamp
+ *   byte[32] hash, byte[32] prev_hash
+ *   short  signature length, signature bytes
+ *   short  verify key length, verify key bytes
+ *   int    data length, data as canonical JSON (the exact bytes that were hashed)
+ * </pre>
+ */
+final class SegmentRecord {
+
+    static final int HEADER_SIZE = 8;
+    static final int DIGEST_SIZE = 32;
+
+    private static final int SEQUENCE_AT = 0;
+    private static final int TIMESTAMP_AT = 4;
+    private static final int HASH_AT = 12;
+    private static final int PREV_HASH_AT = HASH_AT + DIGEST_SIZE;
+    private static final int SIGNATURE_AT = PREV_HASH_AT + DIGEST_SIZE;
+
+    private ByteBuffer buffer;
+    private int payloadAt;
+    private int length;
+
+    /**
+     * Point the view at the record starting at offset. Only the header is read here;
+     * check {@link #crcValid()} before trusting any field.
+     */
+    void reset(ByteBuffer buffer, int offset) {
+        this.buffer = buffer;
+        this.length = buffer.getInt(offset);
+        this.payloadAt = offset + HEADER_SIZE;
+    }
+
+    /**
+     * Bytes taken by the whole record, header included.
+     */
+    int size() {
+        return HEADER_SIZE + length;
+    }
+
+    boolean crcValid() {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.duplicate().limit(payloadAt + length).position(payloadAt));
+        return (int) crc.getValue() == buffer.getInt(payloadAt - 4);
+    }
+
+    int sequence() {
+        return buffer.getInt(payloadAt + SEQUENCE_AT);
+    }
+
+    double timestamp() {
+        return buffer.getDouble(payloadAt + TIMESTAMP_AT);
+    }
+
+    void hash(byte[] into) {
+        buffer.get(payloadAt + HASH_AT, into, 0, DIGEST_SIZE);
+    }
+
+    void prevHash(byte[] into) {
+        buffer.get(payloadAt + PREV_HASH_AT, into, 0, DIGEST_SIZE);
+    }
+
+    byte[] signature() {
+        byte[] signature = new byte[buffer.getShort(payloadAt + SIGNATURE_AT)];
+        buffer.get(payloadAt + SIGNATURE_AT + 2, signature);
+        return signature;
+    }
+
+    byte[] verifyKey() {
+        int at = verifyKeyAt();
+        byte[] verifyKey = new byte[buffer.getShort(at)];
+        buffer.get(at + 2, verifyKey);
+        return verifyKey;
+    }
+
+    /**
+     * The canonical JSON of the block data, as a read-only slice of the mapping.
+     */
+    ByteBuffer data() {
+        int verifyKeyAt = verifyKeyAt();
+        int dataAt = verifyKeyAt + 2 + buffer.getShort(verifyKeyAt);
+        int dataLength = buffer.getInt(dataAt);
+        return buffer.slice(dataAt + 4, dataLength).asReadOnlyBuffer();
+    }
+
+    private int verifyKeyAt() {
+        return payloadAt + SIGNATURE_AT + 2 + buffer.getShort(payloadAt + SIGNATURE_AT);
+    }
+
+    BlockchainDocument toDocument(ObjectMapper objectMapper) throws IOException {
+        byte[] hash = new byte[DIGEST_SIZE];
+        byte[] prevHash = new byte[DIGEST_SIZE];
+        hash(hash);
+        prevHash(prevHash);
+        ByteBuffer data = data();
+        byte[] json = new byte[data.remaining()];
+        data.get(json);
+        HexFormat hex = HexFormat.of();
+        return new BlockchainDocument(null, objectMapper.readValue(json, Object.class), hex.formatHex(hash),
+                hex.formatHex(signature()), hex.formatHex(verifyKey()), hex.formatHex(prevHash), timestamp(), sequence());
+    }
+
+    /**
+     * Encode a block at offset; returns the number of bytes written, or -1 if it does not fit.
+     */
+    static int write(ByteBuffer buffer, int offset, BlockchainDocument block) {
+        HexFormat hex = HexFormat.of();
+        byte[] signature = hex.parseHex(block.getSignature());
+        byte[] verifyKey = hex.parseHex(block.getVerifyKey());
+        byte[] data = CanonicalJson.serialize(block.getData()).getBytes(StandardCharsets.US_ASCII);
+        int length = SIGNATURE_AT + 2 + signature.length + 2 + verifyKey.length + 4 + data.length;
+        // Leave room for the zero length that marks the end of the segment
+        if (offset + HEADER_SIZE + length + 4 > buffer.capacity()) {
+            return -1;
+        }
+
+        int at = offset + HEADER_SIZE;
+        buffer.putInt(at + SEQUENCE_AT, block.getSequence());
+        buffer.putDouble(at + TIMESTAMP_AT, block.getTimestamp());
+        buffer.put(at + HASH_AT, hex.parseHex(block.getHash()));
+        buffer.put(at + PREV_HASH_AT, hex.parseHex(block.getPrevHash()));
+        at += SIGNATURE_AT;
+        buffer.putShort(at, (short) signature.length);
+        buffer.put(at + 2, signature);
+        at += 2 + signature.length;
+        buffer.putShort(at, (short) verifyKey.length);
+        buffer.put(at + 2, verifyKey);
+        at += 2 + verifyKey.length;
+        buffer.putInt(at, data.length);
+        buffer.put(at + 4, data);
+
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.duplicate().limit(offset + HEADER_SIZE + length).position(offset + HEADER_SIZE));
+        buffer.putInt(offset + 4, (int) crc.getValue());
+        // End marker first, so records left behind a recovered torn tail are never read back
+        buffer.putInt(offset + HEADER_SIZE + length, 0);
+        // The length goes in last: a record is only visible once it is complete
+        buffer.putInt(offset, length);
+        return HEADER_SIZE + length;
+    }
+
+    /**
+     * Size a block needs, header included.
+     */
+    static int sizeOf(BlockchainDocument block) {
+        return HEADER_SIZE + SIGNATURE_AT + 4 + block.getSignature().length() / 2 + block.getVerifyKey().length() / 2
+                + 4 + CanonicalJson.serialize(block.getData()).length();
+    }
+}
@@ -0,0 +1,459 @@
+package com.example.blockchain.ledger;
+
+import com.example.blockchain.exception.LedgerException;
+import com.example.blockchain.model.BlockchainDocument;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Append-only block store on memory-mapped segment files, selected with
+ * blockchain.ledger.store=segment. Each segment is preallocated, named after
+ * its first sequence and holds CRC-checked records (see {@link SegmentRecord});
+ * a zero length marks its end. A sparse index of every Nth sequence's offset is
+ * kept per segment in a .idx sidecar. When enabled the segments are the primary
+ * copy of the chain and the "documents" collection becomes a query index.
+ */
+@Service
+public class SegmentStore {
+    private static final Logger logger = LoggerFactory.getLogger(SegmentStore.class);
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String INDEX_SUFFIX = ".idx";
+
+    @Value("${blockchain.ledger.store:mongo}")
+    private String storeMode;
+
+    @Value("${blockchain.ledger.segment-dir:./ledger-segments}")
+    private String segmentDir;
+
+    @Value("${blockchain.ledger.segment-size-mb:64}")
+    private int segmentSizeMb;
+
+    @Value("${blockchain.ledger.segment-index-interval:64}")
+    private int indexInterval;
+
+    private final ObjectMapper objectMapper = JsonMapper.builder()
+            .enable(JsonReadFeature.ALLOW_NON_NUMERIC_NUMBERS)
+            .build();
+
+    private final List<Segment> segments = new ArrayList<>();
+    private volatile int tipSequence;
+    private volatile String tipHash;
+
+    /**
+     * Reads one record at a time; return false to stop.
+     */
+    interface RecordVisitor {
+        boolean visit(SegmentRecord record);
+    }
+
+    public boolean isEnabled() {
+        return "segment".equalsIgnoreCase(storeMode);
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        Path dir = Paths.get(segmentDir);
+        Files.createDirectories(dir);
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(dir)) {
+            files = listing.filter(p -> p.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().toList();
+        }
+        for (int i = 0; i < files.size(); i++) {
+            Segment segment = Segment.open(files.get(i), indexInterval, i == files.size() - 1);
+            if (segment.lastSequence >= segment.firstSequence || i == files.size() - 1) {
+                segments.add(segment);
+            } else {
+                segment.close();
+            }
+        }
+        Segment last = lastSegment();
+        if (last != null && last.lastSequence >= last.firstSequence) {
+            SegmentRecord record = new SegmentRecord();
+            record.reset(last.buffer, last.lastOffset);
+            byte[] hash = new byte[SegmentRecord.DIGEST_SIZE];
+            record.hash(hash);
+            tipSequence = last.lastSequence;
+            tipHash = HexFormat.of().formatHex(hash);
+        } else if (segments.size() > 1) {
+            Segment previous = segments.get(segments.size() - 2);
+            SegmentRecord record = new SegmentRecord();
+            record.reset(previous.buffer, previous.lastOffset);
+            byte[] hash = new byte[SegmentRecord.DIGEST_SIZE];
+            record.hash(hash);
+            tipSequence = previous.lastSequence;
+            tipHash = HexFormat.of().formatHex(hash);
+        }
+        logger.info("Opened segment store at {} with {} segments, tip at sequence {}",
+                dir.toAbsolutePath(), segments.size(), tipSequence);
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        for (Segment segment : segments) {
+            segment.close();
+        }
+        segments.clear();
+    }
+
+    /**
+     * Sequence of the last stored block, 0 when the store is empty.
+     */
+    public int getTipSequence() {
+        return tipSequence;
+    }
+
+    public String getTipHash() {
+        return tipHash;
+    }
+
+    /**
+     * Append consecutive blocks following the tip and force them to disk once.
+     * If this fails part way, the tip reflects the blocks that were written.
+     */
+    public synchronized void append(List<BlockchainDocument> blocks) {
+        if (blocks.isEmpty()) {
+            return;
+        }
+        try {
+            List<Segment> touched = new ArrayList<>(2);
+            for (BlockchainDocument block : blocks) {
+                if (block.getSequence() != tipSequence + 1) {
+                    throw new LedgerException("Segment store is at sequence " + tipSequence
+                            + ", cannot append sequence " + block.getSequence());
+                }
+                Segment segment = lastSegment();
+                if (segment == null || !segment.append(block)) {
+                    segment = roll(block);
+                    if (!segment.append(block)) {
+                        throw new LedgerException("Block " + block.getSequence() + " does not fit in a segment");
+                    }
+                }
+                if (touched.isEmpty() || touched.get(touched.size() - 1) != segment) {
+                    touched.add(segment);
+                }
+                tipSequence = block.getSequence();
+                tipHash = block.getHash();
+            }
+            for (Segment segment : touched) {
+                segment.force();
+            }
+        } catch (IOException e) {
+            throw new LedgerException("Failed to write segment: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Visit records in sequence order starting at fromSequence, across all segments.
+     */
+    void scan(int fromSequence, RecordVisitor visitor) {
+        List<Segment> snapshot = snapshot();
+        int first = Math.max(0, segmentFor(snapshot, fromSequence));
+        for (int i = first; i < snapshot.size(); i++) {
+            if (!snapshot.get(i).scan(fromSequence, visitor)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Visit the records of one segment; segments can be scanned concurrently.
+     */
+    void scanSegment(int segmentIndex, RecordVisitor visitor) {
+        Segment segment = snapshot().get(segmentIndex);
+        segment.scan(segment.firstSequence, visitor);
+    }
+
+    /**
+     * First sequence of each segment, in order.
+     */
+    int[] segmentStarts() {
+        List<Segment> snapshot = snapshot();
+        int[] starts = new int[snapshot.size()];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = snapshot.get(i).firstSequence;
+        }
+        return starts;
+    }
+
+    /**
+     * Decode the block at a sequence, or null if it is not stored.
+     */
+    public BlockchainDocument read(int sequence) {
+        BlockchainDocument[] found = new BlockchainDocument[1];
+        scan(sequence, record -> {
+            if (record.sequence() == sequence) {
+                found[0] = decode(record);
+            }
+            return false;
+        });
+        return found[0];
+    }
+
+    /**
+     * Decode up to limit consecutive blocks starting at fromSequence.
+     */
+    public List<BlockchainDocument> readRange(int fromSequence, int limit) {
+        List<BlockchainDocument> blocks = new ArrayList<>(Math.min(limit, 1024));
+        scan(fromSequence, record -> {
+            blocks.add(decode(record));
+            return blocks.size() < limit;
+        });
+        return blocks;
+    }
+
+    private BlockchainDocument decode(SegmentRecord record) {
+        try {
+            return record.toDocument(objectMapper);
+        } catch (IOException e) {
+            throw new LedgerException("Corrupt record at sequence " + record.sequence(), e);
+        }
+    }
+
+    private Segment roll(BlockchainDocument block) throws IOException {
+        Segment last = lastSegment();
+        if (last != null && last.lastSequence < last.firstSequence) {
+            // Empty segment too small for this block: replace it
+            segments.remove(segments.size() - 1);
+            last.delete();
+        }
+        long size = Math.max((long) segmentSizeMb << 20, SegmentRecord.sizeOf(block) + 4L);
+        Path path = Paths.get(segmentDir).resolve(String.format("%020d%s", block.getSequence(), SEGMENT_SUFFIX));
+        Segment segment = Segment.create(path, block.getSequence(), (int) Math.min(Integer.MAX_VALUE, size), indexInterval);
+        segments.add(segment);
+        logger.info("Started segment {}", path.getFileName());
+        return segment;
+    }
+
+    private Segment lastSegment() {
+        return segments.isEmpty() ? null : segments.get(segments.size() - 1);
+    }
+
+    private synchronized List<Segment> snapshot() {
+        return new ArrayList<>(segments);
+    }
+
+    private static int segmentFor(List<Segment> segments, int sequence) {
+        int low = 0;
+        int high = segments.size() - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (segments.get(mid).firstSequence <= sequence) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    private static final class Segment {
+        private final Path path;
+        private final int firstSequence;
+        private final int indexInterval;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final FileChannel indexChannel;
+
+        // Sparse index: indexSequences[i] starts at indexOffsets[i]
+        private int[] indexSequences = new int[16];
+        private int[] indexOffsets = new int[16];
+        private volatile int indexSize;
+
+        private volatile int end;
+        private volatile int lastSequence;
+        private int lastOffset;
+
+        private Segment(Path path, int firstSequence, int size, int indexInterval) throws IOException {
+            this.path = path;
+            this.firstSequence = firstSequence;
+            this.indexInterval = indexInterval;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            this.indexChannel = FileChannel.open(indexPath(path), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            this.lastSequence = firstSequence - 1;
+        }
+
+        static Segment create(Path path, int firstSequence, int size, int indexInterval) throws IOException {
+            Files.deleteIfExists(indexPath(path));
+            return new Segment(path, firstSequence, size, indexInterval);
+        }
+
+        /**
+         * Map an existing segment, load its index and find where its records end.
+         * A torn record at the end of the active segment is cut off. Only the records
+         * after the last valid index entry are re-read; the chain audit checks every CRC.
+         */
+        static Segment open(Path path, int indexInterval, boolean active) throws IOException {
+            String name = path.getFileName().toString();
+            int firstSequence = Integer.parseInt(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+            Segment segment = new Segment(path, firstSequence, (int) Files.size(path), indexInterval);
+            segment.loadIndex();
+            segment.recover(active);
+            return segment;
+        }
+
+        boolean append(BlockchainDocument block) throws IOException {
+            int written = SegmentRecord.write(buffer, end, block);
+            if (written < 0) {
+                return false;
+            }
+            int offset = end;
+            if ((block.getSequence() - firstSequence) % indexInterval == 0) {
+                addIndexEntry(block.getSequence(), offset, true);
+            }
+            lastOffset = offset;
+            lastSequence = block.getSequence();
+            end = offset + written;
+            return true;
+        }
+
+        void force() throws IOException {
+            buffer.force();
+        }
+
+        boolean scan(int fromSequence, RecordVisitor visitor) {
+            ByteBuffer view = buffer.duplicate();
+            int limit = end;
+            int offset = 0;
+            int entries = indexSize;
+            for (int i = entries - 1; i >= 0; i--) {
+                if (indexSequences[i] <= fromSequence) {
+                    offset = indexOffsets[i];
+                    break;
+                }
+            }
+            SegmentRecord record = new SegmentRecord();
+            while (offset < limit) {
+                record.reset(view, offset);
+                if (record.sequence() >= fromSequence && !visitor.visit(record)) {
+                    return false;
+                }
+                offset += record.size();
+            }
+            return true;
+        }
+
+        void close() throws IOException {
+            indexChannel.close();
+            channel.close();
+        }
+
+        void delete() throws IOException {
+            close();
+            Files.deleteIfExists(indexPath(path));
+            Files.deleteIfExists(path);
+        }
+
+        private void loadIndex() throws IOException {
+            ByteBuffer entry = ByteBuffer.allocate(8);
+            long position = 0;
+            while (indexChannel.read(entry, position) == 8) {
+                entry.flip();
+                addIndexEntry(entry.getInt(), entry.getInt(), false);
+                entry.clear();
+                position += 8;
+            }
+        }
+
+        private void recover(boolean active) throws IOException {
+            // Trust index entries only up to the first one that does not point at a valid record
+            SegmentRecord record = new SegmentRecord();
+            int valid = 0;
+            while (valid < indexSize && readable(record, indexOffsets[valid])
+                    && record.sequence() == indexSequences[valid]) {
+                valid++;
+            }
+            boolean rewriteIndex = valid < indexSize;
+            indexSize = valid;
+
+            int offset = valid == 0 ? 0 : indexOffsets[valid - 1];
+            int expected = valid == 0 ? firstSequence : indexSequences[valid - 1];
+            while (readable(record, offset) && record.sequence() == expected) {
+                if ((expected - firstSequence) % indexInterval == 0 && (indexSize == 0 || indexSequences[indexSize - 1] < expected)) {
+                    addIndexEntry(expected, offset, false);
+                    rewriteIndex = true;
+                }
+                lastOffset = offset;
+                lastSequence = expected;
+                offset += record.size();
+                expected++;
+            }
+            end = offset;
+
+            if (offset + 4 <= buffer.capacity() && buffer.getInt(offset) != 0) {
+                if (!active) {
+                    throw new LedgerException("Segment " + path.getFileName() + " is corrupt at offset " + offset);
+                }
+                logger.warn("Discarding torn record at offset {} of {}", offset, path.getFileName());
+                buffer.putInt(offset, 0);
+                buffer.force();
+            }
+            if (rewriteIndex) {
+                indexChannel.truncate(0);
+                ByteBuffer entries = ByteBuffer.allocate(indexSize * 8);
+                for (int i = 0; i < indexSize; i++) {
+                    entries.putInt(indexSequences[i]).putInt(indexOffsets[i]);
+                }
+                entries.flip();
+                indexChannel.write(entries, 0);
+            }
+        }
+
+        private boolean readable(SegmentRecord record, int offset) {
+            if (offset < 0 || offset + SegmentRecord.HEADER_SIZE > buffer.capacity()) {
+                return false;
+            }
+            record.reset(buffer, offset);
+            int size = record.size();
+            return size > SegmentRecord.HEADER_SIZE && offset + size <= buffer.capacity() && record.crcValid();
+        }
+
+        private void addIndexEntry(int sequence, int offset, boolean persist) throws IOException {
+            if (indexSize == indexSequences.length) {
+                indexSequences = Arrays.copyOf(indexSequences, indexSize * 2);
+                indexOffsets = Arrays.copyOf(indexOffsets, indexSize * 2);
+            }
+            indexSequences[indexSize] = sequence;
+            indexOffsets[indexSize] = offset;
+            if (persist) {
+                ByteBuffer entry = ByteBuffer.allocate(8).putInt(sequence).putInt(offset);
+                entry.flip();
+                indexChannel.write(entry, (long) indexSize * 8);
+            }
+            indexSize++;
+        }
+
+        private static Path indexPath(Path segment) {
+            String name = segment.getFileName().toString();
+            return segment.resolveSibling(name.substring(0, name.length() - SEGMENT_SUFFIX.length()) + INDEX_SUFFIX);
+        }
+    }
+}
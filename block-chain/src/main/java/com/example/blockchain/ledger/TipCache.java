@@ -0,0 +1,138 @@
+package com.example.blockchain.ledger;
+
+import org.bouncycastle.crypto.engines.XSalsa20Engine;
+import org.bouncycastle.crypto.macs.Poly1305;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.crypto.params.ParametersWithIV;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+
+/**
+ * Keeps chain_handler's last_hash_cache.bin in step with appends made from the JVM.
+ * The file is a NaCl SecretBox (XSalsa20-Poly1305) over the tip hash, laid out
+ * as PyNaCl writes it: nonce(24) | mac(16) | ciphertext.
+ */
+@Component
+public class TipCache {
+    private static final Logger logger = LoggerFactory.getLogger(TipCache.class);
+
+    private static final int KEY_SIZE = 32;
+    private static final int NONCE_SIZE = 24;
+    private static final int MAC_SIZE = 16;
+
+    private final SecureRandom random = new SecureRandom();
+
+    @Value("${blockchain.ledger.tip-cache-file}")
+    private String cacheFile;
+
+    @Value("${blockchain.ledger.cache-encryption-key:}")
+    private String encryptionKeyHex;
+
+    private byte[] key;
+
+    @PostConstruct
+    public void init() {
+        String hex = encryptionKeyHex == null ? "" : encryptionKeyHex.replace("'", "").replace("\"", "").trim();
+        if (hex.isEmpty()) {
+            logger.warn("CACHE_ENCRYPTION_KEY not set - {} will not be updated by native appends", cacheFile);
+            return;
+        }
+        byte[] parsed = HexFormat.of().parseHex(hex);
+        if (parsed.length != KEY_SIZE) {
+            throw new IllegalStateException("CACHE_ENCRYPTION_KEY must be " + KEY_SIZE + " bytes");
+        }
+        this.key = parsed;
+    }
+
+    public boolean isEnabled() {
+        return key != null;
+    }
+
+    /**
+     * Encrypt and atomically replace the cached tip hash.
+     */
+    public void write(String tipHash) throws IOException {
+        if (key == null) {
+            return;
+        }
+        byte[] nonce = new byte[NONCE_SIZE];
+        random.nextBytes(nonce);
+        byte[] plaintext = tipHash.getBytes(StandardCharsets.US_ASCII);
+
+        XSalsa20Engine stream = new XSalsa20Engine();
+        stream.init(true, new ParametersWithIV(new KeyParameter(key), nonce));
+        byte[] macKey = new byte[KEY_SIZE];
+        stream.processBytes(new byte[KEY_SIZE], 0, KEY_SIZE, macKey, 0);
+        byte[] ciphertext = new byte[plaintext.length];
+        stream.processBytes(plaintext, 0, plaintext.length, ciphertext, 0);
+
+        byte[] out = new byte[NONCE_SIZE + MAC_SIZE + ciphertext.length];
+        System.arraycopy(nonce, 0, out, 0, NONCE_SIZE);
+        System.arraycopy(mac(macKey, ciphertext), 0, out, NONCE_SIZE, MAC_SIZE);
+        System.arraycopy(ciphertext, 0, out, NONCE_SIZE + MAC_SIZE, ciphertext.length);
+
+        Path target = Paths.get(cacheFile);
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.write(tmp, out);
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Decrypt the cached tip hash, or null if the cache is missing, disabled or fails authentication.
+     */
+    public String read() {
+        Path path = Paths.get(cacheFile);
+        if (key == null || !Files.exists(path)) {
+            return null;
+        }
+        try {
+            byte[] in = Files.readAllBytes(path);
+            if (in.length < NONCE_SIZE + MAC_SIZE) {
+                return null;
+            }
+            byte[] nonce = new byte[NONCE_SIZE];
+            System.arraycopy(in, 0, nonce, 0, NONCE_SIZE);
+            byte[] tag = new byte[MAC_SIZE];
+            System.arraycopy(in, NONCE_SIZE, tag, 0, MAC_SIZE);
+            byte[] ciphertext = new byte[in.length - NONCE_SIZE - MAC_SIZE];
+            System.arraycopy(in, NONCE_SIZE + MAC_SIZE, ciphertext, 0, ciphertext.length);
+
+            XSalsa20Engine stream = new XSalsa20Engine();
+            stream.init(false, new ParametersWithIV(new KeyParameter(key), nonce));
+            byte[] macKey = new byte[KEY_SIZE];
+            stream.processBytes(new byte[KEY_SIZE], 0, KEY_SIZE, macKey, 0);
+            if (!MessageDigest.isEqual(tag, mac(macKey, ciphertext))) {
+                logger.error("Tip cache {} failed authentication", path);
+                return null;
+            }
+            byte[] plaintext = new byte[ciphertext.length];
+            stream.processBytes(ciphertext, 0, ciphertext.length, plaintext, 0);
+            return new String(plaintext, StandardCharsets.US_ASCII);
+        } catch (IOException e) {
+            logger.error("Unable to read tip cache {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    private static byte[] mac(byte[] macKey, byte[] ciphertext) {
+        Poly1305 poly = new Poly1305();
+        poly.init(new KeyParameter(macKey));
+        poly.update(ciphertext, 0, ciphertext.length);
+        byte[] tag = new byte[MAC_SIZE];
+        poly.doFinal(tag, 0);
+        return tag;
+    }
+}
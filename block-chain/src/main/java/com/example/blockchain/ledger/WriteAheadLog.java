@@ -0,0 +1,182 @@
+package com.example.blockchain.ledger;
+
+import com.example.blockchain.exception.LedgerException;
+import com.example.blockchain.model.BlockchainDocument;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Write-ahead log for the Mongo append path. Every group of blocks is written as
+ * CRC-framed records (the {@link SegmentRecord} layout) and forced with a single
+ * fsync before it is inserted, so a crash between the two loses nothing: on the
+ * next load the logged blocks the collection is missing are replayed. The log is
+ * cut back to empty once it grows past blockchain.ledger.wal-checkpoint-size-mb
+ * and everything in it is known to be in Mongo. An empty wal-file disables it.
+ */
+@Service
+public class WriteAheadLog {
+    private static final Logger logger = LoggerFactory.getLogger(WriteAheadLog.class);
+
+    @Value("${blockchain.ledger.wal-file:}")
+    private String walFile;
+
+    @Value("${blockchain.ledger.wal-checkpoint-size-mb:16}")
+    private int checkpointSizeMb;
+
+    private final ObjectMapper objectMapper = JsonMapper.builder()
+            .enable(JsonReadFeature.ALLOW_NON_NUMERIC_NUMBERS)
+            .build();
+
+    private FileChannel channel;
+    private long end;
+
+    // Start offset of each record in the last group, for rolling back an unpersisted suffix
+    private long[] groupOffsets = new long[0];
+    private int groupFirstSequence;
+
+    public boolean isEnabled() {
+        return walFile != null && !walFile.isBlank();
+    }
+
+    /**
+     * Open the log and return the intact blocks it holds, in log order. A torn or
+     * corrupt tail left by a crash is cut off.
+     */
+    public synchronized List<BlockchainDocument> recover() {
+        try {
+            Path path = Paths.get(walFile);
+            if (channel == null) {
+                if (path.getParent() != null) {
+                    Files.createDirectories(path.getParent());
+                }
+                channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE);
+            }
+            ByteBuffer log = ByteBuffer.wrap(Files.readAllBytes(path));
+            int size = log.capacity();
+
+            List<BlockchainDocument> blocks = new ArrayList<>();
+            SegmentRecord record = new SegmentRecord();
+            int offset = 0;
+            while (offset + SegmentRecord.HEADER_SIZE <= size) {
+                record.reset(log, offset);
+                if (record.size() <= SegmentRecord.HEADER_SIZE || (long) offset + record.size() > size
+                        || !record.crcValid()) {
+                    break;
+                }
+                blocks.add(record.toDocument(objectMapper));
+                offset += record.size();
+            }
+            if (offset < size) {
+                logger.warn("Discarding {} bytes of torn write-ahead log after offset {}", size - offset, offset);
+                channel.truncate(offset);
+                channel.force(true);
+            }
+            end = offset;
+            groupOffsets = new long[0];
+            return blocks;
+        } catch (IOException e) {
+            throw new LedgerException("Failed to read write-ahead log: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Log a group of blocks and fsync once. Nothing of the group is kept if this fails.
+     */
+    public synchronized void append(List<BlockchainDocument> blocks) {
+        if (blocks.isEmpty()) {
+            return;
+        }
+        int total = 4;
+        for (BlockchainDocument block : blocks) {
+            total += SegmentRecord.sizeOf(block);
+        }
+        ByteBuffer group = ByteBuffer.allocate(total);
+        long[] offsets = new long[blocks.size()];
+        int at = 0;
+        for (int i = 0; i < blocks.size(); i++) {
+            offsets[i] = end + at;
+            at += SegmentRecord.write(group, at, blocks.get(i));
+        }
+        group.limit(at);
+
+        long start = end;
+        try {
+            while (group.hasRemaining()) {
+                channel.write(group, start + group.position());
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            truncate(start);
+            throw new LedgerException("Failed to write to write-ahead log: " + e.getMessage(), e);
+        }
+        end = start + at;
+        groupOffsets = offsets;
+        groupFirstSequence = blocks.get(0).getSequence();
+    }
+
+    /**
+     * Drop the records of the last group after the given sequence, e.g. because
+     * they never reached the collection and their callers were told so.
+     */
+    public synchronized void rollbackAfter(int sequence) {
+        int keep = sequence - groupFirstSequence + 1;
+        if (keep < 0 || keep >= groupOffsets.length) {
+            return;
+        }
+        truncate(groupOffsets[keep]);
+        groupOffsets = new long[0];
+    }
+
+    /**
+     * Everything logged so far is in the collection; empty the log once it is big enough.
+     */
+    public synchronized void checkpoint() {
+        if (end >= (long) checkpointSizeMb << 20) {
+            truncate(0);
+            logger.info("Checkpointed write-ahead log {}", walFile);
+        }
+    }
+
+    /**
+     * Empty the log after a replay has brought the collection up to date.
+     */
+    public synchronized void reset() {
+        truncate(0);
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private void truncate(long length) {
+        try {
+            channel.truncate(length);
+            channel.force(true);
+            end = length;
+            groupOffsets = new long[0];
+        } catch (IOException e) {
+            throw new LedgerException("Failed to truncate write-ahead log: " + e.getMessage(), e);
+        }
+    }
+}
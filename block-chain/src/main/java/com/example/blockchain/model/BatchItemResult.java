@@ -0,0 +1,73 @@
+package com.example.blockchain.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Outcome of one payload in a batch append.
+ */
+public class BatchItemResult {
+
+    private final int index;
+    private final boolean success;
+    private final Integer sequence;
+    private final String hash;
+    private final String error;
+    private final BlockchainDocument block;
+
+    private BatchItemResult(int index, boolean success, Integer sequence, String hash, String error,
+                            BlockchainDocument block) {
+        this.index = index;
+        this.success = success;
+        this.sequence = sequence;
+        this.hash = hash;
+        this.error = error;
+        this.block = block;
+    }
+
+    public static BatchItemResult stored(int index, BlockchainDocument block) {
+        return new BatchItemResult(index, true, block.getSequence(), block.getHash(), null, block);
+    }
+
+    public static BatchItemResult stored(int index, Integer sequence, String hash) {
+        return new BatchItemResult(index, true, sequence, hash, null, null);
+    }
+
+    public static BatchItemResult failed(int index, String error) {
+        return new BatchItemResult(index, false, null, null, error, null);
+    }
+
+    /**
+     * The same result re-numbered relative to a sub-batch.
+     */
+    public BatchItemResult withIndex(int newIndex) {
+        return new BatchItemResult(newIndex, success, sequence, hash, error, block);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public Integer getSequence() {
+        return sequence;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * The stored block, when it was written by the native engine.
+     */
+    @JsonIgnore
+    public BlockchainDocument getBlock() {
+        return block;
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.blockchain.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+/**
+ * A single block of the chain as stored in the "documents" collection.
+ * Field names and types mirror what chain_handler writes, so documents
+ * appended from the JVM are indistinguishable from the Python ones.
+ */
+@Document(collection = "documents")
+public class BlockchainDocument {
+
+    @Id
+    private String id;  // Maps to "_id" in MongoDB
+
+    private Object data;  // Can be String, Number, or JSON (Map)
+    private String hash;
+    private String signature;
+    @Field("verify_key")
+    private String verifyKey;
+    @Field("prev_hash")
+    private String prevHash;
+    private double timestamp;
+    private int sequence;
+
+    public BlockchainDocument() {}
+
+    public BlockchainDocument(String id, Object data, String hash, String signature,
+                              String verifyKey, String prevHash, double timestamp, int sequence) {
+        this.id = id;
+        this.data = data;
+        this.hash = hash;
+        this.signature = signature;
+        this.verifyKey = verifyKey;
+        this.prevHash = prevHash;
+        this.timestamp = timestamp;
+        this.sequence = sequence;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Object getData() {
+        return data;
+    }
+
+    public void setData(Object data) {
+        this.data = data;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    public String getSignature() {
+        return signature;
+    }
+
+    public void setSignature(String signature) {
+        this.signature = signature;
+    }
+
+    public String getVerifyKey() {
+        return verifyKey;
+    }
+
+    public void setVerifyKey(String verifyKey) {
+        this.verifyKey = verifyKey;
+    }
+
+    public String getPrevHash() {
+        return prevHash;
+    }
+
+    public void setPrevHash(String prevHash) {
+        this.prevHash = prevHash;
+    }
+
+    public double getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(double timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public int getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(int sequence) {
+        this.sequence = sequence;
+    }
+}
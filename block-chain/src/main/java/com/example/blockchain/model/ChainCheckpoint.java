@@ -0,0 +1,65 @@
+package com.example.blockchain.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Hash of a verified block, kept at fixed sequence intervals so tampering can
+ * be localized to the span between two checkpoints without rescanning the chain.
+ * The digest covers every block of the span, so each span can be checked on its own.
+ */
+@Document(collection = "ledger_checkpoints")
+public class ChainCheckpoint {
+
+    @Id
+    private int sequence;
+
+    private String hash;
+    private String digest;
+    private double verifiedAt;
+
+    public ChainCheckpoint() {}
+
+    public ChainCheckpoint(int sequence, String hash, String digest, double verifiedAt) {
+        this.sequence = sequence;
+        this.hash = hash;
+        this.digest = digest;
+        this.verifiedAt = verifiedAt;
+    }
+
+    public int getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(int sequence) {
+        this.sequence = sequence;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    /**
+     * Running digest over the blocks after the previous checkpoint up to this one;
+     * null on checkpoints recorded before digests were kept.
+     */
+    public String getDigest() {
+        return digest;
+    }
+
+    public void setDigest(String digest) {
+        this.digest = digest;
+    }
+
+    public double getVerifiedAt() {
+        return verifiedAt;
+    }
+
+    public void setVerifiedAt(double verifiedAt) {
+        this.verifiedAt = verifiedAt;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.blockchain.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * Response of a store request made with an Idempotency-Key, kept so a retry
+ * with the same key gets the original block back. Mongo drops records through
+ * a TTL index on createdAt.
+ */
+@Document(collection = "idempotency_keys")
+public class IdempotencyRecord {
+
+    @Id
+    private String id;
+
+    // Canonical hash of the request body, to tell a retry from a reused key
+    private String requestHash;
+    private int status;
+    // Kept as JSON so payload field names need no escaping in Mongo
+    private String responseJson;
+    private Date createdAt;
+
+    public IdempotencyRecord() {}
+
+    public IdempotencyRecord(String id, String requestHash, int status, String responseJson, Date createdAt) {
+        this.id = id;
+        this.requestHash = requestHash;
+        this.status = status;
+        this.responseJson = responseJson;
+        this.createdAt = createdAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getRequestHash() {
+        return requestHash;
+    }
+
+    public void setRequestHash(String requestHash) {
+        this.requestHash = requestHash;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public String getResponseJson() {
+        return responseJson;
+    }
+
+    public void setResponseJson(String responseJson) {
+        this.responseJson = responseJson;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Date createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.blockchain.model;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RFC 6962 style audit path proving that a block is part of the tree with the given root.
+ * Leaves are SHA-256(0x00 || block hash bytes), inner nodes SHA-256(0x01 || left || right).
+ */
+public class InclusionProof {
+
+    private final int sequence;
+    private final long leafIndex;
+    private final long treeSize;
+    private final String blockHash;
+    private final String leafHash;
+    private final List<Map<String, String>> path;
+    private final String root;
+    private final String signedRoot;
+    private final String verifyKey;
+
+    public InclusionProof(int sequence, long leafIndex, long treeSize, String blockHash, String leafHash,
+                          List<Map<String, String>> path, String root, String signedRoot, String verifyKey) {
+        this.sequence = sequence;
+        this.leafIndex = leafIndex;
+        this.treeSize = treeSize;
+        this.blockHash = blockHash;
+        this.leafHash = leafHash;
+        this.path = path;
+        this.root = root;
+        this.signedRoot = signedRoot;
+        this.verifyKey = verifyKey;
+    }
+
+    public int getSequence() {
+        return sequence;
+    }
+
+    public long getLeafIndex() {
+        return leafIndex;
+    }
+
+    public long getTreeSize() {
+        return treeSize;
+    }
+
+    public String getBlockHash() {
+        return blockHash;
+    }
+
+    public String getLeafHash() {
+        return leafHash;
+    }
+
+    /**
+     * Sibling hashes from the leaf upwards, each tagged with the side it is hashed on.
+     */
+    public List<Map<String, String>> getPath() {
+        return path;
+    }
+
+    public String getRoot() {
+        return root;
+    }
+
+    /**
+     * Signature over "treeSize:root", in the same encoding as block signatures.
+     */
+    public String getSignedRoot() {
+        return signedRoot;
+    }
+
+    public String getVerifyKey() {
+        return verifyKey;
+    }
+}
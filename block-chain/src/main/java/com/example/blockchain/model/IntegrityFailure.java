@@ -0,0 +1,45 @@
+package com.example.blockchain.model;
+
+/**
+ * What is wrong with the chain, and at which block.
+ */
+public class IntegrityFailure {
+
+    public enum Kind {
+        /** Stored data no longer hashes to the block hash, or a checkpointed hash changed */
+        HASH_MISMATCH,
+        /** prev_hash does not point at the previous block */
+        BROKEN_LINK,
+        /** A sequence number is missing */
+        GAP,
+        /** The same data is stored in more than one block */
+        CLONE,
+        /** The signature does not verify against the block's verify_key */
+        BAD_SIGNATURE
+    }
+
+    private final Kind kind;
+    private final Integer sequence;
+    private final String message;
+
+    public IntegrityFailure(Kind kind, Integer sequence, String message) {
+        this.kind = kind;
+        this.sequence = sequence;
+        this.message = message;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * The first bad sequence, or null if the failure is not tied to a single block.
+     */
+    public Integer getSequence() {
+        return sequence;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.blockchain.model;
+
+/**
+ * Where the chain first goes wrong and how much of it can no longer be trusted.
+ */
+public class IntegrityReport {
+
+    public enum Status {
+        /** Every block up to the tip was checked and is intact. */
+        VALID,
+        /** A bad block was found. */
+        INVALID,
+        /** No damage was found, but the unchecked range could not be checked without a deep audit. */
+        UNCHECKED
+    }
+
+    private final Status status;
+    private final String message;
+    private final Integer firstBadSequence;
+    private final IntegrityFailure.Kind kind;
+    private final Integer affectedFrom;
+    private final Integer affectedTo;
+    private final int lastGoodCheckpoint;
+    private final int tipSequence;
+    private final int blocksScanned;
+    private final String method;
+    private final Integer uncheckedFrom;
+    private final Integer uncheckedTo;
+
+    public IntegrityReport(Status status, String message, Integer firstBadSequence, IntegrityFailure.Kind kind,
+                           Integer affectedFrom, Integer affectedTo, int lastGoodCheckpoint, int tipSequence,
+                           int blocksScanned, String method, Integer uncheckedFrom, Integer uncheckedTo) {
+        this.status = status;
+        this.message = message;
+        this.firstBadSequence = firstBadSequence;
+        this.kind = kind;
+        this.affectedFrom = affectedFrom;
+        this.affectedTo = affectedTo;
+        this.lastGoodCheckpoint = lastGoodCheckpoint;
+        this.tipSequence = tipSequence;
+        this.blocksScanned = blocksScanned;
+        this.method = method;
+        this.uncheckedFrom = uncheckedFrom;
+        this.uncheckedTo = uncheckedTo;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * True or false once the whole chain was checked; null while part of it is {@link Status#UNCHECKED}.
+     */
+    public Boolean getValid() {
+        return status == Status.UNCHECKED ? null : status == Status.VALID;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public Integer getFirstBadSequence() {
+        return firstBadSequence;
+    }
+
+    public IntegrityFailure.Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * First sequence that can no longer be trusted; every later block hangs off it.
+     */
+    public Integer getAffectedFrom() {
+        return affectedFrom;
+    }
+
+    public Integer getAffectedTo() {
+        return affectedTo;
+    }
+
+    /**
+     * Highest checkpoint that still matches the stored chain.
+     */
+    public int getLastGoodCheckpoint() {
+        return lastGoodCheckpoint;
+    }
+
+    public int getTipSequence() {
+        return tipSequence;
+    }
+
+    public int getBlocksScanned() {
+        return blocksScanned;
+    }
+
+    /**
+     * "checkpoints" when the checkpoint probe located the failure, "audit" for a full scan.
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * First sequence that was trusted on its checkpoint without being read; null when every block was checked.
+     */
+    public Integer getUncheckedFrom() {
+        return uncheckedFrom;
+    }
+
+    public Integer getUncheckedTo() {
+        return uncheckedTo;
+    }
+}
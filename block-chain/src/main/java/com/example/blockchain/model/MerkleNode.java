@@ -0,0 +1,64 @@
+package com.example.blockchain.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Hash of a complete subtree of the block Merkle tree: 2^level leaves
+ * starting at leaf index * 2^level. Written once and never changed.
+ */
+@Document(collection = "merkle_nodes")
+public class MerkleNode {
+
+    @Id
+    private String id;
+
+    private int level;
+    private long index;
+    private String hash;
+
+    public MerkleNode() {}
+
+    public MerkleNode(int level, long index, String hash) {
+        this.id = key(level, index);
+        this.level = level;
+        this.index = index;
+        this.hash = hash;
+    }
+
+    public static String key(int level, long index) {
+        return level + ":" + index;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public void setLevel(int level) {
+        this.level = level;
+    }
+
+    public long getIndex() {
+        return index;
+    }
+
+    public void setIndex(long index) {
+        this.index = index;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+}
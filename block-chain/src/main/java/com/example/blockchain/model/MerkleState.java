@@ -0,0 +1,40 @@
+package com.example.blockchain.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Number of blocks folded into the persisted Merkle tree.
+ */
+@Document(collection = "ledger_state")
+public class MerkleState {
+
+    public static final String ID = "merkle";
+
+    @Id
+    private String id = ID;
+
+    private long size;
+
+    public MerkleState() {}
+
+    public MerkleState(long size) {
+        this.size = size;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.blockchain.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * Progress of a store accepted with async=true. PENDING until the background
+ * append finishes, then STORED with the block's sequence and hash, or FAILED
+ * with the reason. Finished receipts are kept in Mongo until a TTL index on
+ * acceptedAt drops them.
+ */
+@Document(collection = "store_receipts")
+public class StoreReceipt {
+
+    public static final String PENDING = "PENDING";
+    public static final String STORED = "STORED";
+    public static final String FAILED = "FAILED";
+
+    @Id
+    private String id;
+
+    private String status;
+    private Integer sequence;
+    private String hash;
+    private String error;
+    private Date acceptedAt;
+    private Date completedAt;
+
+    public StoreReceipt() {}
+
+    public StoreReceipt(String id, Date acceptedAt) {
+        this.id = id;
+        this.status = PENDING;
+        this.acceptedAt = acceptedAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Integer getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(Integer sequence) {
+        this.sequence = sequence;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public Date getAcceptedAt() {
+        return acceptedAt;
+    }
+
+    public void setAcceptedAt(Date acceptedAt) {
+        this.acceptedAt = acceptedAt;
+    }
+
+    public Date getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(Date completedAt) {
+        this.completedAt = completedAt;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.blockchain.model;
+
+/**
+ * The chain tip at one instant, together with the tip cache as it read at that instant.
+ */
+public class TipSnapshot {
+
+    private final int sequence;
+    private final String hash;
+    private final String cachedHash;
+
+    public TipSnapshot(int sequence, String hash, String cachedHash) {
+        this.sequence = sequence;
+        this.hash = hash;
+        this.cachedHash = cachedHash;
+    }
+
+    /**
+     * Sequence of the tip block, 0 when the chain is empty.
+     */
+    public int getSequence() {
+        return sequence;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    /**
+     * Hash held by the tip cache, or null when the cache is disabled or unreadable.
+     */
+    public String getCachedHash() {
+        return cachedHash;
+    }
+}
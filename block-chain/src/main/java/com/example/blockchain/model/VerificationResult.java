@@ -0,0 +1,75 @@
+package com.example.blockchain.model;
+
+/**
+ * Outcome of a chain integrity check.
+ */
+public class VerificationResult {
+
+    private final boolean valid;
+    private final String message;
+    private final int verifiedSequence;
+    private final int blocksChecked;
+    private final Integer firstFailedSequence;
+    private final IntegrityFailure.Kind failureKind;
+
+    public VerificationResult(boolean valid, String message, int verifiedSequence, int blocksChecked) {
+        this(valid, message, verifiedSequence, blocksChecked, null, null);
+    }
+
+    public VerificationResult(boolean valid, String message, int verifiedSequence, int blocksChecked,
+                              Integer firstFailedSequence, IntegrityFailure.Kind failureKind) {
+        this.valid = valid;
+        this.message = message;
+        this.verifiedSequence = verifiedSequence;
+        this.blocksChecked = blocksChecked;
+        this.firstFailedSequence = firstFailedSequence;
+        this.failureKind = failureKind;
+    }
+
+    public static VerificationResult valid(int verifiedSequence, int blocksChecked) {
+        return new VerificationResult(true, "Chain integrity verified", verifiedSequence, blocksChecked);
+    }
+
+    public static VerificationResult invalid(String message, int verifiedSequence, int blocksChecked) {
+        return new VerificationResult(false, message, verifiedSequence, blocksChecked);
+    }
+
+    public static VerificationResult invalid(IntegrityFailure failure, int verifiedSequence, int blocksChecked) {
+        return new VerificationResult(false, failure.getMessage(), verifiedSequence, blocksChecked,
+                failure.getSequence(), failure.getKind());
+    }
+
+    public boolean isValid() {
+        return valid;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Highest sequence known to be intact (the watermark after this check).
+     */
+    public int getVerifiedSequence() {
+        return verifiedSequence;
+    }
+
+    /**
+     * Number of blocks walked during this check.
+     */
+    public int getBlocksChecked() {
+        return blocksChecked;
+    }
+
+    /**
+     * Lowest sequence found to be bad, or null if the chain is valid or the
+     * failure is not tied to a single block.
+     */
+    public Integer getFirstFailedSequence() {
+        return firstFailedSequence;
+    }
+
+    public IntegrityFailure.Kind getFailureKind() {
+        return failureKind;
+    }
+}
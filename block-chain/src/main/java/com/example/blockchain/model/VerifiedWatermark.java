@@ -0,0 +1,75 @@
+package com.example.blockchain.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Highest block the verifier has proven, together with its hash, so
+ * integrity checks only need to walk blocks appended after it.
+ */
+@Document(collection = "ledger_state")
+public class VerifiedWatermark {
+
+    public static final String ID = "verified_watermark";
+
+    @Id
+    private String id = ID;
+
+    private int sequence;
+    private String hash;
+    private String spanDigest;
+    private double verifiedAt;
+
+    public VerifiedWatermark() {}
+
+    public VerifiedWatermark(int sequence, String hash, String spanDigest, double verifiedAt) {
+        this.sequence = sequence;
+        this.hash = hash;
+        this.spanDigest = spanDigest;
+        this.verifiedAt = verifiedAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public int getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(int sequence) {
+        this.sequence = sequence;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    /**
+     * Running digest of the open checkpoint span up to this block, so the next check can
+     * carry it on; null at a checkpoint, or when the span began before digests were kept.
+     */
+    public String getSpanDigest() {
+        return spanDigest;
+    }
+
+    public void setSpanDigest(String spanDigest) {
+        this.spanDigest = spanDigest;
+    }
+
+    public double getVerifiedAt() {
+        return verifiedAt;
+    }
+
+    public void setVerifiedAt(double verifiedAt) {
+        this.verifiedAt = verifiedAt;
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.blockchain.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+/**
+ * Caps how many requests the service works on at once, so a burst is turned
+ * away quickly instead of piling onto chain_handler until everything times out.
+ * The limit adapts AIMD style to the latency of ingest requests: it grows by one
+ * per limit's worth of fast completions while the capacity is in use, and is cut
+ * by backoff-ratio when a store is slower than latency-threshold-ms or fails.
+ * <p>
+ * Two lanes share the limit. Ingest may only fill ingest-share of it, so
+ * integrity and admin calls always find room ahead of bulk stores; their
+ * latency does not move the limit, since an audit is slow by nature.
+ */
+@Component
+public class AdaptiveConcurrencyLimiter {
+
+    public enum Lane {
+        /** Integrity checks and admin calls */
+        PRIORITY,
+        /** Stores */
+        INGEST
+    }
+
+    private final Queue<Waiter> waiters = new ArrayDeque<>();
+    private final MeterRegistry meterRegistry;
+
+    @Value("${blockchain.admission.enabled:true}")
+    private boolean enabled;
+
+    @Value("${blockchain.admission.initial-limit:20}")
+    private int initialLimit;
+
+    @Value("${blockchain.admission.min-limit:2}")
+    private int minLimit;
+
+    @Value("${blockchain.admission.max-limit:200}")
+    private int maxLimit;
+
+    @Value("${blockchain.admission.latency-threshold-ms:1000}")
+    private long latencyThresholdMillis;
+
+    @Value("${blockchain.admission.backoff-ratio:0.9}")
+    private double backoffRatio;
+
+    @Value("${blockchain.admission.ingest-share:0.8}")
+    private double ingestShare;
+
+    // Guarded by this
+    private double limit = -1;
+    private int inFlight;
+    private long lastDecrease;
+    private boolean decreased;
+    private double averageLatencyNanos;
+
+    public AdaptiveConcurrencyLimiter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("blockchain.admission.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive concurrency limit")
+                .register(meterRegistry);
+        Gauge.builder("blockchain.admission.inflight", this, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("Requests holding a concurrency permit")
+                .register(meterRegistry);
+    }
+
+    /**
+     * A permit if the lane has room now; empty means the caller should be turned away.
+     */
+    public Optional<Permit> tryAcquire(Lane lane) {
+        synchronized (this) {
+            if (admits(lane)) {
+                inFlight++;
+                return Optional.of(new Permit(lane));
+            }
+        }
+        meterRegistry.counter("blockchain.admission.rejected", "lane", lane.name().toLowerCase()).increment();
+        return Optional.empty();
+    }
+
+    /**
+     * A permit as soon as the lane has room, for work that was already accepted
+     * (asynchronous stores) and should wait rather than fail.
+     */
+    public Mono<Permit> acquire(Lane lane) {
+        return Mono.create(sink -> {
+            Waiter waiter = new Waiter(lane, sink);
+            sink.onCancel(() -> waiter.cancelled.set(true));
+            synchronized (this) {
+                while (!waiters.isEmpty() && waiters.peek().cancelled.get()) {
+                    waiters.poll();
+                }
+                if (!waiters.isEmpty() || !admits(lane)) {
+                    waiters.add(waiter);
+                    return;
+                }
+                inFlight++;
+            }
+            sink.success(new Permit(lane));
+        });
+    }
+
+    /**
+     * Run call under the permit and release it when the call ends.
+     *
+     * @param dropped whether a result signals overload (an error response); errors always do
+     */
+    public <T> Mono<T> run(Permit permit, Mono<T> call, Predicate<T> dropped) {
+        AtomicBoolean overloaded = new AtomicBoolean(true);
+        return call
+                .doOnNext(result -> overloaded.set(dropped.test(result)))
+                .doFinally(signal -> permit.release(overloaded.get()));
+    }
+
+    /**
+     * Seconds a turned-away client should wait: about one average ingest round trip.
+     */
+    public synchronized long retryAfterSeconds() {
+        return Math.max(1, (long) Math.ceil(averageLatencyNanos / TimeUnit.SECONDS.toNanos(1)));
+    }
+
+    public synchronized double getLimit() {
+        return currentLimit();
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    private boolean admits(Lane lane) {
+        if (!enabled) {
+            return true;
+        }
+        int ingestCap = Math.max(1, (int) (currentLimit() * ingestShare));
+        if (lane == Lane.INGEST) {
+            return inFlight < ingestCap;
+        }
+        return inFlight < Math.max((int) currentLimit(), ingestCap + 1);
+    }
+
+    private double currentLimit() {
+        if (limit < 0) {
+            limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        }
+        return limit;
+    }
+
+    private void release(Lane lane, long latencyNanos, boolean failed) {
+        List<Waiter> admitted = new ArrayList<>();
+        synchronized (this) {
+            inFlight--;
+            if (lane == Lane.INGEST) {
+                adapt(latencyNanos, failed || latencyNanos > TimeUnit.MILLISECONDS.toNanos(latencyThresholdMillis));
+            }
+            Waiter waiter;
+            while ((waiter = waiters.peek()) != null) {
+                if (waiter.cancelled.get()) {
+                    waiters.poll();
+                    continue;
+                }
+                if (!admits(waiter.lane)) {
+                    break;
+                }
+                waiters.poll();
+                inFlight++;
+                admitted.add(waiter);
+            }
+        }
+        // Outside the lock: the waiter's work starts on this thread
+        admitted.forEach(next -> next.sink.success(new Permit(next.lane)));
+    }
+
+    private void adapt(long latencyNanos, boolean dropped) {
+        averageLatencyNanos = averageLatencyNanos == 0 ? latencyNanos : averageLatencyNanos * 0.9 + latencyNanos * 0.1;
+        double current = currentLimit();
+        long now = System.nanoTime();
+        if (dropped) {
+            // Requests that were in flight together report the same overload; cut once per threshold
+            if (!decreased || now - lastDecrease > TimeUnit.MILLISECONDS.toNanos(latencyThresholdMillis)) {
+                limit = Math.max(minLimit, current * backoffRatio);
+                lastDecrease = now;
+                decreased = true;
+            }
+        } else if (inFlight + 1 >= current / 2) {
+            limit = Math.min(maxLimit, current + 1 / current);
+        }
+    }
+
+    /**
+     * One admitted request; released exactly once, after which it no longer counts.
+     */
+    public final class Permit {
+        private final Lane lane;
+        private final long acquiredAt = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(Lane lane) {
+            this.lane = lane;
+        }
+
+        public void release(boolean failed) {
+            if (released.compareAndSet(false, true)) {
+                AdaptiveConcurrencyLimiter.this.release(lane, System.nanoTime() - acquiredAt, failed);
+            }
+        }
+    }
+
+    private static final class Waiter {
+        private final Lane lane;
+        private final MonoSink<Permit> sink;
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+
+        private Waiter(Lane lane, MonoSink<Permit> sink) {
+            this.lane = lane;
+            this.sink = sink;
+        }
+    }
+}
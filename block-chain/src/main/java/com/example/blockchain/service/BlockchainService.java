@@ -1,15 +1,37 @@
 package com.example.blockchain.service;
 
+import com.example.blockchain.exception.AppendQueueFullException;
+import com.example.blockchain.exception.LedgerException;
+import com.example.blockchain.ledger.AppendPipeline;
+import com.example.blockchain.ledger.ChainAuditor;
+import com.example.blockchain.ledger.ChainVerifier;
+import com.example.blockchain.ledger.IntegrityLocator;
+import com.example.blockchain.ledger.LedgerEngine;
+import com.example.blockchain.ledger.MerkleAccumulator;
+import com.example.blockchain.model.BatchItemResult;
+import com.example.blockchain.model.BlockchainDocument;
+import com.example.blockchain.model.InclusionProof;
+import com.example.blockchain.model.IntegrityReport;
+import com.example.blockchain.model.VerificationResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 @Service
 public class BlockchainService {
@@ -17,21 +39,64 @@ public class BlockchainService {
     
     private final WebClient webClient;
     private final String FASTAPI_BASE_URL = "http://localhost:8011";
+    private final AppendPipeline appendPipeline;
+    private final ChainVerifier chainVerifier;
+    private final ChainAuditor chainAuditor;
+    private final IntegrityLocator integrityLocator;
+    private final MerkleAccumulator merkleAccumulator;
+    private final LedgerEngine ledgerEngine;
+    private final IntegrityCheckCoalescer integrityChecks;
+    private final MeterRegistry meterRegistry;
+
+    // "native" appends in-process through LedgerEngine, "fastapi" forwards to chain_handler
+    @Value("${blockchain.ledger.engine:fastapi}")
+    private String ledgerEngineMode;
     
-    public BlockchainService() {
-        this.webClient = WebClient.builder()
+    public BlockchainService(AppendPipeline appendPipeline, ChainVerifier chainVerifier,
+                             ChainAuditor chainAuditor, IntegrityLocator integrityLocator,
+                             MerkleAccumulator merkleAccumulator, LedgerEngine ledgerEngine,
+                             IntegrityCheckCoalescer integrityChecks, WebClient.Builder webClientBuilder,
+                             MeterRegistry meterRegistry) {
+        this.appendPipeline = appendPipeline;
+        this.chainVerifier = chainVerifier;
+        this.chainAuditor = chainAuditor;
+        this.integrityLocator = integrityLocator;
+        this.merkleAccumulator = merkleAccumulator;
+        this.ledgerEngine = ledgerEngine;
+        this.integrityChecks = integrityChecks;
+        this.meterRegistry = meterRegistry;
+        // The injected builder records every FastAPI call as http.client.requests
+        this.webClient = webClientBuilder
                 .baseUrl(FASTAPI_BASE_URL)
                 .build();
     }
     
     /**
      * Check the integrity of the blockchain
+     * Concurrent callers share one check per chain tip, and its result is reused until the tip moves
+     * or blockchain.integrity.cache-ttl-ms passes
      * @return true if the blockchain is valid, false otherwise
      */
     public Mono<Boolean> checkChainIntegrity() {
+        return Mono.fromCallable(() -> Optional.ofNullable(ledgerEngine.findTipHash()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(tip -> integrityChecks.check(tip.orElse(null), this::runIntegrityCheck))
+                .onErrorResume(e -> {
+                    logger.error("Error checking blockchain integrity: {}", e.getMessage());
+                    return Mono.just(false);
+                });
+    }
+    
+    private Mono<Boolean> runIntegrityCheck() {
+        if (isNative()) {
+            Mono<Boolean> check = Mono.fromCallable(chainVerifier::verify)
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .map(VerificationResult::isValid);
+            return timed("blockchain.integrity.check", check, valid -> valid ? "valid" : "invalid");
+        }
         logger.info("Checking blockchain integrity at: {}/check_chain_integrity", FASTAPI_BASE_URL);
         
-        return webClient.get()
+        Mono<Boolean> check = webClient.get()
                 .uri("/check_chain_integrity")
                 .accept(MediaType.APPLICATION_JSON)
                 .retrieve()
@@ -41,11 +106,8 @@ public class BlockchainService {
                     Boolean isValid = (Boolean) response.get("Integrity");
                     logger.info("Blockchain integrity check result: {}", isValid);
                     return isValid != null && isValid;
-                })
-                .onErrorResume(e -> {
-                    logger.error("Error checking blockchain integrity: {}", e.getMessage());
-                    return Mono.just(false);
                 });
+        return timed("blockchain.integrity.check", check, valid -> valid ? "valid" : "invalid");
     }
     
     /**
@@ -54,6 +116,11 @@ public class BlockchainService {
      * @return the response from the FastAPI service
      */
     public Mono<Map<String, Object>> storeData(Map<String, Object> data) {
+        return timed("blockchain.store", isNative() ? storeDataNative(data) : storeDataFastApi(data),
+                response -> Boolean.FALSE.equals(response.get("success")) ? "failed" : "stored");
+    }
+    
+    private Mono<Map<String, Object>> storeDataFastApi(Map<String, Object> data) {
         logger.info("Storing data in blockchain at: {}/store_data", FASTAPI_BASE_URL);
         
         // Send data directly - the Python API now handles it correctly
@@ -75,4 +142,159 @@ public class BlockchainService {
                     return Mono.just(errorResponse);
                 });
     }
-} 
\ No newline at end of file
+    
+    /**
+     * Store several payloads as consecutive blocks
+     * In native mode the whole batch is chained in order and written with one insertMany;
+     * in fastapi mode the payloads are forwarded one by one
+     * @param items the payloads to store, in chain order
+     * @return one result per payload, in the same order
+     */
+    public Mono<List<BatchItemResult>> storeBatch(List<Map<String, Object>> items) {
+        if (isNative()) {
+            logger.info("Storing batch of {} payloads through native ledger engine", items.size());
+            return timed("blockchain.store.batch", appendPipeline.submit(items), results -> "stored");
+        }
+        
+        AtomicInteger index = new AtomicInteger();
+        Mono<List<BatchItemResult>> forwarded = Flux.fromIterable(items)
+                .concatMap(item -> {
+                    int i = index.getAndIncrement();
+                    return storeData(item).map(response -> {
+                        String message = (String) response.get("message");
+                        if (message != null && message.contains("successfully")) {
+                            // chain_handler does not report the assigned sequence or hash
+                            return BatchItemResult.stored(i, null, null);
+                        }
+                        Object error = response.containsKey("error") ? response.get("error") : message;
+                        return BatchItemResult.failed(i, String.valueOf(error));
+                    });
+                })
+                .collectList();
+        return timed("blockchain.store.batch", forwarded, results -> "stored");
+    }
+    
+    /**
+     * Verify the chain in-process, walking only blocks appended since the last verified watermark.
+     * @return the verification result with the verified sequence
+     */
+    public Mono<VerificationResult> verifyChain() {
+        return Mono.fromCallable(chainVerifier::verify)
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(e -> {
+                    logger.error("Error checking blockchain integrity: {}", e.getMessage());
+                    return Mono.just(VerificationResult.invalid("Integrity check error: " + e.getMessage(), 0, 0));
+                });
+    }
+    
+    /**
+     * Re-verify the whole chain from genesis, in parallel segments, regardless of the watermark.
+     * @return the audit result with the first failing sequence, if any
+     */
+    public Mono<VerificationResult> auditChain() {
+        return Mono.fromCallable(chainAuditor::audit)
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(e -> {
+                    logger.error("Error auditing blockchain: {}", e.getMessage());
+                    return Mono.just(VerificationResult.invalid("Audit error: " + e.getMessage(), 0, 0));
+                });
+    }
+    
+    /**
+     * Locate the first bad block using the verified checkpoints
+     * @param deep also audit the whole chain block by block, signatures included; without it,
+     *             spans that predate checkpoint digests are reported as unchecked
+     * @return the first bad sequence, the failure kind and the affected range
+     */
+    public Mono<IntegrityReport> integrityReport(boolean deep) {
+        return Mono.fromCallable(() -> integrityLocator.report(deep))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+    
+    /**
+     * Merkle inclusion proof for a block against the current tree root
+     * @param sequence the block sequence
+     * @return the proof, or empty if the block is not in the tree yet
+     */
+    public Mono<InclusionProof> getInclusionProof(int sequence) {
+        return Mono.fromCallable(() -> merkleAccumulator.prove(sequence))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+    
+    /**
+     * Read a run of consecutive blocks for transfer to other services
+     * @param fromSequence the first sequence to return
+     * @param limit the maximum number of blocks
+     * @return the blocks in sequence order
+     */
+    public Mono<List<BlockchainDocument>> getBlocks(int fromSequence, int limit) {
+        return Mono.fromCallable(() -> ledgerEngine.readBlocks(fromSequence, limit))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+    
+    /**
+     * False when the native append queue is already full, so callers can be turned away before any work is done.
+     */
+    public boolean hasAppendCapacity() {
+        return !isNative() || appendPipeline.hasCapacity();
+    }
+    
+    private boolean isNative() {
+        return "native".equalsIgnoreCase(ledgerEngineMode);
+    }
+    
+    /**
+     * Time a call from subscription to its result, tagged with the engine and an outcome;
+     * a full append queue is recorded as rejected and any other error as error.
+     */
+    private <T> Mono<T> timed(String name, Mono<T> call, Function<T, String> outcome) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return call
+                    .doOnNext(value -> sample.stop(timer(name, outcome.apply(value))))
+                    .doOnError(e -> sample.stop(timer(name,
+                            e instanceof AppendQueueFullException ? "rejected" : "error")));
+        });
+    }
+    
+    private Timer timer(String name, String result) {
+        return Timer.builder(name)
+                .tag("engine", isNative() ? "native" : "fastapi")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Store data through the single-writer append pipeline.
+     * Fails with AppendQueueFullException when the pipeline is saturated.
+     * The response mirrors the FastAPI store_data payload, plus the assigned sequence and hash.
+     */
+    private Mono<Map<String, Object>> storeDataNative(Map<String, Object> data) {
+        logger.info("Storing data in blockchain through native ledger engine");
+        
+        return appendPipeline.submit(List.of(data))
+                .map(results -> {
+                    BatchItemResult result = results.get(0);
+                    if (!result.isSuccess()) {
+                        throw new LedgerException(result.getError());
+                    }
+                    return toStoreResponse(result.getBlock());
+                })
+                .onErrorResume(e -> !(e instanceof AppendQueueFullException), e -> {
+                    logger.error("Error storing data in blockchain: {}", e.getMessage());
+                    Map<String, Object> errorResponse = new HashMap<>();
+                    errorResponse.put("success", false);
+                    errorResponse.put("error", "Failed to store data: " + e.getMessage());
+                    return Mono.just(errorResponse);
+                });
+    }
+    
+    private Map<String, Object> toStoreResponse(BlockchainDocument block) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", "Data added successfully");
+        response.put("data", block.getData());
+        response.put("sequence", block.getSequence());
+        response.put("hash", block.getHash());
+        return response;
+    }
+}
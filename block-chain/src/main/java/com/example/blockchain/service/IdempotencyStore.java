@@ -0,0 +1,217 @@
+package com.example.blockchain.service;
+
+import com.example.blockchain.ledger.CanonicalJson;
+import com.example.blockchain.model.IdempotencyRecord;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the responses of store requests sent with an Idempotency-Key, so a
+ * device retrying after a timeout gets the block it already stored instead of a
+ * clone rejection or a second block. Recent keys are held in a bounded LRU map
+ * and every successful response is also written to Mongo, where a TTL index
+ * expires it; a retry is answered from one or the other without running the
+ * integrity check again. A retry arriving while the first request is still
+ * running waits for its response. Only 2xx responses are kept, so a failed
+ * store can be retried with the same key.
+ */
+@Component
+public class IdempotencyStore {
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private volatile boolean indexEnsured;
+
+    @Value("${blockchain.idempotency.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${blockchain.idempotency.ttl-hours:24}")
+    private long ttlHours;
+
+    public IdempotencyStore(MongoTemplate mongoTemplate, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Run the store for a new key, or answer with the response already given for it.
+     *
+     * @param key     the client's Idempotency-Key
+     * @param request the request body; a key reused with a different body is rejected
+     * @param store   performs the store
+     */
+    public Mono<ResponseEntity<Map<String, Object>>> execute(String key, Map<String, Object> request,
+                                                             Supplier<Mono<ResponseEntity<Map<String, Object>>>> store) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            return Mono.just(error(HttpStatus.BAD_REQUEST,
+                    HEADER + " must be between 1 and " + MAX_KEY_LENGTH + " characters"));
+        }
+        String requestHash;
+        try {
+            requestHash = CanonicalJson.hash(request);
+        } catch (RuntimeException e) {
+            // The store rejects bodies that cannot be hashed anyway
+            return store.get();
+        }
+
+        Entry entry;
+        boolean created = false;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && entry.isExpired(TimeUnit.HOURS.toNanos(ttlHours))) {
+                entries.remove(key);
+                entry = null;
+            }
+            if (entry == null) {
+                entry = new Entry(requestHash);
+                entry.response = lookupOrStore(key, entry, store).cache();
+                entries.put(key, entry);
+                created = true;
+                while (entries.size() > maxEntries) {
+                    entries.remove(entries.keySet().iterator().next());
+                }
+            }
+        }
+        if (!entry.requestHash.equals(requestHash)) {
+            meterRegistry.counter("blockchain.idempotency.requests", "result", "mismatch").increment();
+            return Mono.just(mismatch(key));
+        }
+        if (created) {
+            return entry.response;
+        }
+        meterRegistry.counter("blockchain.idempotency.requests", "result", "replayed").increment();
+        return entry.response.map(IdempotencyStore::replayed);
+    }
+
+    private Mono<ResponseEntity<Map<String, Object>>> lookupOrStore(String key, Entry entry,
+                                                                    Supplier<Mono<ResponseEntity<Map<String, Object>>>> store) {
+        return Mono.fromCallable(() -> mongoTemplate.findById(key, IdempotencyRecord.class))
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(record -> {
+                    if (!record.getRequestHash().equals(entry.requestHash)) {
+                        meterRegistry.counter("blockchain.idempotency.requests", "result", "mismatch").increment();
+                        return mismatch(key);
+                    }
+                    meterRegistry.counter("blockchain.idempotency.requests", "result", "replayed").increment();
+                    return replayed(ResponseEntity.status(record.getStatus()).body(readResponse(record)));
+                })
+                .switchIfEmpty(Mono.defer(() -> {
+                    meterRegistry.counter("blockchain.idempotency.requests", "result", "new").increment();
+                    return store.get().flatMap(response -> save(key, entry, response));
+                }))
+                .doOnNext(response -> {
+                    if (!response.getStatusCode().is2xxSuccessful()) {
+                        forget(key, entry);
+                    }
+                })
+                .doOnError(e -> forget(key, entry));
+    }
+
+    private Mono<ResponseEntity<Map<String, Object>>> save(String key, Entry entry,
+                                                           ResponseEntity<Map<String, Object>> response) {
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            return Mono.just(response);
+        }
+        return Mono.fromCallable(() -> {
+                    ensureIndex();
+                    String json = objectMapper.writeValueAsString(response.getBody());
+                    mongoTemplate.save(new IdempotencyRecord(key, entry.requestHash, response.getStatusCodeValue(),
+                            json, new Date()));
+                    return response;
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(e -> {
+                    // The block is stored; only retries after this instance forgets the key lose out
+                    logger.error("Failed to persist idempotency key {}: {}", key, e.getMessage());
+                    return Mono.just(response);
+                });
+    }
+
+    private void ensureIndex() {
+        if (indexEnsured) {
+            return;
+        }
+        try {
+            mongoTemplate.indexOps(IdempotencyRecord.class)
+                    .ensureIndex(new Index("createdAt", Sort.Direction.ASC).expire(Duration.ofHours(ttlHours)));
+        } catch (RuntimeException e) {
+            logger.warn("Could not ensure TTL index on idempotency keys: {}", e.getMessage());
+        }
+        indexEnsured = true;
+    }
+
+    private void forget(String key, Entry entry) {
+        synchronized (entries) {
+            entries.remove(key, entry);
+        }
+    }
+
+    private Map<String, Object> readResponse(IdempotencyRecord record) {
+        try {
+            return objectMapper.readValue(record.getResponseJson(), new TypeReference<Map<String, Object>>() {});
+        } catch (Exception e) {
+            throw new IllegalStateException("Unreadable response stored for idempotency key " + record.getId(), e);
+        }
+    }
+
+    private static ResponseEntity<Map<String, Object>> replayed(ResponseEntity<Map<String, Object>> response) {
+        return ResponseEntity.status(response.getStatusCode())
+                .header(REPLAYED_HEADER, "true")
+                .body(response.getBody());
+    }
+
+    private static ResponseEntity<Map<String, Object>> mismatch(String key) {
+        return error(HttpStatus.UNPROCESSABLE_ENTITY,
+                HEADER + " " + key + " was already used with a different request body");
+    }
+
+    private static ResponseEntity<Map<String, Object>> error(HttpStatus status, String message) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("success", false);
+        errorResponse.put("error", message);
+        return ResponseEntity.status(status).body(errorResponse);
+    }
+
+    private static final class Entry {
+        private final String requestHash;
+        private final long createdAt = System.nanoTime();
+        private Mono<ResponseEntity<Map<String, Object>>> response;
+
+        private Entry(String requestHash) {
+            this.requestHash = requestHash;
+        }
+
+        private boolean isExpired(long ttlNanos) {
+            return System.nanoTime() - createdAt > ttlNanos;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.blockchain.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Shares integrity checks between concurrent callers. A caller joins the check
+ * already running for the current chain tip instead of starting its own, and a
+ * finished result is reused for that tip until the cache TTL runs out, so the
+ * number of full verifications follows how often the tip changes rather than
+ * how many requests arrive. Only a valid result is reused once it has finished:
+ * an invalid one or an error is shared with the callers that joined while it ran,
+ * and the next caller checks again, so a repaired chain reads valid at once.
+ * <p>
+ * Tampering that leaves the tip hash alone is picked up once the TTL expires.
+ */
+@Component
+public class IntegrityCheckCoalescer {
+
+    private final AtomicReference<Flight> current = new AtomicReference<>();
+    private final MeterRegistry meterRegistry;
+
+    // How long a finished check is reused while the tip stays the same; 0 only joins running checks
+    @Value("${blockchain.integrity.cache-ttl-ms:1000}")
+    private long cacheTtlMillis;
+
+    public IntegrityCheckCoalescer(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * The result of the check for this tip, started with check only when no
+     * running or cached one can be used.
+     *
+     * @param tipHash the current tip hash; null for an empty chain
+     * @param check   starts a full verification
+     */
+    public Mono<Boolean> check(String tipHash, Supplier<Mono<Boolean>> check) {
+        while (true) {
+            Flight flight = current.get();
+            long now = System.nanoTime();
+            if (flight != null && flight.reusableFor(tipHash, now, TimeUnit.MILLISECONDS.toNanos(cacheTtlMillis))) {
+                meterRegistry.counter("blockchain.integrity.check.shared",
+                        "source", flight.completedAt == 0 ? "inflight" : "cache").increment();
+                return flight.result;
+            }
+            Flight next = new Flight(tipHash, check.get());
+            if (current.compareAndSet(flight, next)) {
+                return next.result;
+            }
+        }
+    }
+
+    private final class Flight {
+        private final String tipHash;
+        private final Mono<Boolean> result;
+        private volatile long completedAt;
+        private volatile boolean valid;
+        private volatile boolean failed;
+
+        private Flight(String tipHash, Mono<Boolean> check) {
+            this.tipHash = tipHash;
+            this.result = check
+                    .doOnSuccess(result -> {
+                        valid = Boolean.TRUE.equals(result);
+                        completedAt = Math.max(1, System.nanoTime());
+                    })
+                    .doOnError(e -> {
+                        failed = true;
+                        current.compareAndSet(this, null);
+                    })
+                    .cache();
+        }
+
+        private boolean reusableFor(String tipHash, long now, long ttlNanos) {
+            if (failed || !Objects.equals(this.tipHash, tipHash)) {
+                return false;
+            }
+            long completed = completedAt;
+            return completed == 0 || valid && now - completed < ttlNanos;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.blockchain.service;
+
+import com.example.blockchain.model.StoreReceipt;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Runs stores accepted with async=true in the background and tracks them by
+ * receipt ID. Pending receipts live in memory, bounded by max-pending so a
+ * burst cannot queue without limit; finished ones are saved to Mongo and the
+ * most recent are also kept in memory for polling. A receipt still pending
+ * when the instance stops is lost, so clients that need to resubmit safely
+ * should send an Idempotency-Key as well.
+ */
+@Component
+public class ReceiptStore {
+    private static final Logger logger = LoggerFactory.getLogger(ReceiptStore.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, StoreReceipt> pending = new ConcurrentHashMap<>();
+    private final Map<String, StoreReceipt> recent = new LinkedHashMap<>(16, 0.75f, true);
+    private volatile boolean indexEnsured;
+
+    @Value("${blockchain.receipts.max-pending:10000}")
+    private int maxPending;
+
+    @Value("${blockchain.receipts.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${blockchain.receipts.ttl-hours:24}")
+    private long ttlHours;
+
+    public ReceiptStore(MongoTemplate mongoTemplate, MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("blockchain.receipts.pending", pending, Map::size)
+                .description("Asynchronous stores accepted and not finished yet")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Accept a store and start it in the background.
+     *
+     * @param store performs the integrity check and append; a 200 response means the block was stored
+     * @return the pending receipt, or empty when max-pending stores are already running
+     */
+    public Mono<StoreReceipt> submit(Supplier<Mono<ResponseEntity<Map<String, Object>>>> store) {
+        if (pending.size() >= maxPending) {
+            return Mono.empty();
+        }
+        StoreReceipt receipt = new StoreReceipt(UUID.randomUUID().toString(), new Date());
+        pending.put(receipt.getId(), receipt);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Mono.defer(store)
+                .map(response -> complete(receipt, response))
+                .onErrorResume(e -> Mono.just(failed(receipt, e.getMessage())))
+                .flatMap(this::save)
+                .subscribe(finished -> sample.stop(Timer.builder("blockchain.receipts.completion")
+                        .description("Time from accepting an asynchronous store to its outcome")
+                        .tag("status", finished.getStatus())
+                        .register(meterRegistry)));
+        return Mono.just(receipt);
+    }
+
+    /**
+     * The receipt with this ID, from memory or from Mongo.
+     */
+    public Mono<StoreReceipt> find(String id) {
+        StoreReceipt receipt = pending.get(id);
+        if (receipt == null) {
+            synchronized (recent) {
+                receipt = recent.get(id);
+            }
+        }
+        if (receipt != null) {
+            return Mono.just(receipt);
+        }
+        return Mono.fromCallable(() -> mongoTemplate.findById(id, StoreReceipt.class))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static StoreReceipt complete(StoreReceipt receipt, ResponseEntity<Map<String, Object>> response) {
+        Map<String, Object> body = response.getBody();
+        if (!response.getStatusCode().is2xxSuccessful() || body == null) {
+            Object error = body == null ? null : body.getOrDefault("error", body.get("message"));
+            return failed(receipt, error == null ? "Store failed with status " + response.getStatusCodeValue()
+                    : String.valueOf(error));
+        }
+        StoreReceipt finished = finished(receipt, StoreReceipt.STORED);
+        // chain_handler does not report the assigned sequence or hash
+        Object sequence = body.get("sequence");
+        finished.setSequence(sequence instanceof Number ? ((Number) sequence).intValue() : null);
+        finished.setHash((String) body.get("hash"));
+        return finished;
+    }
+
+    private static StoreReceipt failed(StoreReceipt receipt, String error) {
+        StoreReceipt finished = finished(receipt, StoreReceipt.FAILED);
+        finished.setError(error);
+        return finished;
+    }
+
+    private static StoreReceipt finished(StoreReceipt receipt, String status) {
+        StoreReceipt finished = new StoreReceipt(receipt.getId(), receipt.getAcceptedAt());
+        finished.setStatus(status);
+        finished.setCompletedAt(new Date());
+        return finished;
+    }
+
+    /**
+     * Move a finished receipt from the pending map to the recent ones and Mongo.
+     */
+    private Mono<StoreReceipt> save(StoreReceipt receipt) {
+        synchronized (recent) {
+            recent.put(receipt.getId(), receipt);
+            while (recent.size() > maxEntries) {
+                recent.remove(recent.keySet().iterator().next());
+            }
+        }
+        pending.remove(receipt.getId());
+        return Mono.fromCallable(() -> {
+                    ensureIndex();
+                    return mongoTemplate.save(receipt);
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(e -> {
+                    logger.error("Failed to save receipt {}: {}", receipt.getId(), e.getMessage());
+                    return Mono.just(receipt);
+                });
+    }
+
+    private void ensureIndex() {
+        if (indexEnsured) {
+            return;
+        }
+        try {
+            mongoTemplate.indexOps(StoreReceipt.class)
+                    .ensureIndex(new Index("acceptedAt", Sort.Direction.ASC).expire(Duration.ofHours(ttlHours)));
+        } catch (RuntimeException e) {
+            logger.warn("Could not ensure TTL index on store receipts: {}", e.getMessage());
+        }
+        indexEnsured = true;
+    }
+}
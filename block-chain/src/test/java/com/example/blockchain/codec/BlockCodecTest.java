@@ -0,0 +1,128 @@
+package com.example.blockchain.codec;
+
+import com.example.blockchain.ledger.CanonicalJson;
+import com.example.blockchain.model.BlockchainDocument;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BlockCodecTest {
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final Random random = new Random(7);
+    private final String verifyKey = HEX.formatHex(randomBytes(32));
+
+    @Test
+    void roundTripsChainHandlerBlocks() throws IOException {
+        List<BlockchainDocument> blocks = chain(50);
+        List<BlockchainDocument> decoded = decode(encode(blocks));
+        assertEquals(blocks.size(), decoded.size());
+        for (int i = 0; i < blocks.size(); i++) {
+            BlockchainDocument expected = blocks.get(i);
+            BlockchainDocument actual = decoded.get(i);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getHash(), actual.getHash());
+            assertEquals(expected.getPrevHash(), actual.getPrevHash());
+            assertEquals(expected.getSignature(), actual.getSignature());
+            assertEquals(expected.getVerifyKey(), actual.getVerifyKey());
+            assertEquals(expected.getTimestamp(), actual.getTimestamp());
+            assertEquals(expected.getSequence(), actual.getSequence());
+            assertEquals(expected.getData(), actual.getData());
+            assertEquals(expected.getHash(), CanonicalJson.hash(actual.getData()));
+        }
+    }
+
+    @Test
+    void keepsFieldsThatAreNotHex() throws IOException {
+        BlockchainDocument odd = new BlockchainDocument("TAMPERED", "Blockchain has been tampered with!", null,
+                "not-a-signature", "ABCDEF", "0".repeat(64), 0, 0);
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("big", new BigInteger("123456789012345678901234567890"));
+        data.put("long", 1L << 40);
+        data.put("negative", -5);
+        data.put("nested", Arrays.asList(null, false, 1.5, List.of("é")));
+        BlockchainDocument values = new BlockchainDocument(null, data, "ab", "ab", null, "ab", 1.25, 3);
+
+        List<BlockchainDocument> decoded = decode(encode(List.of(odd, values)));
+        assertEquals("TAMPERED", decoded.get(0).getId());
+        assertEquals("Blockchain has been tampered with!", decoded.get(0).getData());
+        assertNull(decoded.get(0).getHash());
+        assertEquals("not-a-signature", decoded.get(0).getSignature());
+        assertEquals("ABCDEF", decoded.get(0).getVerifyKey());
+        assertNull(decoded.get(1).getId());
+        assertNull(decoded.get(1).getVerifyKey());
+        assertEquals(data, decoded.get(1).getData());
+    }
+
+    @Test
+    void isAtLeastThreeTimesSmallerThanJson() throws IOException {
+        List<BlockchainDocument> blocks = chain(200);
+        int json = new ObjectMapper().writeValueAsBytes(blocks).length;
+        int binary = encode(blocks).length;
+        assertTrue(json >= 3 * binary, "json " + json + " bytes, binary " + binary + " bytes");
+    }
+
+    @Test
+    void rejectsOtherStreams() {
+        byte[] json = "[{\"hash\":\"00\"}]".getBytes(StandardCharsets.US_ASCII);
+        assertThrows(IOException.class, () -> decode(json));
+    }
+
+    /**
+     * Blocks shaped like chain_handler's: a GPS payload, the PyNaCl signed message
+     * as signature and one verify key for the whole chain.
+     */
+    private List<BlockchainDocument> chain(int length) {
+        List<BlockchainDocument> blocks = new ArrayList<>();
+        String prevHash = "0".repeat(64);
+        for (int sequence = 1; sequence <= length; sequence++) {
+            double timestamp = 1718001234.5678 + sequence;
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("identifier", "truck_" + (100 + sequence % 20));
+            data.put("dataType", "gps");
+            data.put("lat", 28.6 + random.nextDouble() / 10);
+            data.put("lon", 77.2 + random.nextDouble() / 10);
+            data.put("timestamp", timestamp);
+            String hash = CanonicalJson.hash(data);
+            String signature = HEX.formatHex(randomBytes(64)) + HEX.formatHex(hash.getBytes(StandardCharsets.US_ASCII));
+            blocks.add(new BlockchainDocument(HEX.formatHex(randomBytes(12)), data, hash, signature, verifyKey,
+                    prevHash, timestamp, sequence));
+            prevHash = hash;
+        }
+        return blocks;
+    }
+
+    private byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static byte[] encode(List<BlockchainDocument> blocks) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BlockCodec.encode(blocks, out);
+        return out.toByteArray();
+    }
+
+    private static List<BlockchainDocument> decode(byte[] bytes) throws IOException {
+        return BlockCodec.decode(new ByteArrayInputStream(bytes));
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.blockchain.ledger;
+
+import com.example.blockchain.exception.LedgerException;
+import com.example.blockchain.model.BatchItemResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AppendPipelineTest {
+
+    private final LedgerEngine ledgerEngine = mock(LedgerEngine.class);
+    private final AppendPipeline pipeline = new AppendPipeline(ledgerEngine, new SimpleMeterRegistry());
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        pipeline.stop();
+    }
+
+    @Test
+    void errorInGroupCommitFailsPendingAndLaterAppends() {
+        when(ledgerEngine.appendBatch(anyList())).thenThrow(new StackOverflowError());
+        start();
+
+        LedgerException first = assertThrows(LedgerException.class,
+                () -> pipeline.submit(List.of(Map.of("n", 1))).block(Duration.ofSeconds(5)));
+        assertTrue(first.getCause() instanceof StackOverflowError);
+        // The writer is still draining, but nothing is appended any more
+        assertThrows(LedgerException.class,
+                () -> pipeline.submit(List.of(Map.of("n", 2))).block(Duration.ofSeconds(5)));
+    }
+
+    @Test
+    void runtimeFailureOnlyFailsItsGroup() {
+        BatchItemResult rejected = BatchItemResult.failed(0, "rejected");
+        when(ledgerEngine.appendBatch(anyList()))
+                .thenThrow(new LedgerException("Mongo unavailable"))
+                .thenReturn(List.of(rejected));
+        start();
+
+        assertThrows(LedgerException.class,
+                () -> pipeline.submit(List.of(Map.of("n", 1))).block(Duration.ofSeconds(5)));
+        List<BatchItemResult> results = pipeline.submit(List.of(Map.of("n", 2))).block(Duration.ofSeconds(5));
+        assertTrue(results != null && results.size() == 1);
+    }
+
+    private void start() {
+        ReflectionTestUtils.setField(pipeline, "queueCapacity", 16);
+        ReflectionTestUtils.setField(pipeline, "maxGroupSize", 500);
+        pipeline.start();
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.blockchain.ledger;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Golden vectors produced by CPython's json module (see src/test/resources/canonical-json):
+ * documents.jsonl holds json.dumps(data, sort_keys=True) and its SHA-256 for each input,
+ * floats.txt holds repr() for IEEE-754 bit patterns.
+ */
+class CanonicalJsonTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void matchesPythonForDocuments() throws IOException {
+        List<String> lines = readLines("canonical-json/documents.jsonl");
+        assertTrue(lines.size() > 0);
+        for (String line : lines) {
+            JsonNode vector = objectMapper.readTree(line);
+            Object data = objectMapper.readValue(vector.get("input").asText(), Object.class);
+            assertEquals(vector.get("canonical").asText(), CanonicalJson.serialize(data), line);
+            assertEquals(vector.get("sha256").asText(), CanonicalJson.hash(data), line);
+        }
+    }
+
+    @Test
+    void matchesPythonFloatRepr() throws IOException {
+        List<String> lines = readLines("canonical-json/floats.txt");
+        assertTrue(lines.size() > 0);
+        for (String line : lines) {
+            String[] parts = line.split(" ");
+            double value = Double.longBitsToDouble(Long.parseUnsignedLong(parts[0], 16));
+            assertEquals(parts[1], CanonicalJson.serialize(value), parts[0]);
+        }
+    }
+
+    @Test
+    void hashIsIndependentOfInsertionOrder() {
+        Map<String, Object> forward = new LinkedHashMap<>();
+        forward.put("a", 1);
+        forward.put("b", List.of(1.5, "x"));
+        Map<String, Object> reverse = new LinkedHashMap<>();
+        reverse.put("b", List.of(1.5, "x"));
+        reverse.put("a", 1);
+        assertEquals(CanonicalJson.hash(forward), CanonicalJson.hash(reverse));
+        assertEquals("{\"a\": 1, \"b\": [1.5, \"x\"]}", CanonicalJson.serialize(reverse));
+    }
+
+    @Test
+    void writesNonFiniteFloatsLikePython() {
+        assertEquals("[NaN, Infinity, -Infinity]",
+                CanonicalJson.serialize(List.of(Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY)));
+    }
+
+    @Test
+    void treatsBigDecimalAsDouble() {
+        assertEquals("[0.1, 100.0]", CanonicalJson.serialize(List.of(new BigDecimal("0.1"), new BigDecimal("1E+2"))));
+    }
+
+    @Test
+    void longDocumentsSpanSeveralBuffers() {
+        StringBuilder text = new StringBuilder();
+        List<Object> items = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            text.append((char) ('a' + i % 26));
+            items.add(i * 0.5);
+        }
+        Map<String, Object> data = Map.of("text", text.toString(), "items", items);
+        String canonical = CanonicalJson.serialize(data);
+        byte[] expected = CanonicalJson.sha256().digest(canonical.getBytes(StandardCharsets.US_ASCII));
+        assertEquals(HexFormat.of().formatHex(expected), CanonicalJson.hash(data));
+    }
+
+    @Test
+    void rejectsUnserializableValues() {
+        assertThrows(IllegalArgumentException.class, () -> CanonicalJson.hash(Map.of("when", new Object())));
+        // The per-thread digest must be clean after a failed write
+        assertEquals(CanonicalJson.hash(Map.of()), HexFormat.of().formatHex(
+                CanonicalJson.sha256().digest("{}".getBytes(StandardCharsets.US_ASCII))));
+    }
+
+    private List<String> readLines(String resource) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(resource)) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank() && !line.startsWith("#")) {
+                    lines.add(line);
+                }
+            }
+        }
+        return lines;
+    }
+}
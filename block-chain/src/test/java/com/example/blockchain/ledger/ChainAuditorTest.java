@@ -0,0 +1,246 @@
+package com.example.blockchain.ledger;
+
+import com.example.blockchain.model.BlockchainDocument;
+import com.example.blockchain.model.IntegrityFailure.Kind;
+import com.example.blockchain.model.VerificationResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The parallel audit must give the same answer as a single ascending walk: links
+ * across segment boundaries are checked when the segments are stitched, and the
+ * lowest bad sequence wins whichever segment finishes first.
+ */
+class ChainAuditorTest {
+
+    // With 40 blocks, audit segments start at 1, 11, 21 and 31
+    private static final int LENGTH = 40;
+    private static final int SEGMENT_SIZE = 10;
+
+    // Pads each block so a 1 MB segment file holds a few hundred of them
+    private static final String PAD = "x".repeat(2048);
+
+    @TempDir
+    Path dir;
+
+    private TestChain chain;
+    private final List<ChainAuditor> auditors = new ArrayList<>();
+    private final List<SegmentStore> stores = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        chain = new TestChain(dir);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (ChainAuditor auditor : auditors) {
+            auditor.stop();
+        }
+        for (SegmentStore store : stores) {
+            store.close();
+        }
+        chain.close();
+    }
+
+    @Test
+    void intactChainPassesAcrossSegments() throws IOException {
+        chain.write(LENGTH);
+
+        VerificationResult result = auditor(new SegmentStore()).audit();
+        assertTrue(result.isValid(), result.getMessage());
+        assertEquals(LENGTH, result.getBlocksChecked());
+    }
+
+    @Test
+    void brokenLinkAtASegmentBoundaryIsFoundWhenStitching() throws IOException {
+        chain.write(LENGTH);
+        // Segment 21 checks no link for its first block; only the stitch can see this
+        chain.set(21, "prevHash", "ab".repeat(32));
+
+        assertFailure(auditor(new SegmentStore()).audit(), Kind.BROKEN_LINK, 21);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "11, 31",  // two segment starts
+            "15, 21",  // inside one segment, then the start of the next
+            "21, 25",  // a segment start, then later in the same segment
+            "35, 31",  // inside the last segment, and its start
+    })
+    void lowestBadSequenceWinsWhicheverSegmentFinishesFirst(int first, int second) throws IOException {
+        chain.write(LENGTH);
+        chain.set(first, "data.n", -1);
+        chain.set(second, "data.n", -1);
+        ChainAuditor auditor = auditor(new SegmentStore());
+
+        // Segments complete in whatever order the pool runs them; repeat to vary it
+        for (int run = 0; run < 10; run++) {
+            assertFailure(auditor.audit(), Kind.HASH_MISMATCH, Math.min(first, second));
+        }
+    }
+
+    @Test
+    void missingSegmentStartIsAGap() throws IOException {
+        chain.write(LENGTH);
+        chain.template().remove(new Query(Criteria.where("sequence").is(31)), BlockchainDocument.class);
+        chain.set(35, "data.n", -1);
+
+        assertFailure(auditor(new SegmentStore()).audit(), Kind.GAP, 31);
+    }
+
+    @Test
+    void clonesAreReportedAtTheEarliestSecondCopy() throws IOException {
+        List<BlockchainDocument> blocks = new ArrayList<>();
+        Map<Integer, Integer> clones = Map.of(18, 7, 25, 3);
+        String prevHash = TestChain.GENESIS_PREV_HASH;
+        for (int sequence = 1; sequence <= LENGTH; sequence++) {
+            BlockchainDocument block = clones.containsKey(sequence)
+                    ? copy(blocks.get(clones.get(sequence) - 1), prevHash, sequence)
+                    : chain.block(Map.of("n", sequence), prevHash, sequence);
+            blocks.add(block);
+            prevHash = block.getHash();
+        }
+        chain.template().insert(blocks, BlockchainDocument.class);
+        chain.tipCache().write(prevHash);
+
+        assertFailure(auditor(new SegmentStore()).audit(), Kind.CLONE, 18);
+    }
+
+    @Test
+    void segmentFilesAreAuditedInPlace() throws IOException {
+        SegmentStore store = segmentStore(dir.resolve("segments"));
+        List<BlockchainDocument> blocks = padded(1200);
+        store.append(blocks);
+        chain.tipCache().write(store.getTipHash());
+        assertTrue(store.segmentStarts().length >= 3);
+
+        VerificationResult result = auditor(store).audit();
+        assertTrue(result.isValid(), result.getMessage());
+        assertEquals(blocks.size(), result.getBlocksChecked());
+    }
+
+    @Test
+    void brokenLinkAtASegmentFileBoundaryIsFound() throws IOException {
+        List<BlockchainDocument> blocks = padded(1200);
+        SegmentStore scratch = segmentStore(dir.resolve("scratch"));
+        scratch.append(blocks);
+        int boundary = scratch.segmentStarts()[1];
+
+        // Same record sizes, so the files split at the same sequence
+        blocks.get(boundary - 1).setPrevHash("ab".repeat(32));
+        SegmentStore store = segmentStore(dir.resolve("segments"));
+        store.append(blocks);
+        chain.tipCache().write(store.getTipHash());
+        assertEquals(boundary, store.segmentStarts()[1]);
+
+        assertFailure(auditor(store).audit(), Kind.BROKEN_LINK, boundary);
+    }
+
+    @Test
+    void lowestDamagedRecordWinsAcrossSegmentFiles() throws IOException {
+        Path segments = dir.resolve("segments");
+        SegmentStore store = segmentStore(segments);
+        List<BlockchainDocument> blocks = padded(1200);
+        store.append(blocks);
+        chain.tipCache().write(store.getTipHash());
+        int[] starts = store.segmentStarts();
+
+        // The first record of the second file, and one in the middle of the third
+        flipByte(segments.resolve(segmentName(starts[1])), SegmentRecord.HEADER_SIZE + 6);
+        int middle = starts[2] + 10;
+        flipByte(segments.resolve(segmentName(starts[2])),
+                offsetWithin(blocks, starts[2], middle) + SegmentRecord.HEADER_SIZE + 6);
+
+        ChainAuditor auditor = auditor(store);
+        for (int run = 0; run < 5; run++) {
+            VerificationResult result = auditor.audit();
+            assertFailure(result, Kind.HASH_MISMATCH, starts[1]);
+            assertTrue(result.getMessage().contains("CRC"), result.getMessage());
+        }
+    }
+
+    private ChainAuditor auditor(SegmentStore segmentStore) {
+        ChainAuditor auditor = new ChainAuditor(chain.template(), chain.tipCache(), segmentStore);
+        ReflectionTestUtils.setField(auditor, "parallelism", 4);
+        ReflectionTestUtils.setField(auditor, "segmentSize", SEGMENT_SIZE);
+        auditor.start();
+        auditors.add(auditor);
+        return auditor;
+    }
+
+    private SegmentStore segmentStore(Path segmentDir) throws IOException {
+        SegmentStore store = new SegmentStore();
+        ReflectionTestUtils.setField(store, "storeMode", "segment");
+        ReflectionTestUtils.setField(store, "segmentDir", segmentDir.toString());
+        ReflectionTestUtils.setField(store, "segmentSizeMb", 1);
+        ReflectionTestUtils.setField(store, "indexInterval", 64);
+        store.open();
+        stores.add(store);
+        return store;
+    }
+
+    private List<BlockchainDocument> padded(int length) {
+        List<BlockchainDocument> blocks = new ArrayList<>(length);
+        String prevHash = TestChain.GENESIS_PREV_HASH;
+        for (int sequence = 1; sequence <= length; sequence++) {
+            BlockchainDocument block = chain.block(Map.of("n", sequence, "pad", PAD), prevHash, sequence);
+            blocks.add(block);
+            prevHash = block.getHash();
+        }
+        return blocks;
+    }
+
+    /**
+     * The same data, hash and signature as the original, linked in at another sequence.
+     */
+    private static BlockchainDocument copy(BlockchainDocument original, String prevHash, int sequence) {
+        return new BlockchainDocument(null, original.getData(), original.getHash(), original.getSignature(),
+                original.getVerifyKey(), prevHash, original.getTimestamp(), sequence);
+    }
+
+    private static int offsetWithin(List<BlockchainDocument> blocks, int segmentStart, int sequence) {
+        int offset = 0;
+        for (int s = segmentStart; s < sequence; s++) {
+            offset += SegmentRecord.sizeOf(blocks.get(s - 1));
+        }
+        return offset;
+    }
+
+    private static void flipByte(Path file, int offset) throws IOException {
+        try (RandomAccessFile segment = new RandomAccessFile(file.toFile(), "rw")) {
+            segment.seek(offset);
+            int value = segment.read();
+            segment.seek(offset);
+            segment.write(value ^ 0xFF);
+        }
+    }
+
+    private static String segmentName(int firstSequence) {
+        return String.format("%020d.seg", firstSequence);
+    }
+
+    private static void assertFailure(VerificationResult result, Kind kind, int sequence) {
+        assertFalse(result.isValid());
+        assertEquals(kind, result.getFailureKind(), result.getMessage());
+        assertEquals(Integer.valueOf(sequence), result.getFirstFailedSequence(), result.getMessage());
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.blockchain.ledger;
+
+import com.example.blockchain.model.BatchItemResult;
+import com.example.blockchain.model.BlockchainDocument;
+import com.example.blockchain.model.ChainCheckpoint;
+import com.example.blockchain.model.IntegrityFailure.Kind;
+import com.example.blockchain.model.VerificationResult;
+import com.example.blockchain.model.VerifiedWatermark;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Incremental verification: every kind of damage after the watermark is reported
+ * at the right block, the watermark block itself is re-hashed, and appends that
+ * land while a check runs never make an intact chain look tampered.
+ */
+class ChainVerifierTest {
+
+    @TempDir
+    Path dir;
+
+    private TestChain chain;
+    private ChainVerifier verifier;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        chain = new TestChain(dir);
+        verifier = new ChainVerifier(chain.template(), chain.tipCache(), chain.engine(), new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        chain.close();
+    }
+
+    @Test
+    void resumesFromTheWatermark() throws IOException {
+        chain.write(5);
+        VerificationResult first = verifier.verify();
+        assertTrue(first.isValid(), first.getMessage());
+        assertEquals(5, first.getVerifiedSequence());
+        assertEquals(5, first.getBlocksChecked());
+
+        chain.engine().appendBatch(List.of(Map.of("n", "a"), Map.of("n", "b"), Map.of("n", "c")));
+        VerificationResult second = verifier.verify();
+        assertTrue(second.isValid(), second.getMessage());
+        assertEquals(8, second.getVerifiedSequence());
+        assertEquals(3, second.getBlocksChecked());
+        assertEquals(8, chain.template().findById(VerifiedWatermark.ID, VerifiedWatermark.class).getSequence());
+
+        VerificationResult unchanged = verifier.verify();
+        assertTrue(unchanged.isValid(), unchanged.getMessage());
+        assertEquals(0, unchanged.getBlocksChecked());
+    }
+
+    @Test
+    void modifiedWatermarkBlockIsAHashMismatch() throws IOException {
+        chain.write(5);
+        assertTrue(verifier.verify().isValid());
+
+        chain.set(5, "data.n", 99);
+        assertFailure(verifier.verify(), Kind.HASH_MISMATCH, 5);
+    }
+
+    @Test
+    void missingBlockIsAGap() throws IOException {
+        chain.write(5);
+        chain.template().remove(new Query(Criteria.where("sequence").is(3)), BlockchainDocument.class);
+
+        assertFailure(verifier.verify(), Kind.GAP, 3);
+    }
+
+    @Test
+    void rewrittenPrevHashIsABrokenLink() throws IOException {
+        chain.write(5);
+        chain.set(4, "prevHash", "ab".repeat(32));
+
+        assertFailure(verifier.verify(), Kind.BROKEN_LINK, 4);
+    }
+
+    @Test
+    void repeatedDataIsAClone() throws IOException {
+        List<BlockchainDocument> blocks = chain.write(5);
+        BlockchainDocument original = blocks.get(1);
+        // A correctly linked and signed copy of block 2 appended as block 6
+        BlockchainDocument copy = new BlockchainDocument(null, original.getData(), original.getHash(),
+                original.getSignature(), original.getVerifyKey(), blocks.get(4).getHash(), original.getTimestamp(), 6);
+        chain.template().insert(copy);
+        chain.tipCache().write(copy.getHash());
+
+        assertFailure(verifier.verify(), Kind.CLONE, 6);
+    }
+
+    @Test
+    void staleTipCacheIsAHashMismatchAtTheTip() throws IOException {
+        List<BlockchainDocument> blocks = chain.write(5);
+        chain.tipCache().write(blocks.get(3).getHash());
+
+        assertFailure(verifier.verify(), Kind.HASH_MISMATCH, 5);
+    }
+
+    @Test
+    void recordsACheckpointEveryInterval() throws IOException {
+        int length = 2 * ChainVerifier.CHECKPOINT_INTERVAL + 50;
+        List<BlockchainDocument> blocks = chain.write(length);
+
+        VerificationResult result = verifier.verify();
+        assertTrue(result.isValid(), result.getMessage());
+        assertEquals(length, result.getVerifiedSequence());
+
+        List<ChainCheckpoint> checkpoints = chain.template().find(
+                new Query().with(Sort.by(Sort.Direction.ASC, "sequence")), ChainCheckpoint.class);
+        assertEquals(2, checkpoints.size());
+        for (int i = 0; i < checkpoints.size(); i++) {
+            int sequence = (i + 1) * ChainVerifier.CHECKPOINT_INTERVAL;
+            assertEquals(sequence, checkpoints.get(i).getSequence());
+            assertEquals(blocks.get(sequence - 1).getHash(), checkpoints.get(i).getHash());
+        }
+    }
+
+    @Test
+    void appendsDuringACheckNeverFailAnIntactChain() throws Exception {
+        chain.write(1);
+        chain.engine().appendBatch(List.of(Map.of("n", "warm-up")));
+
+        CompletableFuture<Integer> writer = CompletableFuture.supplyAsync(() -> {
+            int stored = 0;
+            for (int group = 0; group < 150; group++) {
+                List<Map<String, Object>> payloads = new ArrayList<>();
+                for (int i = 0; i <= group % 4; i++) {
+                    payloads.add(Map.of("group", group, "item", i));
+                }
+                for (BatchItemResult result : chain.engine().appendBatch(payloads)) {
+                    assertTrue(result.isSuccess(), result.getError());
+                    stored++;
+                }
+            }
+            return stored;
+        });
+
+        List<VerificationResult> results = new ArrayList<>();
+        while (!writer.isDone()) {
+            results.add(verifier.verify());
+        }
+        int stored = writer.get(30, TimeUnit.SECONDS);
+        results.add(verifier.verify());
+
+        for (VerificationResult result : results) {
+            assertTrue(result.isValid(), result.getMessage());
+        }
+        assertTrue(results.size() > 1);
+        assertEquals(stored + 2, results.get(results.size() - 1).getVerifiedSequence());
+    }
+
+    private static void assertFailure(VerificationResult result, Kind kind, int sequence) {
+        assertFalse(result.isValid());
+        assertEquals(kind, result.getFailureKind(), result.getMessage());
+        assertEquals(Integer.valueOf(sequence), result.getFirstFailedSequence(), result.getMessage());
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.blockchain.ledger;
+
+import com.example.blockchain.model.BatchItemResult;
+import com.example.blockchain.model.BlockchainDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+/**
+ * The Bloom filter only rules hashes out; every hit must be confirmed in Mongo.
+ * A restarted index rebuilds the filter from the collection, and clones are
+ * turned away by {@link LedgerEngine#appendBatch}.
+ */
+class HashIndexTest {
+
+    @TempDir
+    Path dir;
+
+    private TestChain chain;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        chain = new TestChain(dir);
+    }
+
+    @AfterEach
+    void tearDown() {
+        chain.close();
+    }
+
+    @Test
+    void filterHitsAreConfirmedAgainstMongo() throws IOException {
+        List<BlockchainDocument> blocks = chain.write(20);
+        MongoTemplate template = spy(chain.template());
+        // One bit per hash, so false positives turn up within a few thousand tries
+        HashIndex index = hashIndex(template, 0.5, "native");
+        assertEquals(Map.of(blocks.get(4).getHash(), 5), index.findStored(List.of(blocks.get(4).getHash()), 20));
+
+        BloomFilter filter = (BloomFilter) ReflectionTestUtils.getField(index, "filter");
+        Random random = new Random(7);
+        String falsePositive = null;
+        String miss = null;
+        for (int i = 0; i < 1_000_000 && (falsePositive == null || miss == null); i++) {
+            byte[] digest = new byte[32];
+            random.nextBytes(digest);
+            String hash = HexFormat.of().formatHex(digest);
+            if (filter.mightContain(hash)) {
+                falsePositive = falsePositive == null ? hash : falsePositive;
+            } else {
+                miss = miss == null ? hash : miss;
+            }
+        }
+        assertNotNull(falsePositive);
+
+        clearInvocations(template);
+        assertTrue(index.findStored(List.of(falsePositive), 20).isEmpty());
+        verify(template).find(any(Query.class), eq(BlockchainDocument.class));
+
+        clearInvocations(template);
+        assertTrue(index.findStored(List.of(miss), 20).isEmpty());
+        verify(template, never()).find(any(Query.class), eq(BlockchainDocument.class));
+    }
+
+    @Test
+    void restartedIndexRebuildsFromTheCollection() throws IOException {
+        chain.write(1);
+        List<String> hashes = new ArrayList<>();
+        for (int batch = 0; batch < 5; batch++) {
+            for (BatchItemResult result : chain.engine().appendBatch(
+                    List.of(Map.of("batch", batch, "item", 0), Map.of("batch", batch, "item", 1)))) {
+                hashes.add(result.getHash());
+            }
+        }
+
+        HashIndex restarted = hashIndex(chain.template(), 0.001, "native");
+        List<String> candidates = new ArrayList<>(hashes);
+        candidates.add("ab".repeat(32));
+        Map<String, Integer> stored = restarted.findStored(candidates, 11);
+        assertEquals(hashes.size(), stored.size());
+        for (int i = 0; i < hashes.size(); i++) {
+            assertEquals(i + 2, stored.get(hashes.get(i)));
+        }
+        assertTrue(hasUniqueHashIndex());
+    }
+
+    @Test
+    void uniqueHashIndexIsOnlyCreatedForTheNativeEngine() throws IOException {
+        List<BlockchainDocument> blocks = chain.write(5);
+
+        HashIndex index = hashIndex(chain.template(), 0.001, "fastapi");
+        assertEquals(Map.of(blocks.get(0).getHash(), 1), index.findStored(List.of(blocks.get(0).getHash()), 5));
+        assertFalse(hasUniqueHashIndex());
+    }
+
+    @Test
+    void appendBatchRejectsClones() throws IOException {
+        chain.write(1);
+        // A fixed clock stamps every block alike, so the same payload hashes the same
+        ReflectionTestUtils.setField(chain.engine(), "clock",
+                Clock.fixed(Instant.ofEpochSecond(1_800_000_000L), ZoneOffset.UTC));
+
+        BatchItemResult first = chain.engine().appendBatch(List.of(Map.of("n", "a"))).get(0);
+        assertTrue(first.isSuccess(), first.getError());
+        assertEquals(2, first.getSequence());
+
+        List<BatchItemResult> second = chain.engine().appendBatch(List.of(Map.of("n", "a"), Map.of("n", "b")));
+        assertFalse(second.get(0).isSuccess());
+        assertEquals("Data cloning detected in document 2", second.get(0).getError());
+        assertTrue(second.get(1).isSuccess(), second.get(1).getError());
+        assertEquals(3, second.get(1).getSequence());
+
+        List<BatchItemResult> third = chain.engine().appendBatch(List.of(Map.of("n", "c"), Map.of("n", "c")));
+        assertTrue(third.get(0).isSuccess(), third.get(0).getError());
+        assertEquals("Data cloning detected within the same batch", third.get(1).getError());
+        assertEquals(4, chain.engine().snapshotTip().getSequence());
+    }
+
+    private static HashIndex hashIndex(MongoTemplate template, double falsePositiveRate, String engine) {
+        HashIndex index = new HashIndex(template);
+        ReflectionTestUtils.setField(index, "falsePositiveRate", falsePositiveRate);
+        ReflectionTestUtils.setField(index, "ledgerEngineMode", engine);
+        return index;
+    }
+
+    private boolean hasUniqueHashIndex() {
+        for (IndexInfo info : chain.template().indexOps(BlockchainDocument.class).getIndexInfo()) {
+            if (info.isUnique() && info.isIndexForFields(List.of("hash"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.blockchain.ledger;
+
+import com.example.blockchain.model.BlockchainDocument;
+import com.example.blockchain.model.ChainCheckpoint;
+import com.example.blockchain.model.IntegrityFailure.Kind;
+import com.example.blockchain.model.IntegrityReport;
+import com.example.blockchain.model.IntegrityReport.Status;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Locating damage from the checkpoint digests: clean chains are reported valid
+ * without a deep audit, and a tampered block is found whether it sits inside a
+ * checkpointed span or after the last checkpoint.
+ */
+class IntegrityLocatorTest {
+
+    private static final int LENGTH = 2 * ChainVerifier.CHECKPOINT_INTERVAL + 50;
+
+    @TempDir
+    Path dir;
+
+    private TestChain chain;
+    private ChainVerifier verifier;
+    private IntegrityLocator locator;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        chain = new TestChain(dir);
+        verifier = new ChainVerifier(chain.template(), chain.tipCache(), chain.engine(), new SimpleMeterRegistry());
+        locator = new IntegrityLocator(chain.template(), verifier, mock(ChainAuditor.class), chain.tipCache(),
+                chain.engine());
+    }
+
+    @AfterEach
+    void tearDown() {
+        chain.close();
+    }
+
+    @Test
+    void cleanChainIsValidWithoutADeepAudit() throws IOException {
+        chain.write(LENGTH);
+        assertTrue(verifier.verify().isValid());
+
+        IntegrityReport report = locator.report(false);
+        assertEquals(Status.VALID, report.getStatus(), report.getMessage());
+        assertEquals(Boolean.TRUE, report.getValid());
+        assertEquals(2 * ChainVerifier.CHECKPOINT_INTERVAL, report.getLastGoodCheckpoint());
+        assertEquals(LENGTH, report.getBlocksScanned());
+    }
+
+    @Test
+    void tamperInsideASpanIsFoundByWalkingOnlyThatSpan() throws IOException {
+        chain.write(LENGTH);
+        assertTrue(verifier.verify().isValid());
+
+        chain.set(1500, "data.n", -1);
+        IntegrityReport report = locator.report(false);
+        assertEquals(Status.INVALID, report.getStatus());
+        assertEquals(Boolean.FALSE, report.getValid());
+        assertEquals(Kind.HASH_MISMATCH, report.getKind(), report.getMessage());
+        assertEquals(Integer.valueOf(1500), report.getFirstBadSequence());
+        assertEquals(ChainVerifier.CHECKPOINT_INTERVAL, report.getLastGoodCheckpoint());
+        // The first span matched its digest; the second was walked up to the bad block
+        assertEquals(1499, report.getBlocksScanned());
+    }
+
+    @Test
+    void tamperPastTheLastCheckpointIsFound() throws IOException {
+        chain.write(LENGTH);
+        assertTrue(verifier.verify().isValid());
+
+        chain.set(2020, "prevHash", "ab".repeat(32));
+        IntegrityReport report = locator.report(false);
+        assertEquals(Status.INVALID, report.getStatus());
+        assertEquals(Kind.BROKEN_LINK, report.getKind(), report.getMessage());
+        assertEquals(Integer.valueOf(2020), report.getFirstBadSequence());
+        assertEquals(2 * ChainVerifier.CHECKPOINT_INTERVAL, report.getLastGoodCheckpoint());
+    }
+
+    @Test
+    void reSignedBlockFailsItsSpanDigest() throws IOException {
+        chain.write(LENGTH);
+        assertTrue(verifier.verify().isValid());
+
+        // Re-signed with another key, the block checks out on its own; only the digest pins the original
+        BlockSigner other = signer(dir.resolve("other_key.bin"));
+        BlockchainDocument block = chain.stored(1200);
+        chain.set(1200, "signature", other.sign(block.getHash()));
+        chain.set(1200, "verifyKey", other.getVerifyKey());
+
+        IntegrityReport report = locator.report(false);
+        assertEquals(Status.INVALID, report.getStatus());
+        assertEquals(Kind.HASH_MISMATCH, report.getKind(), report.getMessage());
+        assertEquals(Integer.valueOf(ChainVerifier.CHECKPOINT_INTERVAL + 1), report.getFirstBadSequence());
+        assertEquals(ChainVerifier.CHECKPOINT_INTERVAL, report.getLastGoodCheckpoint());
+    }
+
+    @Test
+    void checkpointsWithoutADigestAreReportedUnchecked() throws IOException {
+        chain.write(LENGTH);
+        assertTrue(verifier.verify().isValid());
+        chain.template().updateFirst(new Query(Criteria.where("sequence").is(ChainVerifier.CHECKPOINT_INTERVAL)),
+                new Update().unset("digest"), ChainCheckpoint.class);
+
+        IntegrityReport report = locator.report(false);
+        assertEquals(Status.UNCHECKED, report.getStatus(), report.getMessage());
+        assertNull(report.getValid());
+        assertEquals(Integer.valueOf(1), report.getUncheckedFrom());
+        assertEquals(Integer.valueOf(ChainVerifier.CHECKPOINT_INTERVAL), report.getUncheckedTo());
+    }
+
+    @Test
+    void spanDigestCarriesAcrossChecks() throws IOException {
+        List<BlockchainDocument> blocks = chain.blocks(LENGTH);
+        chain.template().insert(blocks.subList(0, 1500), BlockchainDocument.class);
+        chain.tipCache().write(blocks.get(1499).getHash());
+        assertTrue(verifier.verify().isValid());
+        chain.template().insert(blocks.subList(1500, LENGTH), BlockchainDocument.class);
+        chain.tipCache().write(blocks.get(LENGTH - 1).getHash());
+        assertTrue(verifier.verify().isValid());
+
+        String digest = null;
+        for (BlockchainDocument block : blocks.subList(ChainVerifier.CHECKPOINT_INTERVAL, 2 * ChainVerifier.CHECKPOINT_INTERVAL)) {
+            digest = ChainVerifier.foldSpan(digest, block);
+        }
+        ChainCheckpoint checkpoint = chain.template().findById(2 * ChainVerifier.CHECKPOINT_INTERVAL, ChainCheckpoint.class);
+        assertEquals(digest, checkpoint.getDigest());
+        assertEquals(Status.VALID, locator.report(false).getStatus());
+    }
+
+    private static BlockSigner signer(Path keyFile) throws IOException {
+        Files.write(keyFile, new byte[32]);
+        BlockSigner signer = new BlockSigner();
+        ReflectionTestUtils.setField(signer, "signingKeyFile", keyFile.toString());
+        signer.init();
+        return signer;
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.blockchain.ledger;
+
+import com.example.blockchain.model.BatchItemResult;
+import com.example.blockchain.model.BlockchainDocument;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+/**
+ * Crash recovery of the Mongo append path: logged blocks the collection is missing
+ * are replayed on load, a torn log tail is ignored, and blocks rolled back after a
+ * failed insertMany are neither replayed nor reported as stored.
+ */
+class LedgerEngineTest {
+
+    @TempDir
+    Path dir;
+
+    private InMemoryMongo mongo;
+    private WriteAheadLog writeAheadLog;
+
+    @BeforeEach
+    void setUp() {
+        mongo = new InMemoryMongo();
+        writeAheadLog = openLog();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        writeAheadLog.close();
+        mongo.close();
+    }
+
+    @Test
+    void replayInsertsLoggedBlocksMissingAfterPartialInsert() throws IOException {
+        List<BlockchainDocument> logged = WriteAheadLogTest.chain(1, 5);
+        mongo.template().insert(logged.subList(0, 3), BlockchainDocument.class);
+        log(logged.subList(1, 5));
+
+        List<BatchItemResult> results = engine(mongo.template()).appendBatch(List.of(Map.of("n", "next")));
+
+        assertEquals(6, results.get(0).getSequence());
+        List<BlockchainDocument> stored = storedChain();
+        assertChained(stored, 6);
+        assertEquals(logged.get(4).getHash(), stored.get(4).getHash());
+        // The replayed blocks were cleared from the log; only the new group is in it
+        assertEquals(List.of(6), sequences(openLog().recover()));
+    }
+
+    @Test
+    void tornLogTailIsNotReplayed() throws IOException {
+        List<BlockchainDocument> logged = WriteAheadLogTest.chain(1, 4);
+        mongo.template().insert(logged.get(0));
+        log(logged.subList(1, 4));
+        Path file = dir.resolve("ledger.wal");
+        try (RandomAccessFile wal = new RandomAccessFile(file.toFile(), "rw")) {
+            wal.setLength(Files.size(file) - 5);
+        }
+
+        List<BatchItemResult> results = engine(mongo.template()).appendBatch(List.of(Map.of("n", "next")));
+
+        assertEquals(4, results.get(0).getSequence());
+        List<BlockchainDocument> stored = storedChain();
+        assertChained(stored, 4);
+        assertEquals(logged.get(2).getHash(), stored.get(2).getHash());
+        assertNotEquals(logged.get(3).getHash(), stored.get(3).getHash());
+    }
+
+    @Test
+    void failedInsertManyRollsBackTheUnpersistedSuffix() {
+        mongo.template().insert(WriteAheadLogTest.chain(1, 1).get(0));
+        MongoTemplate failing = spy(mongo.template());
+        // An ordered insertMany that stops after its first document
+        doAnswer(invocation -> {
+            List<BlockchainDocument> blocks = invocation.getArgument(0);
+            mongo.template().insert(blocks.subList(0, 1), BlockchainDocument.class);
+            throw new DataIntegrityViolationException("E11000 duplicate key");
+        }).when(failing).insert(anyList(), eq(BlockchainDocument.class));
+        LedgerEngine engine = engine(failing);
+
+        List<BatchItemResult> results = engine.appendBatch(List.of(Map.of("n", "a"), Map.of("n", "b"), Map.of("n", "c")));
+
+        assertEquals(2, results.get(0).getSequence());
+        assertFalse(results.get(1).isSuccess());
+        assertFalse(results.get(2).isSuccess());
+        assertEquals(List.of(2), sequences(openLog().recover()));
+
+        // The next load replays nothing and the chain continues from the persisted prefix
+        List<BatchItemResult> next = engine(mongo.template()).appendBatch(List.of(Map.of("n", "d")));
+        assertEquals(3, next.get(0).getSequence());
+        List<BlockchainDocument> stored = storedChain();
+        assertChained(stored, 3);
+        assertEquals(Map.of("n", "a"), withoutTimestamp(stored.get(1).getData()));
+    }
+
+    @Test
+    void plainSequenceIndexIsReplacedWithUniqueOne() {
+        mongo.template().insert(WriteAheadLogTest.chain(1, 1).get(0));
+        mongo.template().indexOps(BlockchainDocument.class).ensureIndex(new Index("sequence", Sort.Direction.ASC));
+
+        engine(mongo.template()).appendBatch(List.of(Map.of("n", "next")));
+
+        List<IndexInfo> sequenceIndexes = mongo.template().indexOps(BlockchainDocument.class).getIndexInfo().stream()
+                .filter(info -> info.isIndexForFields(List.of("sequence")))
+                .toList();
+        assertEquals(1, sequenceIndexes.size());
+        assertTrue(sequenceIndexes.get(0).isUnique());
+    }
+
+    private LedgerEngine engine(MongoTemplate mongoTemplate) {
+        BlockSigner signer = mock(BlockSigner.class);
+        when(signer.isAvailable()).thenReturn(true);
+        when(signer.sign(anyString())).thenReturn("ab".repeat(64));
+        when(signer.getVerifyKey()).thenReturn("cd".repeat(32));
+        return new LedgerEngine(mongoTemplate, signer, mock(TipCache.class), mock(MerkleAccumulator.class),
+                mock(HashIndex.class), mock(SegmentStore.class), writeAheadLog, new SimpleMeterRegistry());
+    }
+
+    private WriteAheadLog openLog() {
+        WriteAheadLog log = new WriteAheadLog();
+        ReflectionTestUtils.setField(log, "walFile", dir.resolve("ledger.wal").toString());
+        ReflectionTestUtils.setField(log, "checkpointSizeMb", 16);
+        return log;
+    }
+
+    /**
+     * Leave blocks in the log as a crashed process would.
+     */
+    private void log(List<BlockchainDocument> blocks) throws IOException {
+        WriteAheadLog log = openLog();
+        log.recover();
+        log.append(blocks);
+        log.close();
+    }
+
+    private List<BlockchainDocument> storedChain() {
+        return mongo.template().find(new Query().with(Sort.by(Sort.Direction.ASC, "sequence")),
+                BlockchainDocument.class);
+    }
+
+    private static void assertChained(List<BlockchainDocument> blocks, int length) {
+        assertEquals(length, blocks.size());
+        for (int i = 0; i < length; i++) {
+            assertEquals(i + 1, blocks.get(i).getSequence());
+            if (i > 0) {
+                assertEquals(blocks.get(i - 1).getHash(), blocks.get(i).getPrevHash());
+            }
+            assertEquals(CanonicalJson.hash(blocks.get(i).getData()), blocks.get(i).getHash());
+        }
+    }
+
+    private static List<Integer> sequences(List<BlockchainDocument> blocks) {
+        List<Integer> sequences = new ArrayList<>(blocks.size());
+        for (BlockchainDocument block : blocks) {
+            sequences.add(block.getSequence());
+        }
+        return sequences;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> withoutTimestamp(Object data) {
+        Map<String, Object> fields = new HashMap<>((Map<String, Object>) data);
+        fields.remove("timestamp");
+        return fields;
+    }
+}
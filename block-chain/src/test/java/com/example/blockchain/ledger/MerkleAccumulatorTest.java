@@ -0,0 +1,127 @@
+package com.example.blockchain.ledger;
+
+import com.example.blockchain.model.BlockchainDocument;
+import com.example.blockchain.model.InclusionProof;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Inclusion proofs must recompute the root for every leaf, including trees whose
+ * size is not a power of two, where the right edge is folded from pending subtrees.
+ */
+class MerkleAccumulatorTest {
+
+    private InMemoryMongo mongo;
+    private MerkleAccumulator accumulator;
+
+    @BeforeEach
+    void setUp() {
+        mongo = new InMemoryMongo();
+        accumulator = new MerkleAccumulator(mongo.template(), mock(BlockSigner.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongo.close();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 4, 5, 7, 8, 13})
+    void everyProofRecomputesTheRoot(int treeSize) {
+        List<String> hashes = insertBlocks(1, treeSize);
+        String expectedRoot = hex(treeHash(hashes));
+
+        for (int sequence = 1; sequence <= treeSize; sequence++) {
+            InclusionProof proof = accumulator.prove(sequence);
+            assertNotNull(proof, "sequence " + sequence);
+            assertEquals(treeSize, proof.getTreeSize());
+            assertEquals(expectedRoot, proof.getRoot());
+            assertEquals(expectedRoot, hex(recomputeRoot(proof)), "size " + treeSize + ", sequence " + sequence);
+        }
+        assertNull(accumulator.prove(treeSize + 1));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 5, 7})
+    void proofsStayValidAsTheTreeGrowsByAppend(int firstSize) {
+        List<String> hashes = new ArrayList<>(insertBlocks(1, firstSize));
+        accumulator.catchUp();
+        // Appended in uneven groups, as the group commit does
+        for (int group : new int[] {1, 3, 2}) {
+            List<BlockchainDocument> blocks = blocks(hashes.size() + 1, group);
+            mongo.template().insert(blocks, BlockchainDocument.class);
+            accumulator.append(blocks);
+            blocks.forEach(block -> hashes.add(block.getHash()));
+
+            String expectedRoot = hex(treeHash(hashes));
+            assertEquals(expectedRoot, accumulator.currentRoot().get("root"));
+            for (int sequence = 1; sequence <= hashes.size(); sequence++) {
+                assertEquals(expectedRoot, hex(recomputeRoot(accumulator.prove(sequence))),
+                        "size " + hashes.size() + ", sequence " + sequence);
+            }
+        }
+    }
+
+    private List<String> insertBlocks(int firstSequence, int count) {
+        List<BlockchainDocument> blocks = blocks(firstSequence, count);
+        mongo.template().insert(blocks, BlockchainDocument.class);
+        List<String> hashes = new ArrayList<>();
+        blocks.forEach(block -> hashes.add(block.getHash()));
+        return hashes;
+    }
+
+    private static List<BlockchainDocument> blocks(int firstSequence, int count) {
+        List<BlockchainDocument> blocks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int sequence = firstSequence + i;
+            BlockchainDocument block = new BlockchainDocument();
+            block.setData(Map.of("sequence", sequence));
+            block.setHash(hex(CanonicalJson.sha256().digest(("block " + sequence).getBytes())));
+            block.setSequence(sequence);
+            blocks.add(block);
+        }
+        return blocks;
+    }
+
+    /**
+     * What an auditor does: fold the leaf with the path, leaf upwards.
+     */
+    private static byte[] recomputeRoot(InclusionProof proof) {
+        byte[] hash = MerkleAccumulator.leafHash(proof.getBlockHash());
+        assertEquals(proof.getLeafHash(), hex(hash));
+        for (Map<String, String> step : proof.getPath()) {
+            byte[] sibling = HexFormat.of().parseHex(step.get("hash"));
+            hash = "left".equals(step.get("side"))
+                    ? MerkleAccumulator.nodeHash(sibling, hash)
+                    : MerkleAccumulator.nodeHash(hash, sibling);
+        }
+        return hash;
+    }
+
+    /**
+     * RFC 6962 MTH, computed directly from the leaves.
+     */
+    private static byte[] treeHash(List<String> hashes) {
+        if (hashes.size() == 1) {
+            return MerkleAccumulator.leafHash(hashes.get(0));
+        }
+        int k = Integer.highestOneBit(hashes.size() - 1);
+        return MerkleAccumulator.nodeHash(treeHash(hashes.subList(0, k)), treeHash(hashes.subList(k, hashes.size())));
+    }
+
+    private static String hex(byte[] bytes) {
+        return HexFormat.of().formatHex(bytes);
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.blockchain.ledger;
+
+import com.example.blockchain.exception.LedgerException;
+import com.example.blockchain.model.BlockchainDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Reopening a segment must find the last good record: a torn or CRC-failing tail
+ * of the active segment is cut off, a damaged sealed segment is refused, and the
+ * sparse index is only trusted as far as it points at valid records.
+ */
+class SegmentStoreTest {
+
+    private static final int INDEX_INTERVAL = 4;
+
+    @TempDir
+    Path dir;
+
+    private final List<SegmentStore> opened = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (SegmentStore store : opened) {
+            store.close();
+        }
+    }
+
+    @Test
+    void sparseIndexFindsEveryRecordAfterReopen() throws IOException {
+        SegmentStore store = open(1);
+        store.append(blocks(1, 50));
+        assertRange(store, 1, 50);
+        store.close();
+
+        // One 8-byte entry per INDEX_INTERVAL records
+        assertEquals(13 * 8, Files.size(dir.resolve(segmentName(1, ".idx"))));
+        SegmentStore reopened = open(1);
+        assertEquals(50, reopened.getTipSequence());
+        assertEquals(blocks(50, 50).get(0).getHash(), reopened.getTipHash());
+        for (int sequence = 1; sequence <= 50; sequence++) {
+            assertEquals(sequence, reopened.read(sequence).getSequence());
+        }
+        assertRange(reopened, 23, 5);
+        assertNull(reopened.read(51));
+    }
+
+    @Test
+    void indexEntryPointingAtGarbageIsDroppedAndRebuilt() throws IOException {
+        SegmentStore store = open(1);
+        store.append(blocks(1, 30));
+        store.close();
+
+        // Third entry (sequence 9) now points into the middle of a record
+        try (RandomAccessFile index = new RandomAccessFile(dir.resolve(segmentName(1, ".idx")).toFile(), "rw")) {
+            index.seek(2 * 8 + 4);
+            index.writeInt(offsetOf(9) + 3);
+        }
+        SegmentStore reopened = open(1);
+        assertEquals(30, reopened.getTipSequence());
+        assertRange(reopened, 1, 30);
+        assertEquals(9, reopened.read(9).getSequence());
+        assertEquals(8 * 8, Files.size(dir.resolve(segmentName(1, ".idx"))));
+    }
+
+    @Test
+    void truncatedTailRecoversToLastCompleteRecord() throws IOException {
+        SegmentStore store = open(1);
+        store.append(blocks(1, 20));
+        store.close();
+
+        try (RandomAccessFile segment = new RandomAccessFile(dir.resolve(segmentName(1, ".seg")).toFile(), "rw")) {
+            segment.setLength(offsetOf(20) + 10);
+        }
+        SegmentStore reopened = open(1);
+        assertEquals(19, reopened.getTipSequence());
+        assertRange(reopened, 1, 19);
+
+        // The next append continues the chain in a new segment
+        reopened.append(blocks(20, 1));
+        assertEquals(20, reopened.getTipSequence());
+        assertRange(reopened, 1, 20);
+    }
+
+    @Test
+    void recordFailingCrcCutsOffTheRestOfTheActiveSegment() throws IOException {
+        SegmentStore store = open(1);
+        store.append(blocks(1, 20));
+        store.close();
+
+        // Recovery re-reads from the last index entry (17), so damage after it is found on open
+        flipByte(dir.resolve(segmentName(1, ".seg")), offsetOf(19) + SegmentRecord.HEADER_SIZE + 6);
+        SegmentStore reopened = open(1);
+        assertEquals(18, reopened.getTipSequence());
+        assertEquals(blocks(18, 1).get(0).getHash(), reopened.getTipHash());
+        assertRange(reopened, 1, 18);
+        assertEquals(18, reopened.readRange(1, 100).size());
+
+        // Record 20 is still on disk right behind the rewritten 19 and must stay unreachable
+        reopened.append(blocks(19, 1));
+        reopened.close();
+        SegmentStore again = open(1);
+        assertEquals(19, again.getTipSequence());
+        assertRange(again, 1, 19);
+        assertEquals(19, again.readRange(1, 100).size());
+    }
+
+    @Test
+    void recordFailingCrcInSealedSegmentIsRefused() throws IOException {
+        // A zero size gives every block a segment of its own
+        SegmentStore store = open(0);
+        store.append(blocks(1, 3));
+        store.close();
+
+        flipByte(dir.resolve(segmentName(2, ".seg")), SegmentRecord.HEADER_SIZE + 6);
+        assertThrows(LedgerException.class, () -> open(0));
+    }
+
+    private SegmentStore open(int segmentSizeMb) throws IOException {
+        SegmentStore store = new SegmentStore();
+        ReflectionTestUtils.setField(store, "storeMode", "segment");
+        ReflectionTestUtils.setField(store, "segmentDir", dir.toString());
+        ReflectionTestUtils.setField(store, "segmentSizeMb", segmentSizeMb);
+        ReflectionTestUtils.setField(store, "indexInterval", INDEX_INTERVAL);
+        store.open();
+        opened.add(store);
+        return store;
+    }
+
+    private static void assertRange(SegmentStore store, int from, int count) {
+        List<BlockchainDocument> expected = blocks(from, count);
+        List<BlockchainDocument> read = store.readRange(from, count);
+        assertEquals(count, read.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(expected.get(i).getSequence(), read.get(i).getSequence());
+            assertEquals(expected.get(i).getHash(), read.get(i).getHash());
+            assertEquals(expected.get(i).getData(), read.get(i).getData());
+        }
+    }
+
+    private static void flipByte(Path file, int offset) throws IOException {
+        try (RandomAccessFile segment = new RandomAccessFile(file.toFile(), "rw")) {
+            segment.seek(offset);
+            int value = segment.read();
+            segment.seek(offset);
+            segment.write(value ^ 0xFF);
+        }
+    }
+
+    private static int offsetOf(int sequence) {
+        int offset = 0;
+        for (BlockchainDocument block : blocks(1, sequence - 1)) {
+            offset += SegmentRecord.sizeOf(block);
+        }
+        return offset;
+    }
+
+    private static String segmentName(int firstSequence, String suffix) {
+        return String.format("%020d%s", firstSequence, suffix);
+    }
+
+    private static List<BlockchainDocument> blocks(int from, int count) {
+        List<BlockchainDocument> blocks = new ArrayList<>(count);
+        String prevHash = "0".repeat(64);
+        for (int sequence = 1; sequence < from + count; sequence++) {
+            Map<String, Object> data = Map.of("n", sequence, "note", "block " + sequence);
+            String hash = CanonicalJson.hash(data);
+            if (sequence >= from) {
+                blocks.add(new BlockchainDocument(null, data, hash, "ab".repeat(64), "cd".repeat(32), prevHash,
+                        1_700_000_000.0 + sequence, sequence));
+            }
+            prevHash = hash;
+        }
+        return blocks;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.blockchain.ledger;
+
+import com.example.blockchain.model.BlockchainDocument;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * A signed chain in an in-memory Mongo, built the way chain_handler and
+ * {@link LedgerEngine} build it, with a real signing key and tip cache in a
+ * temp directory. Blocks can be written directly (as chain_handler would) or
+ * appended through the engine.
+ */
+final class TestChain implements AutoCloseable {
+
+    static final String GENESIS_PREV_HASH = "0".repeat(64);
+
+    private final InMemoryMongo mongo = new InMemoryMongo();
+    private final BlockSigner signer;
+    private final TipCache tipCache;
+    private final HashIndex hashIndex;
+    private final LedgerEngine engine;
+
+    TestChain(Path dir) throws IOException {
+        Path keyFile = dir.resolve("signing_key.bin");
+        byte[] seed = new byte[32];
+        new Random(11).nextBytes(seed);
+        Files.write(keyFile, seed);
+        signer = new BlockSigner();
+        ReflectionTestUtils.setField(signer, "signingKeyFile", keyFile.toString());
+        signer.init();
+
+        tipCache = new TipCache();
+        ReflectionTestUtils.setField(tipCache, "cacheFile", dir.resolve("last_hash_cache.bin").toString());
+        ReflectionTestUtils.setField(tipCache, "encryptionKeyHex", "5a".repeat(32));
+        tipCache.init();
+
+        hashIndex = new HashIndex(mongo.template());
+        ReflectionTestUtils.setField(hashIndex, "falsePositiveRate", 0.001);
+        ReflectionTestUtils.setField(hashIndex, "ledgerEngineMode", "native");
+        engine = new LedgerEngine(mongo.template(), signer, tipCache, mock(MerkleAccumulator.class), hashIndex,
+                new SegmentStore(), new WriteAheadLog(), new SimpleMeterRegistry());
+    }
+
+    MongoTemplate template() {
+        return mongo.template();
+    }
+
+    BlockSigner signer() {
+        return signer;
+    }
+
+    TipCache tipCache() {
+        return tipCache;
+    }
+
+    HashIndex hashIndex() {
+        return hashIndex;
+    }
+
+    LedgerEngine engine() {
+        return engine;
+    }
+
+    /**
+     * Store blocks 1..length directly and point the tip cache at the last one.
+     */
+    List<BlockchainDocument> write(int length) throws IOException {
+        List<BlockchainDocument> blocks = blocks(length);
+        template().insert(blocks, BlockchainDocument.class);
+        tipCache.write(blocks.get(blocks.size() - 1).getHash());
+        return blocks;
+    }
+
+    /**
+     * Signed blocks 1..length, chained from the genesis prev_hash.
+     */
+    List<BlockchainDocument> blocks(int length) {
+        List<BlockchainDocument> blocks = new ArrayList<>(length);
+        String prevHash = GENESIS_PREV_HASH;
+        for (int sequence = 1; sequence <= length; sequence++) {
+            BlockchainDocument block = block(Map.of("n", sequence), prevHash, sequence);
+            blocks.add(block);
+            prevHash = block.getHash();
+        }
+        return blocks;
+    }
+
+    /**
+     * A correctly hashed and signed block for the data, with a fixed timestamp added like add_data does.
+     */
+    BlockchainDocument block(Map<String, Object> payload, String prevHash, int sequence) {
+        double timestamp = 1_718_000_000.0 + sequence;
+        Map<String, Object> data = new LinkedHashMap<>(payload);
+        data.put("timestamp", timestamp);
+        String hash = CanonicalJson.hash(data);
+        return new BlockchainDocument(null, data, hash, signer.sign(hash), signer.getVerifyKey(), prevHash,
+                timestamp, sequence);
+    }
+
+    BlockchainDocument stored(int sequence) {
+        return template().findOne(new Query(Criteria.where("sequence").is(sequence)), BlockchainDocument.class);
+    }
+
+    /**
+     * Change one field of a stored block in place, leaving every other field as it was.
+     */
+    void set(int sequence, String field, Object value) {
+        template().updateFirst(new Query(Criteria.where("sequence").is(sequence)), Update.update(field, value),
+                BlockchainDocument.class);
+    }
+
+    @Override
+    public void close() {
+        mongo.close();
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.blockchain.ledger;
+
+import com.example.blockchain.model.BlockchainDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The log must hand back exactly the groups that were fully written: a torn tail
+ * is cut off on recovery and a rolled-back suffix never comes back.
+ */
+class WriteAheadLogTest {
+
+    @TempDir
+    Path dir;
+
+    private final List<WriteAheadLog> opened = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (WriteAheadLog log : opened) {
+            log.close();
+        }
+    }
+
+    @Test
+    void recoverReturnsLoggedGroupsInOrder() {
+        WriteAheadLog log = open();
+        assertTrue(log.recover().isEmpty());
+        List<BlockchainDocument> blocks = chain(1, 7);
+        log.append(blocks.subList(0, 3));
+        log.append(blocks.subList(3, 7));
+
+        assertSequences(open().recover(), 1, 7);
+    }
+
+    @Test
+    void tornTailIsCutOffAndLoggingContinuesAfterIt() throws IOException {
+        WriteAheadLog log = open();
+        log.recover();
+        List<BlockchainDocument> blocks = chain(1, 5);
+        log.append(blocks);
+        log.close();
+
+        // Crash part way through the last record
+        Path file = dir.resolve("ledger.wal");
+        long intact = Files.size(file) - SegmentRecord.sizeOf(blocks.get(4));
+        try (RandomAccessFile wal = new RandomAccessFile(file.toFile(), "rw")) {
+            wal.setLength(intact + 20);
+        }
+        WriteAheadLog reopened = open();
+        assertSequences(reopened.recover(), 1, 4);
+        assertEquals(intact, Files.size(file));
+
+        reopened.append(blocks.subList(4, 5));
+        assertSequences(open().recover(), 1, 5);
+    }
+
+    @Test
+    void rollbackDropsTheUnpersistedSuffixOfTheLastGroup() {
+        WriteAheadLog log = open();
+        log.recover();
+        List<BlockchainDocument> blocks = chain(1, 8);
+        log.append(blocks.subList(0, 3));
+        log.append(blocks.subList(3, 8));
+        log.rollbackAfter(5);
+        assertSequences(open().recover(), 1, 5);
+
+        // Nothing before the last group can be rolled back, and a second rollback is a no-op
+        log.rollbackAfter(2);
+        assertSequences(open().recover(), 1, 5);
+
+        log.append(chain(6, 1));
+        assertSequences(open().recover(), 1, 6);
+    }
+
+    private WriteAheadLog open() {
+        WriteAheadLog log = new WriteAheadLog();
+        ReflectionTestUtils.setField(log, "walFile", dir.resolve("ledger.wal").toString());
+        ReflectionTestUtils.setField(log, "checkpointSizeMb", 16);
+        opened.add(log);
+        return log;
+    }
+
+    private static void assertSequences(List<BlockchainDocument> blocks, int from, int to) {
+        List<BlockchainDocument> expected = chain(from, to - from + 1);
+        assertEquals(expected.size(), blocks.size());
+        for (int i = 0; i < blocks.size(); i++) {
+            assertEquals(expected.get(i).getSequence(), blocks.get(i).getSequence());
+            assertEquals(expected.get(i).getHash(), blocks.get(i).getHash());
+            assertEquals(expected.get(i).getPrevHash(), blocks.get(i).getPrevHash());
+        }
+    }
+
+    /**
+     * Blocks from..from+count-1 of a fixed chain starting at sequence 1.
+     */
+    static List<BlockchainDocument> chain(int from, int count) {
+        List<BlockchainDocument> blocks = new ArrayList<>(count);
+        String prevHash = "0".repeat(64);
+        for (int sequence = 1; sequence < from + count; sequence++) {
+            Map<String, Object> data = Map.of("n", sequence);
+            String hash = CanonicalJson.hash(data);
+            if (sequence >= from) {
+                blocks.add(new BlockchainDocument(null, data, hash, "ab".repeat(64), "cd".repeat(32), prevHash,
+                        1_700_000_000.0 + sequence, sequence));
+            }
+            prevHash = hash;
+        }
+        return blocks;
+    }
+}
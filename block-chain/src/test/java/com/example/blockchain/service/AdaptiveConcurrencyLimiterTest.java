@@ -0,0 +1,110 @@
+package com.example.blockchain.service;
+
+import com.example.blockchain.service.AdaptiveConcurrencyLimiter.Lane;
+import com.example.blockchain.service.AdaptiveConcurrencyLimiter.Permit;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.Disposable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The limit grows additively under fast load and is cut once per overload, ingest
+ * stays within its share, and queued waiters are admitted in order.
+ */
+class AdaptiveConcurrencyLimiterTest {
+
+    private AdaptiveConcurrencyLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        limiter = new AdaptiveConcurrencyLimiter(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(limiter, "enabled", true);
+        ReflectionTestUtils.setField(limiter, "initialLimit", 10);
+        ReflectionTestUtils.setField(limiter, "minLimit", 2);
+        ReflectionTestUtils.setField(limiter, "maxLimit", 100);
+        ReflectionTestUtils.setField(limiter, "latencyThresholdMillis", 1000L);
+        ReflectionTestUtils.setField(limiter, "backoffRatio", 0.5);
+        ReflectionTestUtils.setField(limiter, "ingestShare", 0.8);
+    }
+
+    @Test
+    void limitGrowsByAboutOnePerLimitOfFastCompletions() {
+        // Idle capacity is no evidence the limit is too low
+        limiter.tryAcquire(Lane.INGEST).orElseThrow().release(false);
+        assertEquals(10.0, limiter.getLimit(), 1e-9);
+
+        List<Permit> held = acquire(Lane.INGEST, 7);
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire(Lane.INGEST).orElseThrow().release(false);
+        }
+        assertEquals(11.0, limiter.getLimit(), 0.1);
+        held.forEach(permit -> permit.release(false));
+    }
+
+    @Test
+    void limitIsCutOncePerThresholdWindow() throws InterruptedException {
+        ReflectionTestUtils.setField(limiter, "latencyThresholdMillis", 100L);
+        // Stores in flight together all report the same overload
+        acquire(Lane.INGEST, 5).forEach(permit -> permit.release(true));
+        assertEquals(5.0, limiter.getLimit(), 1e-9);
+
+        Thread.sleep(200);
+        limiter.tryAcquire(Lane.INGEST).orElseThrow().release(true);
+        assertEquals(2.5, limiter.getLimit(), 1e-9);
+
+        Thread.sleep(200);
+        limiter.tryAcquire(Lane.INGEST).orElseThrow().release(true);
+        assertEquals(2.0, limiter.getLimit(), 1e-9);
+    }
+
+    @Test
+    void priorityLatencyDoesNotMoveTheLimit() {
+        acquire(Lane.PRIORITY, 5).forEach(permit -> permit.release(true));
+        assertEquals(10.0, limiter.getLimit(), 1e-9);
+    }
+
+    @Test
+    void ingestCannotUsePriorityShare() {
+        acquire(Lane.INGEST, 8);
+        assertTrue(limiter.tryAcquire(Lane.INGEST).isEmpty());
+
+        acquire(Lane.PRIORITY, 2);
+        assertTrue(limiter.tryAcquire(Lane.PRIORITY).isEmpty());
+        assertEquals(10, limiter.getInFlight());
+    }
+
+    @Test
+    void queuedWaitersAreAdmittedInOrderSkippingCancelledOnes() {
+        List<Permit> held = acquire(Lane.INGEST, 8);
+        List<Integer> admitted = new ArrayList<>();
+        limiter.acquire(Lane.INGEST).subscribe(permit -> admitted.add(1));
+        Disposable second = limiter.acquire(Lane.INGEST).subscribe(permit -> admitted.add(2));
+        limiter.acquire(Lane.INGEST).subscribe(permit -> admitted.add(3));
+        limiter.acquire(Lane.INGEST).subscribe(permit -> admitted.add(4));
+        assertEquals(List.of(), admitted);
+
+        second.dispose();
+        held.get(0).release(false);
+        assertEquals(List.of(1), admitted);
+        held.get(1).release(false);
+        assertEquals(List.of(1, 3), admitted);
+        held.get(2).release(false);
+        assertEquals(List.of(1, 3, 4), admitted);
+        assertEquals(8, limiter.getInFlight());
+    }
+
+    private List<Permit> acquire(Lane lane, int permits) {
+        List<Permit> held = new ArrayList<>();
+        for (int i = 0; i < permits; i++) {
+            held.add(limiter.tryAcquire(lane).orElseThrow());
+        }
+        return held;
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.blockchain.service;
+
+import com.example.blockchain.ledger.InMemoryMongo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Retries with the same Idempotency-Key get the first response back, from memory
+ * or from Mongo once the key has left the LRU map; only successful stores are kept.
+ */
+class IdempotencyStoreTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+    private static final Map<String, Object> BODY = Map.of("identifier", "sensor-1", "value", 21);
+
+    private final AtomicInteger stores = new AtomicInteger();
+    private InMemoryMongo mongo;
+    private IdempotencyStore idempotency;
+
+    @BeforeEach
+    void setUp() {
+        mongo = new InMemoryMongo();
+        idempotency = new IdempotencyStore(mongo.template(), new ObjectMapper(), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(idempotency, "maxEntries", 2);
+        ReflectionTestUtils.setField(idempotency, "ttlHours", 24L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongo.close();
+    }
+
+    @Test
+    void replayReturnsTheFirstResponse() {
+        ResponseEntity<Map<String, Object>> first = execute("k1", BODY, stored(1));
+        assertEquals(HttpStatus.OK, first.getStatusCode());
+        assertNull(first.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+
+        ResponseEntity<Map<String, Object>> retry = execute("k1", BODY, stored(2));
+        assertEquals(HttpStatus.OK, retry.getStatusCode());
+        assertEquals("true", retry.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+        assertEquals(first.getBody(), retry.getBody());
+        assertEquals(1, stores.get());
+    }
+
+    @Test
+    void differentBodyUnderTheSameKeyIsRejected() {
+        execute("k1", BODY, stored(1));
+
+        ResponseEntity<Map<String, Object>> reused = execute("k1", Map.of("identifier", "sensor-2"), stored(2));
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, reused.getStatusCode());
+        assertEquals(1, stores.get());
+    }
+
+    @Test
+    void failedStoreIsForgottenSoTheRetryRuns() {
+        ResponseEntity<Map<String, Object>> failed = execute("k1", BODY, counted(() ->
+                Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("success", false)))));
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, failed.getStatusCode());
+
+        assertThrows(IllegalStateException.class, () -> execute("k1", BODY,
+                counted(() -> Mono.error(new IllegalStateException("chain_handler unreachable")))));
+
+        ResponseEntity<Map<String, Object>> retry = execute("k1", BODY, stored(1));
+        assertEquals(HttpStatus.OK, retry.getStatusCode());
+        assertNull(retry.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+        assertEquals(3, stores.get());
+    }
+
+    @Test
+    void concurrentRetryWaitsForTheRunningStore() {
+        Sinks.One<ResponseEntity<Map<String, Object>>> response = Sinks.one();
+        CompletableFuture<ResponseEntity<Map<String, Object>>> first =
+                idempotency.execute("k1", BODY, counted(response::asMono)).toFuture();
+        CompletableFuture<ResponseEntity<Map<String, Object>>> retry =
+                idempotency.execute("k1", BODY, stored(2)).toFuture();
+        assertFalse(retry.isDone());
+
+        response.tryEmitValue(ResponseEntity.ok(Map.of("success", true, "sequence", 1)));
+        assertEquals(first.join().getBody(), retry.join().getBody());
+        assertEquals("true", retry.join().getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+        assertEquals(1, stores.get());
+    }
+
+    @Test
+    void keyEvictedFromMemoryIsAnsweredFromMongo() {
+        ResponseEntity<Map<String, Object>> first = execute("k1", BODY, stored(1));
+        execute("k2", BODY, stored(2));
+        execute("k3", BODY, stored(3));
+
+        // max-entries is 2, so k1 is only in Mongo now
+        ResponseEntity<Map<String, Object>> retry = execute("k1", BODY, stored(4));
+        assertEquals(HttpStatus.OK, retry.getStatusCode());
+        assertEquals("true", retry.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+        assertEquals(first.getBody(), retry.getBody());
+        assertEquals(3, stores.get());
+
+        execute("k4", BODY, stored(4));
+        execute("k5", BODY, stored(5));
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY,
+                execute("k1", Map.of("identifier", "sensor-2"), stored(6)).getStatusCode());
+    }
+
+    private ResponseEntity<Map<String, Object>> execute(String key, Map<String, Object> body,
+                                                        Supplier<Mono<ResponseEntity<Map<String, Object>>>> store) {
+        return idempotency.execute(key, body, store).block(TIMEOUT);
+    }
+
+    private Supplier<Mono<ResponseEntity<Map<String, Object>>>> stored(int sequence) {
+        return counted(() -> Mono.just(ResponseEntity.ok(Map.of("success", true, "sequence", sequence))));
+    }
+
+    private Supplier<Mono<ResponseEntity<Map<String, Object>>>> counted(
+            Supplier<Mono<ResponseEntity<Map<String, Object>>>> store) {
+        return () -> {
+            stores.incrementAndGet();
+            return store.get();
+        };
+    }
+}
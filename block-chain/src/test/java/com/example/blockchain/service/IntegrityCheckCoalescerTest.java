@@ -0,0 +1,120 @@
+package com.example.blockchain.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Concurrent callers for one tip share a single check; a finished check is reused
+ * only while it was valid and the tip has not moved.
+ */
+class IntegrityCheckCoalescerTest {
+
+    private IntegrityCheckCoalescer coalescer;
+    private final AtomicInteger started = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        coalescer = new IntegrityCheckCoalescer(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(coalescer, "cacheTtlMillis", 60_000L);
+    }
+
+    @Test
+    void concurrentCallersShareOneCheck() throws Exception {
+        Sinks.One<Boolean> outcome = Sinks.one();
+        int callers = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            CountDownLatch ready = new CountDownLatch(1);
+            List<Future<Mono<Boolean>>> joined = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                joined.add(executor.submit(() -> {
+                    ready.await();
+                    Mono<Boolean> result = coalescer.check("tip", counted(outcome::asMono));
+                    // Subscribe while the check is still running
+                    result.subscribe();
+                    return result;
+                }));
+            }
+            ready.countDown();
+            List<Mono<Boolean>> results = new ArrayList<>();
+            for (Future<Mono<Boolean>> future : joined) {
+                results.add(future.get());
+            }
+
+            outcome.tryEmitValue(true);
+            for (Mono<Boolean> result : results) {
+                assertTrue(result.block());
+            }
+            assertEquals(1, started.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void finishedValidCheckIsReusedForTheSameTip() {
+        assertTrue(coalescer.check("a", counted(() -> Mono.just(true))).block());
+        assertTrue(coalescer.check("a", counted(() -> Mono.just(true))).block());
+        assertEquals(1, started.get());
+    }
+
+    @Test
+    void errorIsNotCached() {
+        Mono<Boolean> failed = coalescer.check("a", counted(() -> Mono.error(new IllegalStateException("down"))));
+        assertThrows(IllegalStateException.class, failed::block);
+
+        assertTrue(coalescer.check("a", counted(() -> Mono.just(true))).block());
+        assertEquals(2, started.get());
+    }
+
+    @Test
+    void tipChangeStartsANewCheck() {
+        assertTrue(coalescer.check("a", counted(() -> Mono.just(true))).block());
+        assertEquals(false, coalescer.check("b", counted(() -> Mono.just(false))).block());
+        assertTrue(coalescer.check("a", counted(() -> Mono.just(true))).block());
+        assertEquals(3, started.get());
+    }
+
+    @Test
+    void invalidResultIsNotReusedOnceFinished() {
+        assertEquals(false, coalescer.check("a", counted(() -> Mono.just(false))).block());
+        // Repaired without moving the tip
+        assertTrue(coalescer.check("a", counted(() -> Mono.just(true))).block());
+        assertEquals(2, started.get());
+    }
+
+    @Test
+    void zeroTtlOnlyJoinsRunningChecks() {
+        ReflectionTestUtils.setField(coalescer, "cacheTtlMillis", 0L);
+        assertTrue(coalescer.check("a", counted(() -> Mono.just(true))).block());
+        assertTrue(coalescer.check("a", counted(() -> Mono.just(true))).block());
+        assertEquals(2, started.get());
+    }
+
+    /**
+     * A check that counts its subscriptions, i.e. the verifications actually run.
+     */
+    private Supplier<Mono<Boolean>> counted(Supplier<Mono<Boolean>> check) {
+        return () -> Mono.defer(() -> {
+            started.incrementAndGet();
+            return check.get();
+        });
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.blockchain.service;
+
+import com.example.blockchain.controller.BlockchainController;
+import com.example.blockchain.ledger.InMemoryMongo;
+import com.example.blockchain.model.StoreReceipt;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Receipts go from PENDING to STORED or FAILED, max-pending turns further async
+ * stores away with 429, and a receipt dropped from memory is still found in Mongo.
+ */
+class ReceiptStoreTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private InMemoryMongo mongo;
+    private ReceiptStore receipts;
+
+    @BeforeEach
+    void setUp() {
+        mongo = new InMemoryMongo();
+        receipts = new ReceiptStore(mongo.template(), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(receipts, "maxPending", 100);
+        ReflectionTestUtils.setField(receipts, "maxEntries", 100);
+        ReflectionTestUtils.setField(receipts, "ttlHours", 24L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongo.close();
+    }
+
+    @Test
+    void storedReceiptCarriesSequenceAndHash() {
+        Sinks.One<ResponseEntity<Map<String, Object>>> response = Sinks.one();
+        StoreReceipt accepted = receipts.submit(response::asMono).block(TIMEOUT);
+        assertEquals(StoreReceipt.PENDING, accepted.getStatus());
+        assertEquals(StoreReceipt.PENDING, receipts.find(accepted.getId()).block(TIMEOUT).getStatus());
+
+        response.tryEmitValue(ResponseEntity.ok(Map.of("success", true, "sequence", 7, "hash", "ab".repeat(32))));
+        StoreReceipt stored = await(accepted.getId(), receipt -> !StoreReceipt.PENDING.equals(receipt.getStatus()));
+        assertEquals(StoreReceipt.STORED, stored.getStatus());
+        assertEquals(Integer.valueOf(7), stored.getSequence());
+        assertEquals("ab".repeat(32), stored.getHash());
+        assertNull(stored.getError());
+        assertNotNull(stored.getCompletedAt());
+    }
+
+    @Test
+    void failedReceiptCarriesTheError() {
+        StoreReceipt rejected = receipts.submit(() -> Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(Map.<String, Object>of("success", false, "error", "integrity check failed")))).block(TIMEOUT);
+        StoreReceipt failed = await(rejected.getId(), receipt -> !StoreReceipt.PENDING.equals(receipt.getStatus()));
+        assertEquals(StoreReceipt.FAILED, failed.getStatus());
+        assertEquals("integrity check failed", failed.getError());
+        assertNull(failed.getSequence());
+
+        StoreReceipt errored = receipts.submit(() -> Mono.error(new IllegalStateException("chain_handler unreachable")))
+                .block(TIMEOUT);
+        failed = await(errored.getId(), receipt -> !StoreReceipt.PENDING.equals(receipt.getStatus()));
+        assertEquals(StoreReceipt.FAILED, failed.getStatus());
+        assertEquals("chain_handler unreachable", failed.getError());
+    }
+
+    @Test
+    void maxPendingTurnsAsyncStoresAwayWith429() {
+        ReflectionTestUtils.setField(receipts, "maxPending", 1);
+        Sinks.One<ResponseEntity<Map<String, Object>>> running = Sinks.one();
+        assertNotNull(receipts.submit(running::asMono).block(TIMEOUT));
+        assertNull(receipts.submit(running::asMono).block(TIMEOUT));
+
+        BlockchainController controller = new BlockchainController(mock(BlockchainService.class),
+                mock(IdempotencyStore.class), receipts, new AdaptiveConcurrencyLimiter(new SimpleMeterRegistry()));
+        ResponseEntity<Map<String, Object>> response =
+                controller.storeData(Map.of("identifier", "sensor-1"), true, null).block(TIMEOUT);
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.getStatusCode());
+        assertNotNull(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+
+        // Room again once the running store finishes
+        running.tryEmitValue(ResponseEntity.ok(Map.of("success", true)));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        StoreReceipt next = null;
+        while (next == null && System.nanoTime() < deadline) {
+            next = receipts.submit(() -> Mono.just(ResponseEntity.ok(Map.of("success", true)))).block(TIMEOUT);
+        }
+        assertNotNull(next);
+    }
+
+    @Test
+    void evictedReceiptIsFoundInMongo() {
+        ReflectionTestUtils.setField(receipts, "maxEntries", 1);
+        StoreReceipt first = receipts.submit(() -> Mono.just(ResponseEntity.ok(Map.of("success", true, "sequence", 1))))
+                .block(TIMEOUT);
+        awaitSaved(first.getId());
+        StoreReceipt second = receipts.submit(() -> Mono.just(ResponseEntity.ok(Map.of("success", true, "sequence", 2))))
+                .block(TIMEOUT);
+        awaitSaved(second.getId());
+
+        @SuppressWarnings("unchecked")
+        Map<String, StoreReceipt> recent = (Map<String, StoreReceipt>) ReflectionTestUtils.getField(receipts, "recent");
+        assertFalse(recent.containsKey(first.getId()));
+        StoreReceipt found = receipts.find(first.getId()).block(TIMEOUT);
+        assertEquals(StoreReceipt.STORED, found.getStatus());
+        assertEquals(Integer.valueOf(1), found.getSequence());
+
+        assertNull(receipts.find("no-such-receipt").block(TIMEOUT));
+    }
+
+    private StoreReceipt await(String id, Predicate<StoreReceipt> done) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        StoreReceipt receipt = receipts.find(id).block(TIMEOUT);
+        while (!done.test(receipt) && System.nanoTime() < deadline) {
+            sleep();
+            receipt = receipts.find(id).block(TIMEOUT);
+        }
+        return receipt;
+    }
+
+    private void awaitSaved(String id) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (mongo.template().findById(id, StoreReceipt.class) == null && System.nanoTime() < deadline) {
+            sleep();
+        }
+        assertNotNull(mongo.template().findById(id, StoreReceipt.class), "receipt " + id + " not saved");
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(10);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}